@@ -1,6 +1,12 @@
 package com.opencmath;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.List;
 
 /**
  * Base class representing number or matrix
@@ -9,6 +15,8 @@ import java.io.*;
 public abstract class BaseNumber {
     private static final double EPSILON = 1.0E-12;
     protected static final double M_PI2 = Math.PI / 2.0;
+    // marker of int matrix dimensions in data, byte dimensions of older data are never negative
+    private static final byte MATRIX_INT_DIMENSIONS = -1;
 
     final NumberType type;
 
@@ -66,6 +74,147 @@ public abstract class BaseNumber {
         }
     }
 
+    /**
+     * Gets snapshot of pool counters
+     * @param type Number type
+     * @return Pool counters
+     * @see NumberType
+     */
+    public static PoolStatistics getPoolStatistics(NumberType type) {
+        return getPool(type).getStatistics(type);
+    }
+
+    /**
+     * Registers pool counters of all number types into platform MBean server as "com.opencmath:type=Pool,name=&lt;type&gt;".
+     * Already registered beans are skipped
+     * @see PoolMXBean
+     */
+    public static void registerPoolMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        for (NumberType type : NumberType.values()) {
+            try {
+                ObjectName name = new ObjectName("com.opencmath:type=Pool,name=" + type.name());
+
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(new PoolBean(type), name);
+                }
+            } catch (InstanceAlreadyExistsException e) {
+                // registered concurrently
+            } catch (JMException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Sets maximum number of objects owned by pool (free and retrieved). Initial and maximum pool sizes are configured
+     * by system properties "opencmath.pool.initialSize" and "opencmath.pool.maximumSize" (or "opencmath.pool.&lt;type&gt;.*"
+     * for given type)
+     * @param type Number type
+     * @param maximumSize Maximum pool size
+     * @see NumberType
+     */
+    public static void setPoolMaximumSize(NumberType type, int maximumSize) {
+        getPool(type).setMaximumSize(maximumSize);
+    }
+
+    /**
+     * Sets behaviour of pool which reached maximum size and has no free number. Configured initially by system properties
+     * "opencmath.pool.exhaustionPolicy" and "opencmath.pool.blockTimeout" (or "opencmath.pool.&lt;type&gt;.*" for given type)
+     * @param type Number type
+     * @param policy Exhaustion policy
+     * @param blockTimeout Milliseconds to wait for returned numbers with {@link PoolExhaustionPolicy#BLOCK}
+     * @see NumberType
+     * @see PoolExhaustionPolicy
+     */
+    public static void setPoolExhaustionPolicy(NumberType type, PoolExhaustionPolicy policy, long blockTimeout) {
+        getPool(type).setExhaustionPolicy(policy, blockTimeout);
+    }
+
+    /**
+     * Fill pool with free numbers in advance, so later retrievals do not have to grow pool
+     * @param type Number type
+     * @param count Required count of free numbers, limited by maximum pool size and high watermark
+     * @return Count of created numbers
+     * @see NumberType
+     */
+    public static int prewarm(NumberType type, int count) {
+        return getPool(type).prewarm(count);
+    }
+
+    /**
+     * Sets limits of free objects held in pool. Configured initially by system properties "opencmath.pool.lowWatermark",
+     * "opencmath.pool.highWatermark" and "opencmath.pool.trimDelay" (or "opencmath.pool.&lt;type&gt;.*" for given type)
+     * @param type Number type
+     * @param lowWatermark Number of free objects kept after trimming
+     * @param highWatermark Maximum number of free objects in pool, objects returned over this limit are released
+     * @param trimDelay Milliseconds without shortage of free objects after which pool is trimmed to low watermark,
+     *                  negative value disables automatic trimming
+     * @see NumberType
+     */
+    public static void setPoolTrimPolicy(NumberType type, int lowWatermark, int highWatermark, long trimDelay) {
+        getPool(type).setTrimPolicy(lowWatermark, highWatermark, trimDelay);
+    }
+
+    /**
+     * Release free objects from pool above low watermark
+     * @param type Number type
+     * @return Number of released objects
+     * @see NumberType
+     * @see #setPoolTrimPolicy(NumberType, int, int, long)
+     */
+    public static int trimPool(NumberType type) {
+        return getPool(type).trim();
+    }
+
+    /**
+     * Gets numbers retrieved from pool and not returned yet. Available only in pool debug mode enabled by system property
+     * "opencmath.pool.debug" (or "opencmath.pool.&lt;type&gt;.debug") with value "true", or "stacks" to record also
+     * allocation stack traces. In debug mode, number put into pool twice is reported by IllegalStateException
+     * @param type Number type
+     * @return Outstanding numbers ordered by allocation generation, empty list when debug mode is disabled
+     * @see NumberType
+     * @see PoolAllocation
+     */
+    public static List<PoolAllocation> getOutstandingAllocations(NumberType type) {
+        return getPool(type).getOutstanding();
+    }
+
+    /**
+     * Opens arena on current thread. Every number retrieved from pool inside arena is returned into pool when arena
+     * is closed, except numbers marked by {@link NumberArena#escape(BaseNumber)}
+     * @return Opened arena
+     * @see NumberArena
+     */
+    public static NumberArena openArena() {
+        return NumberArena.open();
+    }
+
+    /**
+     * Sets number of threads for large matrix products and element-wise operations, 1 disables parallel work
+     * @param parallelism Number of parallel tasks, default is number of processors
+     */
+    public static void setParallelism(int parallelism) {
+        MatrixParallel.setParallelism(parallelism);
+    }
+
+    /**
+     * Overrides parallelism for operations called by current thread
+     * @param parallelism Number of parallel tasks, 1 disables parallel work and 0 restores global parallelism
+     */
+    public static void setThreadParallelism(int parallelism) {
+        MatrixParallel.setThreadParallelism(parallelism);
+    }
+
+    /**
+     * Sets minimal size of parallel matrix work, measured in approximate number of multiply-adds
+     * @param threshold Work below this size runs on calling thread
+     */
+    public static void setParallelThreshold(long threshold) {
+        MatrixParallel.setThreshold(threshold);
+    }
+
     /**
      * Gets current type of number
      * @return Current number type
@@ -133,7 +282,7 @@ public abstract class BaseNumber {
      * @return MATRIX with defined size
      * @see NumberType
      */
-    public static BaseNumber getMatrix(byte rows, byte cols) {
+    public static BaseNumber getMatrix(int rows, int cols) {
         return MatrixNumber.get(rows, cols);
     }
 
@@ -145,10 +294,39 @@ public abstract class BaseNumber {
      * @return MATRIX with defined size and items
      * @see NumberType
      */
-    public static BaseNumber getMatrix(byte rows, byte cols, BaseNumber[] items) {
+    public static BaseNumber getMatrix(int rows, int cols, BaseNumber[] items) {
         return MatrixNumber.get(rows, cols, items);
     }
 
+    /**
+     * Gets builder of sparse MATRIX, which stores only non-zero real items
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @return Builder with coordinates of items
+     * @see SparseMatrixBuilder
+     */
+    public static SparseMatrixBuilder getSparseMatrixBuilder(int rows, int cols) {
+        return new SparseMatrixBuilder(rows, cols);
+    }
+
+    /**
+     * Converts MATRIX with real items into sparse storage. Products, transposition, addition of sparse matrices and
+     * multiplication by real number skip zero items. Other operations convert sparse MATRIX back into dense storage
+     * @param number MATRIX for conversion
+     * @return Same number, in sparse storage when all items are real
+     */
+    public static BaseNumber toSparse(BaseNumber number) {
+        if (number.type == NumberType.MATRIX) {
+            MatrixNumber matrixNumber = (MatrixNumber) number;
+
+            if (matrixNumber.isReal()) {
+                matrixNumber.toSparse();
+            }
+        }
+
+        return number;
+    }
+
     /**
      * Returns integer value as Long. Valid only for {@link NumberType#INTEGER} type
      * @return For INTEGER number returns current value, otherwise Long.MIN_VALUE
@@ -239,18 +417,27 @@ public abstract class BaseNumber {
     public BaseNumber[] getMatrixItems() {
         if (type == NumberType.MATRIX) {
             MatrixNumber matrixNumber = (MatrixNumber) this;
-            return  matrixNumber.value;
+            return  matrixNumber.items();
         } else {
             return null;
         }
     }
 
+    /**
+     * Returns storage of matrix
+     * @return True for MATRIX in sparse storage, otherwise false
+     * @see #toSparse(BaseNumber)
+     */
+    public boolean isSparse() {
+        return (type == NumberType.MATRIX) && (((MatrixNumber) this).sparse != null);
+    }
+
     /**
      * Return count of matrix rows. Valid only for {@link NumberType#MATRIX} type
      * @return For MATRIX return number of rows, otherwise -1
      * @see NumberType
      */
-    public byte getRows() {
+    public int getRows() {
         if (type == NumberType.MATRIX) {
             MatrixNumber matrixNumber = (MatrixNumber) this;
             return  matrixNumber.rows;
@@ -264,7 +451,7 @@ public abstract class BaseNumber {
      * @return For MATRIX return number of columns, otherwise -1
      * @see NumberType
      */
-    public byte getCols() {
+    public int getCols() {
         if (type == NumberType.MATRIX) {
             MatrixNumber matrixNumber = (MatrixNumber) this;
             return  matrixNumber.cols;
@@ -276,7 +463,7 @@ public abstract class BaseNumber {
     /**
      * Put number back into pool. Each number can be put only once
      * @param number Number previously retrieved by {@link #getNaN()}, {@link #getInteger()}, {@link #getReal()}, {@link #getComplex(double, double)},
-     *               {@link #getMatrix(byte, byte, BaseNumber[])} or {@link #getMatrix(byte, byte)} function
+     *               {@link #getMatrix(int, int, BaseNumber[])} or {@link #getMatrix(int, int)} function
      */
     public static void put(BaseNumber number) {
         switch (number.type) {
@@ -303,6 +490,153 @@ public abstract class BaseNumber {
         throw new IllegalStateException();
     }
 
+    /**
+     * Factorizes square MATRIX once for solving of linear systems with different right sides. Number is put back into pool
+     * @param number Square MATRIX with numeric items
+     * @return For square MATRIX with numeric items returns factorization, otherwise null
+     * @see MatrixFactorization
+     */
+    public static MatrixFactorization factorize(BaseNumber number) {
+        if (number.type == NumberType.MATRIX) {
+            MatrixNumber matrixNumber = (MatrixNumber) number;
+
+            if ((matrixNumber.cols == matrixNumber.rows) && matrixNumber.isNumeric()) {
+                return new MatrixFactorization(matrixNumber);
+            }
+        }
+
+        put(number);
+        return null;
+    }
+
+    /**
+     * QR decomposition with column pivoting of MATRIX for numerical rank and least squares. Number is put back into pool
+     * @param number MATRIX with numeric items
+     * @return For MATRIX with numeric items returns factorization, otherwise null
+     * @see QRFactorization
+     */
+    public static QRFactorization factorizeQR(BaseNumber number) {
+        if ((number.type == NumberType.MATRIX) && ((MatrixNumber) number).isNumeric()) {
+            return new QRFactorization((MatrixNumber) number);
+        }
+
+        put(number);
+        return null;
+    }
+
+    /**
+     * Submatrix of MATRIX. Items in primitive storage are not copied, result is view of same storage. Number is put
+     * back into pool
+     * @param number MATRIX
+     * @param row First row, from 0
+     * @param col First column, from 0
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @return Submatrix, INVALID for other type than MATRIX
+     * @throws IndexOutOfBoundsException When submatrix is outside of matrix
+     */
+    public static BaseNumber submatrix(BaseNumber number, int row, int col, int rows, int cols) {
+        if (number.type != NumberType.MATRIX) {
+            put(number);
+            return InvalidNumber.get();
+        }
+
+        MatrixNumber matrixNumber = (MatrixNumber) number;
+
+        if ((row < 0) || (col < 0) || (rows < 0) || (cols < 0) || (row + rows > matrixNumber.rows) || (col + cols > matrixNumber.cols)) {
+            throw new IndexOutOfBoundsException("Submatrix " + rows + "x" + cols + " at " + row + "x" + col + " is outside of matrix " + matrixNumber.rows + "x" + matrixNumber.cols);
+        }
+
+        return MatrixNumber.select(matrixNumber, matrixNumber.view().submatrix(row, col, rows, cols));
+    }
+
+    /**
+     * Selected rows and columns of MATRIX in given order, they can repeat. Items in primitive storage are not copied,
+     * result is view of same storage. Number is put back into pool
+     * @param number MATRIX
+     * @param rows Indices of rows, from 0
+     * @param cols Indices of columns, from 0
+     * @return Matrix of selected items, INVALID for other type than MATRIX
+     * @throws IndexOutOfBoundsException When index is outside of matrix
+     */
+    public static BaseNumber select(BaseNumber number, int[] rows, int[] cols) {
+        if (number.type != NumberType.MATRIX) {
+            put(number);
+            return InvalidNumber.get();
+        }
+
+        MatrixNumber matrixNumber = (MatrixNumber) number;
+        checkIndices(rows, matrixNumber.rows);
+        checkIndices(cols, matrixNumber.cols);
+        return MatrixNumber.select(matrixNumber, matrixNumber.view().select(rows, cols));
+    }
+
+    /**
+     * Minor of MATRIX without one row and one column. Items in primitive storage are not copied, result is view of same
+     * storage. Number is put back into pool
+     * @param number MATRIX
+     * @param row Excluded row, from 0
+     * @param col Excluded column, from 0
+     * @return Minor, INVALID for other type than MATRIX
+     * @throws IndexOutOfBoundsException When row or column is outside of matrix
+     */
+    public static BaseNumber minor(BaseNumber number, int row, int col) {
+        if (number.type != NumberType.MATRIX) {
+            put(number);
+            return InvalidNumber.get();
+        }
+
+        MatrixNumber matrixNumber = (MatrixNumber) number;
+
+        if ((row < 0) || (row >= matrixNumber.rows) || (col < 0) || (col >= matrixNumber.cols)) {
+            throw new IndexOutOfBoundsException("Item " + row + "x" + col + " is outside of matrix " + matrixNumber.rows + "x" + matrixNumber.cols);
+        }
+
+        return MatrixNumber.select(matrixNumber, matrixNumber.view().minor(row, col));
+    }
+
+    private static void checkIndices(int[] indices, int count) {
+        for (int index : indices) {
+            if ((index < 0) || (index >= count)) {
+                throw new IndexOutOfBoundsException("Index " + index + " is outside of range 0.." + (count - 1));
+            }
+        }
+    }
+
+    /**
+     * Eigenvalues and eigenvectors of square MATRIX. Number is put back into pool
+     * @param number Square MATRIX with numeric items
+     * @return For square MATRIX with numeric items returns eigendecomposition, otherwise null
+     * @see EigenFactorization
+     */
+    public static EigenFactorization factorizeEigen(BaseNumber number) {
+        if (number.type == NumberType.MATRIX) {
+            MatrixNumber matrixNumber = (MatrixNumber) number;
+
+            if ((matrixNumber.cols == matrixNumber.rows) && matrixNumber.isNumeric()) {
+                return new EigenFactorization(matrixNumber);
+            }
+        }
+
+        put(number);
+        return null;
+    }
+
+    /**
+     * Singular value decomposition of MATRIX by one-sided Jacobi rotations. Number is put back into pool
+     * @param number MATRIX with numeric items
+     * @return For MATRIX with numeric items returns factorization, otherwise null
+     * @see SVDFactorization
+     */
+    public static SVDFactorization factorizeSVD(BaseNumber number) {
+        if ((number.type == NumberType.MATRIX) && ((MatrixNumber) number).isNumeric()) {
+            return new SVDFactorization((MatrixNumber) number);
+        }
+
+        put(number);
+        return null;
+    }
+
     /**
      * Try to simplify number. E.g. simplify(BaseNumber.getComplex(1.0, 0.0)).getType() returns INTEGER (with value 1)
      * @param value Number for simplification
@@ -357,8 +691,12 @@ public abstract class BaseNumber {
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) value;
 
-                if (matrixNumber.value.length == 1) {
-                    BaseNumber number = matrixNumber.value[0];
+                if (((matrixNumber.sparse != null) || (matrixNumber.view != null)) && (matrixNumber.cols * matrixNumber.rows == 1)) {
+                    matrixNumber.dense();
+                }
+
+                if (((matrixNumber.re != null) && (matrixNumber.re.length == 1)) || (matrixNumber.value.length == 1)) {
+                    BaseNumber number = matrixNumber.items()[0];
                     matrixNumber.value = new BaseNumber[0];
                     put(matrixNumber);
                     return number;
@@ -393,7 +731,15 @@ public abstract class BaseNumber {
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
 
-                if (matrixNumber.value.length > 0) {
+                if (matrixNumber.sparse != null) {
+                    return MatrixNumber.get(matrixNumber.sparse.copy());
+                } else if (matrixNumber.view != null) { // storage of view is never written, so it is shared
+                    return MatrixNumber.get(matrixNumber.view);
+                } else if (matrixNumber.im != null) {
+                    return MatrixNumber.get(matrixNumber.cols, matrixNumber.rows, matrixNumber.re.clone(), matrixNumber.im.clone());
+                } else if (matrixNumber.re != null) {
+                    return MatrixNumber.get(matrixNumber.cols, matrixNumber.rows, matrixNumber.re.clone());
+                } else if (matrixNumber.value.length > 0) {
                     BaseNumber[] items = new BaseNumber[matrixNumber.cols * matrixNumber.rows];
 
                     for (int i = 0; i < items.length; i++) {
@@ -695,19 +1041,22 @@ public abstract class BaseNumber {
     public abstract BaseNumber fromRadians(AngleType angleType);
 
     /**
-     * Inverse value
+     * Inverse value. Inverse of MATRIX with integer items, or binary fractions like 1.5, is exact where division is
+     * exact, other numeric MATRIX is inverted by LU decomposition with rounding error
      * @return Result of inverse
      */
     public abstract BaseNumber inv();
 
     /**
-     * Transpose
+     * Transpose, MATRIX in primitive storage becomes transposed view without copy of items
      * @return Result of transpose
      */
     public abstract BaseNumber transpose();
 
     /**
-     * Determinant
+     * Determinant. MATRIX with integer items, or binary fractions like 1.5, gives exact result, INTEGER when it is
+     * integral. Other numeric MATRIX is factored by LU decomposition with rounding error, constants in MATRIX up to 3x3
+     * are kept in closed form
      * @return Result of determinant
      */
     public abstract BaseNumber det();
@@ -725,7 +1074,7 @@ public abstract class BaseNumber {
     public abstract BaseNumber trace();
 
     /**
-     * Adjugate
+     * Adjugate. Same exactness as {@link #det()}
      * @return Result of adjugate
      */
     public abstract BaseNumber adjugate();
@@ -736,6 +1085,48 @@ public abstract class BaseNumber {
      */
     public abstract BaseNumber gauss();
 
+    /**
+     * Solves linear system, this * x = rhs. For repeated solving with same matrix use {@link #factorize(BaseNumber)}.
+     * Overdetermined system of MATRIX with more rows than columns is solved in least squares sense
+     * @param rhs Right side, for MATRIX it must have same number of rows
+     * @return Solution x
+     */
+    public abstract BaseNumber solve(BaseNumber rhs);
+
+    /**
+     * Matrix power by repeated squaring, costs O(log k) matrix products. Integer matrix gives exact INTEGER items
+     * while they fit into long. For element-wise power use {@link #pow(BaseNumber)}
+     * @param exponent INTEGER exponent k, negative exponent is power of inverse
+     * @return Result of this^k, for square MATRIX k-th power and identity for k = 0
+     */
+    public abstract BaseNumber matrixPow(BaseNumber exponent);
+
+    /**
+     * Eigenvalues of square MATRIX. Hermitian matrix has real eigenvalues in ascending order. For eigenvectors use
+     * {@link #factorizeEigen(BaseNumber)}
+     * @return Column MATRIX of eigenvalues, scalar for scalar or 1x1 MATRIX
+     */
+    public abstract BaseNumber eigenvalues();
+
+    /**
+     * Moore-Penrose pseudo-inverse by singular value decomposition, singular values below max(rows, cols) * eps * |A|_2
+     * are considered zero. Unlike {@link #inv()} it exists for singular and non-square MATRIX
+     * @return Pseudo-inverse, for scalar its reciprocal or zero
+     */
+    public abstract BaseNumber pinv();
+
+    /**
+     * Spectral norm, largest singular value
+     * @return 2-norm, for scalar its absolute value
+     */
+    public abstract BaseNumber norm2();
+
+    /**
+     * Condition number in 2-norm, ratio of largest and smallest singular value
+     * @return Condition number, infinity for rank deficient MATRIX
+     */
+    public abstract BaseNumber cond();
+
     /**
      * Shift bits to right
      * @param count How much shift, must be of type INTEGER
@@ -811,6 +1202,25 @@ public abstract class BaseNumber {
         return IntegerNumber.get(0);
     }
 
+    static PoolTemplate<? extends BaseNumber> getPool(NumberType type) {
+        switch (type) {
+            case INVALID:
+                return InvalidNumber.pool;
+            case INTEGER:
+                return IntegerNumber.pool;
+            case REAL:
+                return RealNumber.pool;
+            case CONSTANT:
+                return ConstantNumber.pool;
+            case COMPLEX:
+                return ComplexNumber.pool;
+            case MATRIX:
+                return MatrixNumber.pool;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
     private static void numberToData(DataOutputStream dos, BaseNumber number) throws IOException {
         dos.writeByte(number.type.value);
 
@@ -841,11 +1251,42 @@ public abstract class BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
-                dos.writeByte(matrixNumber.cols);
-                dos.writeByte(matrixNumber.rows);
+                dos.writeByte(MATRIX_INT_DIMENSIONS);
+                dos.writeInt(matrixNumber.cols);
+                dos.writeInt(matrixNumber.rows);
+
+                if (matrixNumber.sparse != null) { // same data as boxed items, zeros are written without dense copy
+                    SparseMatrix sparse = matrixNumber.sparse;
+
+                    for (int i = 0; i < sparse.rows; i++) {
+                        int p = sparse.rowPointers[i];
+
+                        for (int j = 0; j < sparse.cols; j++) {
+                            if ((p < sparse.rowPointers[i + 1]) && (sparse.columns[p] == j)) {
+                                itemToData(dos, sparse.values[p], 0);
+                                p++;
+                            } else {
+                                itemToData(dos, 0, 0);
+                            }
+                        }
+                    }
+                } else if (matrixNumber.view != null) { // same data as boxed items
+                    MatrixView view = matrixNumber.view;
 
-                for (int i = 0; i < matrixNumber.cols * matrixNumber.rows; i++) {
-                    numberToData(dos, matrixNumber.value[i]);
+                    for (int i = 0; i < view.rows; i++) {
+                        for (int j = 0; j < view.cols; j++) {
+                            int index = view.rowOffsets[i] + view.colOffsets[j];
+                            itemToData(dos, view.re[index], (view.im != null) ? view.im[index] : 0);
+                        }
+                    }
+                } else if (matrixNumber.re != null) { // same data as boxed items
+                    for (int i = 0; i < matrixNumber.re.length; i++) {
+                        itemToData(dos, matrixNumber.re[i], (matrixNumber.im != null) ? matrixNumber.im[i] : 0);
+                    }
+                } else {
+                    for (int i = 0; i < matrixNumber.cols * matrixNumber.rows; i++) {
+                        numberToData(dos, matrixNumber.value[i]);
+                    }
                 }
                 break;
             }
@@ -854,9 +1295,29 @@ public abstract class BaseNumber {
         }
     }
 
+    // same data as numberToData() of MatrixNumber.box(re, im)
+    private static void itemToData(DataOutputStream dos, double re, double im) throws IOException {
+        if ((im != 0) && !Double.isNaN(re) && !Double.isNaN(im) && !Double.isInfinite(re) && !Double.isInfinite(im)) {
+            dos.writeByte(NumberType.COMPLEX.value);
+            dos.writeDouble(re);
+            dos.writeDouble(im);
+        } else if (Double.isNaN(re) || (im != 0)) {
+            dos.writeByte(NumberType.INVALID.value);
+        } else if (isInteger(re)) {
+            dos.writeByte(NumberType.INTEGER.value);
+            dos.writeLong((long) re);
+        } else {
+            dos.writeByte(NumberType.REAL.value);
+            dos.writeDouble(re);
+        }
+    }
+
     private static BaseNumber numberFromData(DataInputStream dis) throws IOException {
+        return numberFromData(dis, NumberType.fromValue(dis.readByte()));
+    }
+
+    private static BaseNumber numberFromData(DataInputStream dis, NumberType type) throws IOException {
         BaseNumber number = null;
-        NumberType type = NumberType.fromValue(dis.readByte());
 
         if (type != null) {
             switch (type) {
@@ -890,20 +1351,23 @@ public abstract class BaseNumber {
                     break;
                 }
                 case MATRIX: {
-                    byte cols = dis.readByte();
-                    byte rows = dis.readByte();
-
-                    BaseNumber[] items = new BaseNumber[cols * rows];
-
-                    for (int i = 0; i < cols * rows; i++) {
-                        BaseNumber item = numberFromData(dis);
+                    byte dimensions = dis.readByte();
+                    int cols;
+                    int rows;
+
+                    if (dimensions == MATRIX_INT_DIMENSIONS) {
+                        cols = dis.readInt();
+                        rows = dis.readInt();
+                    } else { // byte dimensions of older data
+                        cols = dimensions;
+                        rows = dis.readByte();
+                    }
 
-                        if (item != null) {
-                            items[i] = item;
-                        }
+                    if ((cols < 0) || (rows < 0) || ((long) cols * rows > Integer.MAX_VALUE)) {
+                        throw new IOException("Invalid matrix size " + cols + "x" + rows);
                     }
 
-                    number = MatrixNumber.get(cols, rows, items);
+                    number = matrixFromData(dis, cols, rows);
                     break;
                 }
                 default:
@@ -914,4 +1378,75 @@ public abstract class BaseNumber {
         return number;
     }
 
+    // items are read into primitive storage while they are boxed back to same numbers, then reading continues boxed
+    private static BaseNumber matrixFromData(DataInputStream dis, int cols, int rows) throws IOException {
+        int count = cols * rows;
+        double[] re = new double[count];
+        double[] im = null;
+        BaseNumber[] items = null;
+
+        for (int i = 0; i < count; i++) {
+            if (items != null) {
+                items[i] = numberFromData(dis);
+                continue;
+            }
+
+            NumberType type = NumberType.fromValue(dis.readByte());
+            BaseNumber item;
+
+            if (type == NumberType.INVALID) {
+                re[i] = Double.NaN;
+                continue;
+            } else if (type == NumberType.INTEGER) {
+                long value = dis.readLong();
+
+                if ((value >= -MatrixNumber.MAX_EXACT_INTEGER) && (value <= MatrixNumber.MAX_EXACT_INTEGER)) {
+                    re[i] = value;
+                    continue;
+                }
+
+                item = IntegerNumber.get(value);
+            } else if (type == NumberType.REAL) {
+                double value = dis.readDouble();
+
+                if (!isInteger(value) && !Double.isNaN(value)) {
+                    re[i] = value;
+                    continue;
+                }
+
+                item = RealNumber.get(value);
+            } else if (type == NumberType.COMPLEX) {
+                double valueRe = dis.readDouble();
+                double valueIm = dis.readDouble();
+
+                if ((valueIm != 0) && !Double.isNaN(valueRe) && !Double.isNaN(valueIm) && !Double.isInfinite(valueRe) && !Double.isInfinite(valueIm)) {
+                    if (im == null) {
+                        im = new double[count];
+                    }
+
+                    re[i] = valueRe;
+                    im[i] = valueIm;
+                    continue;
+                }
+
+                item = ComplexNumber.get(valueRe, valueIm);
+            } else {
+                item = numberFromData(dis, type);
+            }
+
+            items = new BaseNumber[count];
+
+            for (int j = 0; j < i; j++) {
+                items[j] = MatrixNumber.box(re[j], (im != null) ? im[j] : 0);
+            }
+
+            items[i] = item;
+        }
+
+        if (items != null) {
+            return MatrixNumber.get(cols, rows, items);
+        }
+
+        return (im != null) ? MatrixNumber.get(cols, rows, re, im) : MatrixNumber.get(cols, rows, re);
+    }
 }
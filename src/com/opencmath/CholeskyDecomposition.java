@@ -0,0 +1,183 @@
+package com.opencmath;
+
+/**
+ * Cholesky decomposition of real symmetric or complex Hermitian positive definite matrix in square root free form,
+ * A = LDL^H. It needs half of operations of LU decomposition and no pivoting. L has unit diagonal which is not stored,
+ * real positive D is stored on diagonal
+ */
+final class CholeskyDecomposition {
+    final int n;
+    final double[] re;
+    final double[] im; // null for real matrix
+
+    private CholeskyDecomposition(int n, double[] re, double[] im) {
+        this.n = n;
+        this.re = re;
+        this.im = im;
+    }
+
+    /**
+     * Source items are not modified, so other decomposition can be used when this one fails
+     * @param re Row-major real parts of items
+     * @param im Row-major imaginary parts of items or null for real matrix
+     * @param n Matrix size
+     * @return Decomposition or null when matrix is not Hermitian or not positive definite
+     */
+    static CholeskyDecomposition factor(double[] re, double[] im, int n) {
+        if (!isHermitian(re, im, n)) {
+            return null;
+        }
+
+        double[] lRe = new double[n * n];
+        double[] lIm = (im != null) ? new double[n * n] : null;
+        // row j of L multiplied by D, w[k] = l[j][k] * d[k]
+        double[] wRe = new double[n];
+        double[] wIm = (im != null) ? new double[n] : null;
+
+        for (int j = 0; j < n; j++) {
+            double diagonal = re[j * n + j];
+
+            for (int k = 0; k < j; k++) {
+                double d = lRe[k * n + k];
+                wRe[k] = lRe[j * n + k] * d;
+                diagonal -= lRe[j * n + k] * wRe[k];
+
+                if (lIm != null) {
+                    wIm[k] = lIm[j * n + k] * d;
+                    diagonal -= lIm[j * n + k] * wIm[k];
+                }
+            }
+
+            if (!(diagonal > 0)) { // not positive definite, also NaN
+                return null;
+            }
+
+            lRe[j * n + j] = diagonal;
+
+            // l[i][j] = (a[i][j] - sum l[i][k] * conj(w[k])) / d[j]
+            for (int i = j + 1; i < n; i++) {
+                double sumRe = re[i * n + j];
+
+                if (lIm == null) {
+                    for (int k = 0; k < j; k++) {
+                        sumRe -= lRe[i * n + k] * wRe[k];
+                    }
+
+                    lRe[i * n + j] = sumRe / diagonal;
+                    continue;
+                }
+
+                double sumIm = im[i * n + j];
+
+                for (int k = 0; k < j; k++) {
+                    sumRe -= lRe[i * n + k] * wRe[k] + lIm[i * n + k] * wIm[k];
+                    sumIm -= lIm[i * n + k] * wRe[k] - lRe[i * n + k] * wIm[k];
+                }
+
+                lRe[i * n + j] = sumRe / diagonal;
+                lIm[i * n + j] = sumIm / diagonal;
+            }
+        }
+
+        return new CholeskyDecomposition(n, lRe, lIm);
+    }
+
+    /**
+     * @return Determinant as product of D, which is product of squared diagonal of LD^(1/2). Always real
+     */
+    double determinant() {
+        double det = 1;
+
+        for (int k = 0; k < n; k++) {
+            det *= re[k * n + k];
+        }
+
+        return det;
+    }
+
+    /**
+     * @return Row-major real parts of inverse followed by imaginary parts (null for real matrix)
+     */
+    double[][] inverse() {
+        double[] inverseRe = new double[n * n];
+        double[] inverseIm = (im != null) ? new double[n * n] : null;
+
+        for (int i = 0; i < n; i++) {
+            inverseRe[i * n + i] = 1;
+        }
+
+        solve(inverseRe, inverseIm, n);
+        return new double[][]{inverseRe, inverseIm};
+    }
+
+    /**
+     * Solves AX = B in place by substitution with L, D and L^H
+     * @param bRe Row-major real parts of right side, overwritten by solution
+     * @param bIm Row-major imaginary parts of right side, must not be null for complex matrix
+     * @param count Number of right side columns
+     */
+    void solve(double[] bRe, double[] bIm, int count) {
+        for (int k = 0; k < n; k++) {
+            for (int i = k + 1; i < n; i++) {
+                subtract(bRe, bIm, i, k, re[i * n + k], (im != null) ? im[i * n + k] : 0, count);
+            }
+        }
+
+        for (int k = 0; k < n; k++) {
+            double diagonal = re[k * n + k];
+
+            for (int j = 0; j < count; j++) {
+                bRe[k * count + j] /= diagonal;
+
+                if (bIm != null) {
+                    bIm[k * count + j] /= diagonal;
+                }
+            }
+        }
+
+        // L^H[i][k] = conj(L[k][i])
+        for (int k = n - 1; k >= 0; k--) {
+            for (int i = 0; i < k; i++) {
+                subtract(bRe, bIm, i, k, re[k * n + i], (im != null) ? -im[k * n + i] : 0, count);
+            }
+        }
+    }
+
+    // row i of b -= factor * row k of b
+    private static void subtract(double[] bRe, double[] bIm, int i, int k, double factorRe, double factorIm, int count) {
+        if ((factorRe == 0) && (factorIm == 0)) {
+            return;
+        }
+
+        for (int j = 0; j < count; j++) {
+            double itemRe = bRe[k * count + j];
+            double itemIm = (bIm != null) ? bIm[k * count + j] : 0;
+            bRe[i * count + j] -= factorRe * itemRe - factorIm * itemIm;
+
+            if (bIm != null) {
+                bIm[i * count + j] -= factorRe * itemIm + factorIm * itemRe;
+            }
+        }
+    }
+
+    // exact symmetry, a[i][j] = conj(a[j][i])
+    static boolean isHermitian(double[] re, double[] im, int n) {
+        for (int i = 0; i < n; i++) {
+            if ((im != null) && (im[i * n + i] != 0)) {
+                return false;
+            }
+
+            for (int j = i + 1; j < n; j++) {
+                if (re[i * n + j] != re[j * n + i]) {
+                    return false;
+                }
+
+                if ((im != null) && (im[i * n + j] != -im[j * n + i])) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+}
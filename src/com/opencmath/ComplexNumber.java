@@ -1,7 +1,7 @@
 package com.opencmath;
 
 class ComplexNumber extends BaseNumber {
-    private static final PoolTemplate<ComplexNumber> pool = new PoolTemplate<>(100, 100000, new PoolFactory<ComplexNumber>() {
+    static final PoolTemplate<ComplexNumber> pool = new PoolTemplate<>(NumberType.COMPLEX, 100, 100000, new PoolFactory<ComplexNumber>() {
         @Override
         public ComplexNumber create() {
             return new ComplexNumber();
@@ -133,6 +133,7 @@ class ComplexNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).sub(matrixNumber.value[i]);
@@ -235,6 +236,7 @@ class ComplexNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).div(matrixNumber.value[i]);
@@ -446,6 +448,7 @@ class ComplexNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) exp;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).root(matrixNumber.value[i]);
@@ -1219,6 +1222,37 @@ class ComplexNumber extends BaseNumber {
         return IntegerNumber.get(0);
     }
 
+    @Override
+    public BaseNumber solve(BaseNumber rhs) {
+        return rhs.div(this);
+    }
+
+    @Override
+    public BaseNumber matrixPow(BaseNumber exponent) {
+        return pow(exponent);
+    }
+
+    @Override
+    public BaseNumber eigenvalues() {
+        return this;
+    }
+
+    @Override
+    public BaseNumber pinv() {
+        return inv();
+    }
+
+    @Override
+    public BaseNumber norm2() {
+        return abs();
+    }
+
+    @Override
+    public BaseNumber cond() {
+        put(this);
+        return IntegerNumber.get(1);
+    }
+
     @Override
     public BaseNumber rank() {
         put(this);
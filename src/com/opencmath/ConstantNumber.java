@@ -1,7 +1,7 @@
 package com.opencmath;
 
 class ConstantNumber extends BaseNumber {
-    private static final PoolTemplate<ConstantNumber> pool = new PoolTemplate<>(100, 100000, new PoolFactory<ConstantNumber>() {
+    static final PoolTemplate<ConstantNumber> pool = new PoolTemplate<>(NumberType.CONSTANT, 100, 100000, new PoolFactory<ConstantNumber>() {
         @Override
         public ConstantNumber create() {
             return new ConstantNumber();
@@ -149,6 +149,7 @@ class ConstantNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).sub(matrixNumber.value[i]);
@@ -239,6 +240,7 @@ class ConstantNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).div(matrixNumber.value[i]);
@@ -608,6 +610,37 @@ class ConstantNumber extends BaseNumber {
         return IntegerNumber.get(0);
     }
 
+    @Override
+    public BaseNumber solve(BaseNumber rhs) {
+        return rhs.div(this);
+    }
+
+    @Override
+    public BaseNumber matrixPow(BaseNumber exponent) {
+        return pow(exponent);
+    }
+
+    @Override
+    public BaseNumber eigenvalues() {
+        return this;
+    }
+
+    @Override
+    public BaseNumber pinv() {
+        return inv();
+    }
+
+    @Override
+    public BaseNumber norm2() {
+        return abs();
+    }
+
+    @Override
+    public BaseNumber cond() {
+        put(this);
+        return IntegerNumber.get(1);
+    }
+
     @Override
     public BaseNumber rank() {
         put(this);
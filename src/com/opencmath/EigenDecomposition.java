@@ -0,0 +1,617 @@
+package com.opencmath;
+
+import java.util.Arrays;
+
+/**
+ * Eigenvalues and eigenvectors of real or complex square matrix. Matrix is reduced to upper Hessenberg form by
+ * Householder reflections. Hessenberg form of Hermitian matrix is tridiagonal, it is scaled to real symmetric
+ * tridiagonal matrix and solved by implicit QL iteration with real eigenvalues in ascending order. Other matrices
+ * are reduced to triangular Schur form by shifted complex QR iteration, eigenvectors are computed from Schur form
+ */
+final class EigenDecomposition {
+    private static final double EPSILON = Math.ulp(1.0);
+    private static final int MAX_ITERATIONS = 30; // per eigenvalue
+
+    final int n;
+    final boolean hermitian;
+    final double[] valuesRe;
+    final double[] valuesIm; // null for Hermitian matrix
+    final double[] vectorsRe; // columns are normalized eigenvectors, null when not computed
+    final double[] vectorsIm; // null for real eigenvectors
+
+    /**
+     * Values and vectors are NaN when iteration does not converge
+     * @param re Row-major real parts of items, overwritten
+     * @param im Row-major imaginary parts of items or null for real matrix, overwritten
+     * @param n Matrix size
+     * @param vectors True when eigenvectors are computed
+     */
+    EigenDecomposition(double[] re, double[] im, int n, boolean vectors) {
+        this.n = n;
+        hermitian = CholeskyDecomposition.isHermitian(re, im, n);
+        double[] qRe = null;
+        double[] qIm = null;
+
+        if (!hermitian && (im == null)) { // complex shifts
+            im = new double[n * n];
+        }
+
+        if (vectors) {
+            qRe = new double[n * n];
+            qIm = (im != null) ? new double[n * n] : null;
+
+            for (int i = 0; i < n; i++) {
+                qRe[i * n + i] = 1;
+            }
+        }
+
+        hessenberg(re, im, n, qRe, qIm);
+
+        if (hermitian) {
+            valuesRe = new double[n];
+            valuesIm = null;
+            vectorsRe = vectors ? new double[n * n] : null;
+            vectorsIm = (vectors && (im != null)) ? new double[n * n] : null;
+            tridiagonal(re, im, qRe, qIm);
+        } else {
+            valuesRe = new double[n];
+            valuesIm = new double[n];
+            vectorsRe = vectors ? new double[n * n] : null;
+            vectorsIm = vectors ? new double[n * n] : null;
+            general(re, im, qRe, qIm);
+        }
+    }
+
+    // Householder reduction to upper Hessenberg form, A = QHQ^H, Q is accumulated when it is not null
+    private static void hessenberg(double[] re, double[] im, int n, double[] qRe, double[] qIm) {
+        double[] vRe = new double[n];
+        double[] vIm = new double[n];
+
+        for (int k = 0; k < n - 2; k++) {
+            double below = 0;
+
+            for (int i = k + 1; i < n; i++) {
+                vRe[i] = re[i * n + k];
+                vIm[i] = (im != null) ? im[i * n + k] : 0;
+
+                if (i > k + 1) {
+                    below += vRe[i] * vRe[i] + vIm[i] * vIm[i];
+                }
+            }
+
+            if (below == 0) { // column is already reduced
+                continue;
+            }
+
+            double x0Abs = Math.hypot(vRe[k + 1], vIm[k + 1]);
+            double norm = Math.sqrt(x0Abs * x0Abs + below);
+            double alphaRe = (x0Abs != 0) ? -vRe[k + 1] / x0Abs * norm : -norm;
+            double alphaIm = (x0Abs != 0) ? -vIm[k + 1] / x0Abs * norm : 0;
+            vRe[k + 1] -= alphaRe;
+            vIm[k + 1] -= alphaIm;
+            double vNorm = 0;
+
+            for (int i = k + 1; i < n; i++) {
+                vNorm += vRe[i] * vRe[i] + vIm[i] * vIm[i];
+            }
+
+            // A = HAH, H = I - 2 v v^H / |v|^2
+            for (int j = k; j < n; j++) {
+                reflectColumn(re, im, n, j, vRe, vIm, k + 1, vNorm);
+            }
+
+            for (int i = 0; i < n; i++) {
+                reflectRow(re, im, n, i, vRe, vIm, k + 1, vNorm);
+            }
+
+            if (qRe != null) {
+                for (int i = 0; i < n; i++) {
+                    reflectRow(qRe, qIm, n, i, vRe, vIm, k + 1, vNorm);
+                }
+            }
+
+            re[(k + 1) * n + k] = alphaRe;
+
+            if (im != null) {
+                im[(k + 1) * n + k] = alphaIm;
+            }
+
+            for (int i = k + 2; i < n; i++) {
+                re[i * n + k] = 0;
+
+                if (im != null) {
+                    im[i * n + k] = 0;
+                }
+            }
+        }
+    }
+
+    // column j = H * column j for rows from start
+    private static void reflectColumn(double[] re, double[] im, int n, int j, double[] vRe, double[] vIm, int start, double vNorm) {
+        double sumRe = 0;
+        double sumIm = 0;
+
+        for (int i = start; i < n; i++) {
+            double xRe = re[i * n + j];
+            double xIm = (im != null) ? im[i * n + j] : 0;
+            sumRe += vRe[i] * xRe + vIm[i] * xIm;
+            sumIm += vRe[i] * xIm - vIm[i] * xRe;
+        }
+
+        double factorRe = 2 * sumRe / vNorm;
+        double factorIm = 2 * sumIm / vNorm;
+
+        for (int i = start; i < n; i++) {
+            re[i * n + j] -= factorRe * vRe[i] - factorIm * vIm[i];
+
+            if (im != null) {
+                im[i * n + j] -= factorRe * vIm[i] + factorIm * vRe[i];
+            }
+        }
+    }
+
+    // row i = row i * H for columns from start
+    private static void reflectRow(double[] re, double[] im, int n, int i, double[] vRe, double[] vIm, int start, double vNorm) {
+        double sumRe = 0;
+        double sumIm = 0;
+
+        for (int j = start; j < n; j++) {
+            double xRe = re[i * n + j];
+            double xIm = (im != null) ? im[i * n + j] : 0;
+            sumRe += xRe * vRe[j] - xIm * vIm[j];
+            sumIm += xRe * vIm[j] + xIm * vRe[j];
+        }
+
+        double factorRe = 2 * sumRe / vNorm;
+        double factorIm = 2 * sumIm / vNorm;
+
+        // conj(v[j])
+        for (int j = start; j < n; j++) {
+            re[i * n + j] -= factorRe * vRe[j] + factorIm * vIm[j];
+
+            if (im != null) {
+                im[i * n + j] -= factorIm * vRe[j] - factorRe * vIm[j];
+            }
+        }
+    }
+
+    // Hermitian tridiagonal matrix, T = P^H H P with unit diagonal P has real off-diagonal items
+    private void tridiagonal(double[] re, double[] im, double[] qRe, double[] qIm) {
+        double[] d = valuesRe;
+        double[] e = new double[n];
+        double[] phaseRe = new double[n];
+        double[] phaseIm = new double[n];
+        double[] z = null;
+
+        if (vectorsRe != null) {
+            z = new double[n * n];
+
+            for (int i = 0; i < n; i++) {
+                z[i * n + i] = 1;
+            }
+        }
+
+        phaseRe[0] = 1;
+
+        for (int i = 0; i < n; i++) {
+            d[i] = re[i * n + i];
+
+            if (i + 1 < n) {
+                double hRe = re[(i + 1) * n + i];
+                double hIm = (im != null) ? im[(i + 1) * n + i] : 0;
+                double abs = Math.hypot(hRe, hIm);
+                e[i] = abs;
+                phaseRe[i + 1] = (abs != 0) ? (phaseRe[i] * hRe - phaseIm[i] * hIm) / abs : phaseRe[i];
+                phaseIm[i + 1] = (abs != 0) ? (phaseRe[i] * hIm + phaseIm[i] * hRe) / abs : phaseIm[i];
+            }
+        }
+
+        if (!tql(d, e, z)) {
+            Arrays.fill(valuesRe, Double.NaN);
+
+            if (vectorsRe != null) {
+                Arrays.fill(vectorsRe, Double.NaN);
+            }
+
+            if (vectorsIm != null) {
+                Arrays.fill(vectorsIm, Double.NaN);
+            }
+
+            return;
+        }
+
+        if (z == null) {
+            return;
+        }
+
+        // V = Q P Z
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                double aRe = qRe[i * n + k] * phaseRe[k] - ((qIm != null) ? qIm[i * n + k] * phaseIm[k] : 0);
+                double aIm = qRe[i * n + k] * phaseIm[k] + ((qIm != null) ? qIm[i * n + k] * phaseRe[k] : 0);
+
+                for (int j = 0; j < n; j++) {
+                    vectorsRe[i * n + j] += aRe * z[k * n + j];
+
+                    if (vectorsIm != null) {
+                        vectorsIm[i * n + j] += aIm * z[k * n + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Implicit QL iteration with Wilkinson shift of real symmetric tridiagonal matrix, eigenvalues are sorted
+     * @param d Diagonal, overwritten by eigenvalues
+     * @param e Subdiagonal in first n - 1 items, overwritten
+     * @param z Rotations are accumulated into columns of z when it is not null
+     * @return False when iteration does not converge
+     */
+    private boolean tql(double[] d, double[] e, double[] z) {
+        double shift = 0;
+        double max = 0;
+
+        for (int l = 0; l < n; l++) {
+            max = Math.max(max, Math.abs(d[l]) + Math.abs(e[l]));
+            int m = l;
+
+            while ((m < n - 1) && (Math.abs(e[m]) > EPSILON * max)) {
+                m++;
+            }
+
+            int iterations = 0;
+
+            while (m > l) {
+                if (++iterations > MAX_ITERATIONS) {
+                    return false;
+                }
+
+                double g = d[l];
+                double p = (d[l + 1] - g) / (2 * e[l]);
+                double r = Math.hypot(p, 1);
+
+                if (p < 0) {
+                    r = -r;
+                }
+
+                d[l] = e[l] / (p + r);
+                d[l + 1] = e[l] * (p + r);
+                double next = d[l + 1];
+                double h = g - d[l];
+
+                for (int i = l + 2; i < n; i++) {
+                    d[i] -= h;
+                }
+
+                shift += h;
+
+                p = d[m];
+                double c = 1;
+                double c2 = 1;
+                double c3 = 1;
+                double el1 = e[l + 1];
+                double s = 0;
+                double s2 = 0;
+
+                for (int i = m - 1; i >= l; i--) {
+                    c3 = c2;
+                    c2 = c;
+                    s2 = s;
+                    g = c * e[i];
+                    h = c * p;
+                    r = Math.hypot(p, e[i]);
+                    e[i + 1] = s * r;
+                    s = e[i] / r;
+                    c = p / r;
+                    p = c * d[i] - s * g;
+                    d[i + 1] = h + s * (c * g + s * d[i]);
+
+                    if (z != null) {
+                        for (int k = 0; k < n; k++) {
+                            h = z[k * n + i + 1];
+                            z[k * n + i + 1] = s * z[k * n + i] + c * h;
+                            z[k * n + i] = c * z[k * n + i] - s * h;
+                        }
+                    }
+                }
+
+                p = -s * s2 * c3 * el1 * e[l] / next;
+                e[l] = s * p;
+                d[l] = c * p;
+
+                if (Math.abs(e[l]) <= EPSILON * max) {
+                    break;
+                }
+            }
+
+            d[l] += shift;
+            e[l] = 0;
+        }
+
+        // selection sort keeps vectors together with values
+        for (int i = 0; i < n - 1; i++) {
+            int k = i;
+
+            for (int j = i + 1; j < n; j++) {
+                if (d[j] < d[k]) {
+                    k = j;
+                }
+            }
+
+            if (k != i) {
+                double tmp = d[k];
+                d[k] = d[i];
+                d[i] = tmp;
+
+                if (z != null) {
+                    for (int j = 0; j < n; j++) {
+                        tmp = z[j * n + i];
+                        z[j * n + i] = z[j * n + k];
+                        z[j * n + k] = tmp;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    // Schur form of Hessenberg matrix by shifted QR iteration, Z is accumulated into q when it is not null
+    private void general(double[] re, double[] im, double[] qRe, double[] qIm) {
+        boolean vectors = (qRe != null);
+        double norm = 0;
+
+        for (int i = 0; i < re.length; i++) {
+            norm = Math.max(norm, Math.hypot(re[i], im[i]));
+        }
+
+        double[] cosines = new double[n];
+        double[] sinesRe = new double[n];
+        double[] sinesIm = new double[n];
+        int hi = n - 1;
+        int iterations = 0;
+
+        while (hi > 0) {
+            int lo = hi;
+
+            // deflation on negligible subdiagonal item
+            while (lo > 0) {
+                double scale = abs(re, im, lo - 1, lo - 1) + abs(re, im, lo, lo);
+
+                if (abs(re, im, lo, lo - 1) <= EPSILON * ((scale != 0) ? scale : norm)) {
+                    re[lo * n + lo - 1] = 0;
+                    im[lo * n + lo - 1] = 0;
+                    break;
+                }
+
+                lo--;
+            }
+
+            if (lo == hi) {
+                hi--;
+                iterations = 0;
+                continue;
+            }
+
+            if (++iterations > MAX_ITERATIONS) {
+                Arrays.fill(valuesRe, Double.NaN);
+                Arrays.fill(valuesIm, Double.NaN);
+
+                if (vectors) {
+                    Arrays.fill(vectorsRe, Double.NaN);
+                    Arrays.fill(vectorsIm, Double.NaN);
+                }
+
+                return;
+            }
+
+            double[] shift = shift(re, im, hi, iterations);
+            int colEnd = vectors ? n : hi + 1;
+            int rowStart = vectors ? 0 : lo;
+
+            for (int k = lo; k <= hi; k++) {
+                re[k * n + k] -= shift[0];
+                im[k * n + k] -= shift[1];
+            }
+
+            // H - shift = QR by Givens rotations, G [a; b] = [r; 0]
+            for (int k = lo; k < hi; k++) {
+                double aRe = re[k * n + k];
+                double aIm = im[k * n + k];
+                double bRe = re[(k + 1) * n + k];
+                double bIm = im[(k + 1) * n + k];
+                double aAbs = Math.hypot(aRe, aIm);
+                double r = Math.hypot(aAbs, Math.hypot(bRe, bIm));
+                double phaseRe = (aAbs != 0) ? aRe / aAbs : 1;
+                double phaseIm = (aAbs != 0) ? aIm / aAbs : 0;
+
+                if (r == 0) {
+                    cosines[k] = 1;
+                    sinesRe[k] = 0;
+                    sinesIm[k] = 0;
+                    continue;
+                }
+
+                // c = |a| / r, s = phase(a) conj(b) / r
+                cosines[k] = aAbs / r;
+                sinesRe[k] = (phaseRe * bRe + phaseIm * bIm) / r;
+                sinesIm[k] = (phaseIm * bRe - phaseRe * bIm) / r;
+
+                rotateRows(re, im, k, k, colEnd, cosines[k], sinesRe[k], sinesIm[k]);
+            }
+
+            // H = RQ + shift
+            for (int k = lo; k < hi; k++) {
+                rotateColumns(re, im, k, rowStart, k + 2, cosines[k], sinesRe[k], sinesIm[k]);
+
+                if (vectors) {
+                    rotateColumns(qRe, qIm, k, 0, n, cosines[k], sinesRe[k], sinesIm[k]);
+                }
+            }
+
+            for (int k = lo; k <= hi; k++) {
+                re[k * n + k] += shift[0];
+                im[k * n + k] += shift[1];
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            valuesRe[i] = re[i * n + i];
+            valuesIm[i] = im[i * n + i];
+        }
+
+        if (vectors) {
+            schurVectors(re, im, qRe, qIm, norm);
+        }
+    }
+
+    // Wilkinson shift, eigenvalue of trailing 2x2 block closer to its last item, exceptional shift breaks cycles
+    private double[] shift(double[] re, double[] im, int hi, int iterations) {
+        double dRe = re[hi * n + hi];
+        double dIm = im[hi * n + hi];
+
+        if (iterations % 10 == 0) {
+            return new double[]{dRe + abs(re, im, hi, hi - 1), dIm};
+        }
+
+        double aRe = re[(hi - 1) * n + hi - 1];
+        double aIm = im[(hi - 1) * n + hi - 1];
+        double bRe = re[(hi - 1) * n + hi];
+        double bIm = im[(hi - 1) * n + hi];
+        double cRe = re[hi * n + hi - 1];
+        double cIm = im[hi * n + hi - 1];
+        // p = (a - d) / 2, eigenvalues are d + p +- sqrt(p^2 + bc)
+        double pRe = (aRe - dRe) / 2;
+        double pIm = (aIm - dIm) / 2;
+        double bcRe = bRe * cRe - bIm * cIm;
+        double bcIm = bRe * cIm + bIm * cRe;
+        double[] root = sqrt(pRe * pRe - pIm * pIm + bcRe, 2 * pRe * pIm + bcIm);
+
+        // d - bc / (p +- root) with larger denominator
+        double plusRe = pRe + root[0];
+        double plusIm = pIm + root[1];
+        double minusRe = pRe - root[0];
+        double minusIm = pIm - root[1];
+
+        if (Math.hypot(minusRe, minusIm) > Math.hypot(plusRe, plusIm)) {
+            plusRe = minusRe;
+            plusIm = minusIm;
+        }
+
+        double divisor = plusRe * plusRe + plusIm * plusIm;
+
+        if (divisor == 0) {
+            return new double[]{dRe, dIm};
+        }
+
+        return new double[]{dRe - (bcRe * plusRe + bcIm * plusIm) / divisor, dIm - (bcIm * plusRe - bcRe * plusIm) / divisor};
+    }
+
+    // eigenvectors of upper triangular T are solved by back substitution and transformed by Z
+    private void schurVectors(double[] re, double[] im, double[] qRe, double[] qIm, double norm) {
+        double[] yRe = new double[n];
+        double[] yIm = new double[n];
+        double small = EPSILON * ((norm != 0) ? norm : 1);
+
+        for (int k = n - 1; k >= 0; k--) {
+            double lambdaRe = re[k * n + k];
+            double lambdaIm = im[k * n + k];
+            yRe[k] = 1;
+            yIm[k] = 0;
+
+            for (int i = k - 1; i >= 0; i--) {
+                double sumRe = 0;
+                double sumIm = 0;
+
+                for (int j = i + 1; j <= k; j++) {
+                    sumRe += re[i * n + j] * yRe[j] - im[i * n + j] * yIm[j];
+                    sumIm += re[i * n + j] * yIm[j] + im[i * n + j] * yRe[j];
+                }
+
+                double denominatorRe = re[i * n + i] - lambdaRe;
+                double denominatorIm = im[i * n + i] - lambdaIm;
+
+                if (Math.hypot(denominatorRe, denominatorIm) < small) { // repeated eigenvalue
+                    denominatorRe = small;
+                    denominatorIm = 0;
+                }
+
+                double divisor = denominatorRe * denominatorRe + denominatorIm * denominatorIm;
+                yRe[i] = -(sumRe * denominatorRe + sumIm * denominatorIm) / divisor;
+                yIm[i] = -(sumIm * denominatorRe - sumRe * denominatorIm) / divisor;
+            }
+
+            double length = 0;
+
+            for (int i = 0; i < n; i++) {
+                double xRe = 0;
+                double xIm = 0;
+
+                for (int j = 0; j <= k; j++) {
+                    xRe += qRe[i * n + j] * yRe[j] - qIm[i * n + j] * yIm[j];
+                    xIm += qRe[i * n + j] * yIm[j] + qIm[i * n + j] * yRe[j];
+                }
+
+                vectorsRe[i * n + k] = xRe;
+                vectorsIm[i * n + k] = xIm;
+                length += xRe * xRe + xIm * xIm;
+            }
+
+            length = Math.sqrt(length);
+
+            for (int i = 0; i < n; i++) {
+                vectorsRe[i * n + k] /= length;
+                vectorsIm[i * n + k] /= length;
+            }
+        }
+    }
+
+    // rows k and k + 1 = G * rows, G = [c s; -conj(s) c]
+    private void rotateRows(double[] re, double[] im, int k, int colStart, int colEnd, double c, double sRe, double sIm) {
+        for (int j = colStart; j < colEnd; j++) {
+            double xRe = re[k * n + j];
+            double xIm = im[k * n + j];
+            double yRe = re[(k + 1) * n + j];
+            double yIm = im[(k + 1) * n + j];
+            re[k * n + j] = c * xRe + sRe * yRe - sIm * yIm;
+            im[k * n + j] = c * xIm + sRe * yIm + sIm * yRe;
+            re[(k + 1) * n + j] = -(sRe * xRe + sIm * xIm) + c * yRe;
+            im[(k + 1) * n + j] = -(sRe * xIm - sIm * xRe) + c * yIm;
+        }
+    }
+
+    // columns k and k + 1 = columns * G^H, G^H = [c -s; conj(s) c]
+    private void rotateColumns(double[] re, double[] im, int k, int rowStart, int rowEnd, double c, double sRe, double sIm) {
+        for (int i = rowStart; i < Math.min(rowEnd, n); i++) {
+            double xRe = re[i * n + k];
+            double xIm = im[i * n + k];
+            double yRe = re[i * n + k + 1];
+            double yIm = im[i * n + k + 1];
+            re[i * n + k] = c * xRe + sRe * yRe + sIm * yIm;
+            im[i * n + k] = c * xIm + sRe * yIm - sIm * yRe;
+            re[i * n + k + 1] = -(sRe * xRe - sIm * xIm) + c * yRe;
+            im[i * n + k + 1] = -(sRe * xIm + sIm * xRe) + c * yIm;
+        }
+    }
+
+    private double abs(double[] re, double[] im, int i, int j) {
+        return Math.hypot(re[i * n + j], im[i * n + j]);
+    }
+
+    // principal square root
+    private static double[] sqrt(double re, double im) {
+        double abs = Math.hypot(re, im);
+        double t = Math.sqrt((Math.abs(re) + abs) / 2);
+
+        if (t == 0) {
+            return new double[]{0, 0};
+        }
+
+        if (re >= 0) {
+            return new double[]{t, im / (2 * t)};
+        }
+
+        return new double[]{Math.abs(im) / (2 * t), (im >= 0) ? t : -t};
+    }
+}
@@ -0,0 +1,58 @@
+package com.opencmath;
+
+/**
+ * Eigendecomposition of square MATRIX with numeric items, AV = V diag(values). Hermitian matrix has real eigenvalues
+ * in ascending order and orthonormal eigenvectors, other matrices have complex eigenvalues in order of Schur form.
+ * Values and vectors are NaN when QR iteration does not converge
+ * <pre>
+ * EigenFactorization a = BaseNumber.factorizeEigen(matrix);
+ * BaseNumber values = a.getValues();
+ * BaseNumber vectors = a.getVectors();
+ * </pre>
+ * @see BaseNumber#factorizeEigen(BaseNumber)
+ */
+public final class EigenFactorization {
+    private final EigenDecomposition eigen;
+
+    // matrix must be square with numeric items, it is put back into pool
+    EigenFactorization(MatrixNumber matrix, boolean vectors) {
+        eigen = new EigenDecomposition(matrix.realParts(), matrix.imagParts(), matrix.cols, vectors);
+        BaseNumber.put(matrix);
+    }
+
+    EigenFactorization(MatrixNumber matrix) {
+        this(matrix, true);
+    }
+
+    /**
+     * @return Size of factorized matrix
+     */
+    public int getSize() {
+        return eigen.n;
+    }
+
+    /**
+     * @return True for real symmetric or complex Hermitian matrix
+     */
+    public boolean isHermitian() {
+        return eigen.hermitian;
+    }
+
+    /**
+     * @return Column MATRIX of eigenvalues, scalar for 1x1 matrix
+     */
+    public BaseNumber getValues() {
+        return matrix(1, eigen.valuesRe, eigen.valuesIm);
+    }
+
+    /**
+     * @return MATRIX with normalized eigenvector of i-th eigenvalue in column i, scalar for 1x1 matrix
+     */
+    public BaseNumber getVectors() {
+        return matrix(eigen.n, eigen.vectorsRe, eigen.vectorsIm);
+    }
+
+    private BaseNumber matrix(int cols, double[] re, double[] im) {
+        return BaseNumber.simplify((im != null) ? MatrixNumber.get(cols, eigen.n, re.clone(), im.clone()) : MatrixNumber.get(cols, eigen.n, re.clone()));
+    }
+}
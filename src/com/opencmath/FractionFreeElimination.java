@@ -0,0 +1,440 @@
+package com.opencmath;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * Bareiss fraction-free elimination of integer matrices. All intermediate values are minors of original matrix,
+ * so divisions are exact and result has no rounding error. Calculation continues with BigInteger on long overflow
+ */
+final class FractionFreeElimination {
+
+    private FractionFreeElimination() {
+    }
+
+    /**
+     * @param items Row-major items of square matrix, overwritten
+     * @param n Matrix size
+     * @return INTEGER determinant, REAL when it does not fit into long
+     */
+    static BaseNumber determinant(long[] items, int n) {
+        long[] copy = items.clone();
+
+        try {
+            return IntegerNumber.get(determinantLong(items, n));
+        } catch (ArithmeticException e) {
+            BigInteger det = determinantBig(toBig(copy), n);
+
+            if (det.bitLength() < 64) {
+                return IntegerNumber.get(det.longValue());
+            }
+
+            return RealNumber.get(det.doubleValue());
+        }
+    }
+
+    /**
+     * @param items Row-major items of matrix, overwritten
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @return Rank of matrix
+     */
+    static int rank(long[] items, int rows, int cols) {
+        long[] copy = items.clone();
+
+        try {
+            return rankLong(items, rows, cols);
+        } catch (ArithmeticException e) {
+            return rankBig(toBig(copy), rows, cols);
+        }
+    }
+
+    /**
+     * Inverse as adjugate divided by determinant, item is INTEGER when division is exact
+     * @param items Row-major items of square matrix
+     * @param n Matrix size
+     * @return Row-major items of inverse, NaN items for singular matrix
+     */
+    static double[] inverse(long[] items, int n) {
+        double[] result = new double[n * n];
+
+        try {
+            long[] a = augment(items, n);
+            long det = gaussJordan(a, n);
+
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    long adjugate = a[i * 2 * n + n + j];
+
+                    if (det == 0) {
+                        result[i * n + j] = Double.NaN;
+                    } else if (adjugate % det == 0) {
+                        result[i * n + j] = adjugate / det;
+                    } else {
+                        result[i * n + j] = adjugate / (double) det;
+                    }
+                }
+            }
+        } catch (ArithmeticException e) {
+            BigInteger[] a = toBig(augment(items, n));
+            BigInteger det = gaussJordanBig(a, n);
+
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    BigInteger adjugate = a[i * 2 * n + n + j];
+
+                    if (det.signum() == 0) {
+                        result[i * n + j] = Double.NaN;
+                    } else {
+                        result[i * n + j] = new BigDecimal(adjugate).divide(new BigDecimal(det), MathContext.DECIMAL64).doubleValue();
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param items Row-major items of square matrix
+     * @param n Matrix size
+     * @return Row-major INTEGER items of adjugate (REAL when item does not fit into long), null for singular matrix
+     */
+    static BaseNumber[] adjugate(long[] items, int n) {
+        BaseNumber[] result = new BaseNumber[n * n];
+
+        try {
+            long[] a = augment(items, n);
+
+            if (gaussJordan(a, n) == 0) {
+                return null;
+            }
+
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    result[i * n + j] = IntegerNumber.get(a[i * 2 * n + n + j]);
+                }
+            }
+        } catch (ArithmeticException e) {
+            BigInteger[] a = toBig(augment(items, n));
+
+            if (gaussJordanBig(a, n).signum() == 0) {
+                return null;
+            }
+
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    BigInteger adjugate = a[i * 2 * n + n + j];
+                    result[i * n + j] = (adjugate.bitLength() < 64) ? IntegerNumber.get(adjugate.longValue()) : RealNumber.get(adjugate.doubleValue());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    // matrix with identity on right side
+    static long[] augment(long[] items, int n) {
+        long[] a = new long[n * 2 * n];
+
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(items, i * n, a, i * 2 * n, n);
+            a[i * 2 * n + n + i] = 1;
+        }
+
+        return a;
+    }
+
+    //
+    // [A | I] -> [det | adj(A)]
+    //
+    // returns determinant, 0 for singular matrix
+    static long gaussJordan(long[] a, int n) {
+        int cols = 2 * n;
+        long previous = 1;
+        boolean negative = false;
+
+        for (int k = 0; k < n; k++) {
+            int pivot = k;
+
+            while ((pivot < n) && (a[pivot * cols + k] == 0)) {
+                pivot++;
+            }
+
+            if (pivot == n) {
+                return 0;
+            }
+
+            if (pivot != k) {
+                swapRows(a, k, pivot, cols);
+                negative = !negative;
+            }
+
+            long diagonal = a[k * cols + k];
+
+            for (int i = 0; i < n; i++) {
+                if (i == k) {
+                    continue;
+                }
+
+                long factor = a[i * cols + k];
+
+                for (int j = 0; j < cols; j++) {
+                    if (j != k) {
+                        long value = IntegerNumber.subChecked(IntegerNumber.mulChecked(a[i * cols + j], diagonal), IntegerNumber.mulChecked(factor, a[k * cols + j]));
+                        a[i * cols + j] = value / previous;
+                    }
+                }
+
+                a[i * cols + k] = 0;
+            }
+
+            previous = diagonal;
+        }
+
+        if (negative) { // right side is determinant of permuted matrix times inverse
+            for (int i = 0; i < a.length; i++) {
+                a[i] = IntegerNumber.subChecked(0, a[i]);
+            }
+
+            return IntegerNumber.subChecked(0, previous);
+        }
+
+        return previous;
+    }
+
+    private static BigInteger gaussJordanBig(BigInteger[] a, int n) {
+        int cols = 2 * n;
+        BigInteger previous = BigInteger.ONE;
+        boolean negative = false;
+
+        for (int k = 0; k < n; k++) {
+            int pivot = k;
+
+            while ((pivot < n) && (a[pivot * cols + k].signum() == 0)) {
+                pivot++;
+            }
+
+            if (pivot == n) {
+                return BigInteger.ZERO;
+            }
+
+            if (pivot != k) {
+                swapRows(a, k, pivot, cols);
+                negative = !negative;
+            }
+
+            BigInteger diagonal = a[k * cols + k];
+
+            for (int i = 0; i < n; i++) {
+                if (i == k) {
+                    continue;
+                }
+
+                BigInteger factor = a[i * cols + k];
+
+                for (int j = 0; j < cols; j++) {
+                    if (j != k) {
+                        a[i * cols + j] = a[i * cols + j].multiply(diagonal).subtract(factor.multiply(a[k * cols + j])).divide(previous);
+                    }
+                }
+
+                a[i * cols + k] = BigInteger.ZERO;
+            }
+
+            previous = diagonal;
+        }
+
+        if (negative) {
+            for (int i = 0; i < a.length; i++) {
+                a[i] = a[i].negate();
+            }
+
+            return previous.negate();
+        }
+
+        return previous;
+    }
+
+    private static long determinantLong(long[] a, int n) {
+        long previous = 1;
+        boolean negative = false;
+
+        for (int k = 0; k < n - 1; k++) {
+            if (a[k * n + k] == 0) {
+                int pivot = k + 1;
+
+                while ((pivot < n) && (a[pivot * n + k] == 0)) {
+                    pivot++;
+                }
+
+                if (pivot == n) {
+                    return 0;
+                }
+
+                swapRows(a, k, pivot, n);
+                negative = !negative;
+            }
+
+            long diagonal = a[k * n + k];
+
+            for (int i = k + 1; i < n; i++) {
+                long factor = a[i * n + k];
+
+                for (int j = k + 1; j < n; j++) {
+                    long value = IntegerNumber.subChecked(IntegerNumber.mulChecked(a[i * n + j], diagonal), IntegerNumber.mulChecked(factor, a[k * n + j]));
+                    a[i * n + j] = value / previous;
+                }
+            }
+
+            previous = diagonal;
+        }
+
+        long det = a[n * n - 1];
+        return negative ? IntegerNumber.subChecked(0, det) : det;
+    }
+
+    private static BigInteger determinantBig(BigInteger[] a, int n) {
+        BigInteger previous = BigInteger.ONE;
+        boolean negative = false;
+
+        for (int k = 0; k < n - 1; k++) {
+            if (a[k * n + k].signum() == 0) {
+                int pivot = k + 1;
+
+                while ((pivot < n) && (a[pivot * n + k].signum() == 0)) {
+                    pivot++;
+                }
+
+                if (pivot == n) {
+                    return BigInteger.ZERO;
+                }
+
+                swapRows(a, k, pivot, n);
+                negative = !negative;
+            }
+
+            BigInteger diagonal = a[k * n + k];
+
+            for (int i = k + 1; i < n; i++) {
+                BigInteger factor = a[i * n + k];
+
+                for (int j = k + 1; j < n; j++) {
+                    a[i * n + j] = a[i * n + j].multiply(diagonal).subtract(factor.multiply(a[k * n + j])).divide(previous);
+                }
+            }
+
+            previous = diagonal;
+        }
+
+        BigInteger det = a[n * n - 1];
+        return negative ? det.negate() : det;
+    }
+
+    // columns without pivot are skipped, so every pivot starts new step of row echelon form
+    private static int rankLong(long[] a, int rows, int cols) {
+        long previous = 1;
+        int row = 0;
+
+        for (int col = 0; (col < cols) && (row < rows); col++) {
+            int pivot = row;
+
+            while ((pivot < rows) && (a[pivot * cols + col] == 0)) {
+                pivot++;
+            }
+
+            if (pivot == rows) {
+                continue;
+            }
+
+            swapRows(a, row, pivot, cols);
+            long diagonal = a[row * cols + col];
+
+            for (int i = row + 1; i < rows; i++) {
+                long factor = a[i * cols + col];
+
+                for (int j = col + 1; j < cols; j++) {
+                    long value = IntegerNumber.subChecked(IntegerNumber.mulChecked(a[i * cols + j], diagonal), IntegerNumber.mulChecked(factor, a[row * cols + j]));
+                    a[i * cols + j] = value / previous;
+                }
+
+                a[i * cols + col] = 0;
+            }
+
+            previous = diagonal;
+            row++;
+        }
+
+        return row;
+    }
+
+    private static int rankBig(BigInteger[] a, int rows, int cols) {
+        BigInteger previous = BigInteger.ONE;
+        int row = 0;
+
+        for (int col = 0; (col < cols) && (row < rows); col++) {
+            int pivot = row;
+
+            while ((pivot < rows) && (a[pivot * cols + col].signum() == 0)) {
+                pivot++;
+            }
+
+            if (pivot == rows) {
+                continue;
+            }
+
+            swapRows(a, row, pivot, cols);
+            BigInteger diagonal = a[row * cols + col];
+
+            for (int i = row + 1; i < rows; i++) {
+                BigInteger factor = a[i * cols + col];
+
+                for (int j = col + 1; j < cols; j++) {
+                    a[i * cols + j] = a[i * cols + j].multiply(diagonal).subtract(factor.multiply(a[row * cols + j])).divide(previous);
+                }
+
+                a[i * cols + col] = BigInteger.ZERO;
+            }
+
+            previous = diagonal;
+            row++;
+        }
+
+        return row;
+    }
+
+    private static BigInteger[] toBig(long[] items) {
+        BigInteger[] result = new BigInteger[items.length];
+
+        for (int i = 0; i < items.length; i++) {
+            result[i] = BigInteger.valueOf(items[i]);
+        }
+
+        return result;
+    }
+
+    private static void swapRows(long[] a, int from, int to, int cols) {
+        if (from == to) {
+            return;
+        }
+
+        for (int j = 0; j < cols; j++) {
+            long tmp = a[from * cols + j];
+            a[from * cols + j] = a[to * cols + j];
+            a[to * cols + j] = tmp;
+        }
+    }
+
+    private static void swapRows(Object[] a, int from, int to, int cols) {
+        if (from == to) {
+            return;
+        }
+
+        for (int j = 0; j < cols; j++) {
+            Object tmp = a[from * cols + j];
+            a[from * cols + j] = a[to * cols + j];
+            a[to * cols + j] = tmp;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.opencmath;
 
 class IntegerNumber extends BaseNumber {
-    private static final PoolTemplate<IntegerNumber> pool = new PoolTemplate<>(100, 100000, new PoolFactory<IntegerNumber>() {
+    static final PoolTemplate<IntegerNumber> pool = new PoolTemplate<>(NumberType.INTEGER, 100, 100000, new PoolFactory<IntegerNumber>() {
         @Override
         public IntegerNumber create() {
             return new IntegerNumber();
@@ -150,6 +150,7 @@ class IntegerNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).sub(matrixNumber.value[i]);
@@ -259,6 +260,7 @@ class IntegerNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).div(matrixNumber.value[i]);
@@ -384,6 +386,7 @@ class IntegerNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).pow(matrixNumber.value[i]);
@@ -917,6 +920,46 @@ class IntegerNumber extends BaseNumber {
         return this;
     }
 
+    @Override
+    public BaseNumber solve(BaseNumber rhs) {
+        return rhs.div(this);
+    }
+
+    @Override
+    public BaseNumber matrixPow(BaseNumber exponent) {
+        return pow(exponent);
+    }
+
+    @Override
+    public BaseNumber eigenvalues() {
+        return this;
+    }
+
+    @Override
+    public BaseNumber pinv() {
+        if (value == 0) {
+            return this;
+        }
+
+        return inv();
+    }
+
+    @Override
+    public BaseNumber norm2() {
+        return abs();
+    }
+
+    @Override
+    public BaseNumber cond() {
+        if (value == 0) {
+            put(this);
+            return RealNumber.get(Double.POSITIVE_INFINITY);
+        }
+
+        value = 1;
+        return this;
+    }
+
     @Override
     public BaseNumber rank() {
         if (value != 0) {
@@ -958,7 +1001,7 @@ class IntegerNumber extends BaseNumber {
         return simplify(realNumber);
     }
 
-    private static long addChecked(final long s, final long d) throws ArithmeticException {
+    static long addChecked(final long s, final long d) throws ArithmeticException {
         long r = s + d;
         if (((s ^ r) & (d ^ r)) < 0) {
             throw new ArithmeticException("Long overflow add(" + s + ", " + d + ")");
@@ -966,7 +1009,7 @@ class IntegerNumber extends BaseNumber {
         return r;
     }
 
-    private static long subChecked(final long s, final long d) throws ArithmeticException {
+    static long subChecked(final long s, final long d) throws ArithmeticException {
         long r = s - d;
         if (((s ^ d) & (s ^ r)) < 0) {
             throw new ArithmeticException("Long underflow sub(" + s + ", " + d + ")");
@@ -974,7 +1017,7 @@ class IntegerNumber extends BaseNumber {
         return r;
     }
 
-    private static long mulChecked(final long s, final long d) {
+    static long mulChecked(final long s, final long d) {
         long r = s * d;
         long ax = Math.abs(s);
         long ay = Math.abs(d);
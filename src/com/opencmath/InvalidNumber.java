@@ -1,7 +1,7 @@
 package com.opencmath;
 
 class InvalidNumber extends BaseNumber {
-    private static final PoolTemplate<InvalidNumber> pool = new PoolTemplate<>(100, 100000, new PoolFactory<InvalidNumber>() {
+    static final PoolTemplate<InvalidNumber> pool = new PoolTemplate<>(NumberType.INVALID, 100, 100000, new PoolFactory<InvalidNumber>() {
         @Override
         public InvalidNumber create() {
             return new InvalidNumber();
@@ -298,6 +298,38 @@ class InvalidNumber extends BaseNumber {
         return this;
     }
 
+    @Override
+    public BaseNumber solve(BaseNumber rhs) {
+        put(rhs);
+        return this;
+    }
+
+    @Override
+    public BaseNumber matrixPow(BaseNumber exponent) {
+        put(exponent);
+        return this;
+    }
+
+    @Override
+    public BaseNumber eigenvalues() {
+        return this;
+    }
+
+    @Override
+    public BaseNumber pinv() {
+        return this;
+    }
+
+    @Override
+    public BaseNumber norm2() {
+        return this;
+    }
+
+    @Override
+    public BaseNumber cond() {
+        return this;
+    }
+
     @Override
     public BaseNumber rank() {
         return this;
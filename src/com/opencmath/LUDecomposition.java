@@ -0,0 +1,278 @@
+package com.opencmath;
+
+/**
+ * LU decomposition with partial pivoting of real or complex square matrix, PA = LU. Factors are stored
+ * in place of source items, L has unit diagonal which is not stored
+ */
+final class LUDecomposition {
+    final int n;
+    final double[] re;
+    final double[] im; // null for real matrix
+    final int[] pivots;
+    private boolean negative;
+    private boolean singular;
+
+    /**
+     * @param re Row-major real parts of items, overwritten by factors
+     * @param im Row-major imaginary parts of items or null for real matrix, overwritten by factors
+     * @param n Matrix size
+     */
+    LUDecomposition(double[] re, double[] im, int n) {
+        this.n = n;
+        this.re = re;
+        this.im = im;
+        pivots = new int[n];
+        negative = false;
+        singular = false;
+
+        if (im == null) {
+            factorReal();
+        } else {
+            factorComplex();
+        }
+    }
+
+    boolean isSingular() {
+        return singular;
+    }
+
+    /**
+     * @return Determinant as product of U diagonal
+     */
+    BaseNumber determinant() {
+        double[] det = determinantParts();
+        return MatrixNumber.box(det[0], det[1]);
+    }
+
+    // real and imaginary part of determinant
+    double[] determinantParts() {
+        if (singular) {
+            return new double[]{0, 0};
+        }
+
+        double detRe = negative ? -1 : 1;
+        double detIm = 0;
+
+        for (int k = 0; k < n; k++) {
+            double diagonalRe = re[k * n + k];
+            double diagonalIm = (im != null) ? im[k * n + k] : 0;
+            double tmp = detRe * diagonalRe - detIm * diagonalIm;
+            detIm = detRe * diagonalIm + detIm * diagonalRe;
+            detRe = tmp;
+        }
+
+        return new double[]{detRe, detIm};
+    }
+
+    /**
+     * Inverse by solving identity right side with factors, valid only for non-singular matrix
+     * @return Row-major real parts of inverse followed by imaginary parts (null for real matrix)
+     */
+    double[][] inverse() {
+        double[] inverseRe = new double[n * n];
+        double[] inverseIm = (im != null) ? new double[n * n] : null;
+
+        for (int i = 0; i < n; i++) {
+            inverseRe[i * n + i] = 1;
+        }
+
+        solve(inverseRe, inverseIm, n);
+        return new double[][]{inverseRe, inverseIm};
+    }
+
+    /**
+     * Solves AX = B in place, valid only for non-singular matrix
+     * @param bRe Row-major real parts of right side, overwritten by solution
+     * @param bIm Row-major imaginary parts of right side, must not be null for complex matrix
+     * @param count Number of right side columns
+     */
+    void solve(double[] bRe, double[] bIm, int count) {
+        for (int k = 0; k < n; k++) {
+            swapRows(bRe, k, pivots[k], count);
+
+            if (bIm != null) {
+                swapRows(bIm, k, pivots[k], count);
+            }
+        }
+
+        if (im == null) {
+            solveReal(bRe, count);
+
+            if (bIm != null) {
+                solveReal(bIm, count);
+            }
+        } else {
+            solveComplex(bRe, bIm, count);
+        }
+    }
+
+    private void solveReal(double[] b, int count) {
+        // forward substitution with unit L
+        for (int k = 0; k < n; k++) {
+            for (int i = k + 1; i < n; i++) {
+                double factor = re[i * n + k];
+
+                if (factor != 0) {
+                    for (int j = 0; j < count; j++) {
+                        b[i * count + j] -= factor * b[k * count + j];
+                    }
+                }
+            }
+        }
+
+        // back substitution with U
+        for (int k = n - 1; k >= 0; k--) {
+            double diagonal = re[k * n + k];
+
+            for (int j = 0; j < count; j++) {
+                b[k * count + j] /= diagonal;
+            }
+
+            for (int i = 0; i < k; i++) {
+                double factor = re[i * n + k];
+
+                if (factor != 0) {
+                    for (int j = 0; j < count; j++) {
+                        b[i * count + j] -= factor * b[k * count + j];
+                    }
+                }
+            }
+        }
+    }
+
+    private void solveComplex(double[] bRe, double[] bIm, int count) {
+        for (int k = 0; k < n; k++) {
+            for (int i = k + 1; i < n; i++) {
+                double factorRe = re[i * n + k];
+                double factorIm = im[i * n + k];
+
+                for (int j = 0; j < count; j++) {
+                    bRe[i * count + j] -= factorRe * bRe[k * count + j] - factorIm * bIm[k * count + j];
+                    bIm[i * count + j] -= factorRe * bIm[k * count + j] + factorIm * bRe[k * count + j];
+                }
+            }
+        }
+
+        for (int k = n - 1; k >= 0; k--) {
+            double max = abs2(re[k * n + k], im[k * n + k]);
+            double inverseRe = re[k * n + k] / max;
+            double inverseIm = -im[k * n + k] / max;
+
+            for (int j = 0; j < count; j++) {
+                double tmp = bRe[k * count + j] * inverseRe - bIm[k * count + j] * inverseIm;
+                bIm[k * count + j] = bRe[k * count + j] * inverseIm + bIm[k * count + j] * inverseRe;
+                bRe[k * count + j] = tmp;
+            }
+
+            for (int i = 0; i < k; i++) {
+                double factorRe = re[i * n + k];
+                double factorIm = im[i * n + k];
+
+                for (int j = 0; j < count; j++) {
+                    bRe[i * count + j] -= factorRe * bRe[k * count + j] - factorIm * bIm[k * count + j];
+                    bIm[i * count + j] -= factorRe * bIm[k * count + j] + factorIm * bRe[k * count + j];
+                }
+            }
+        }
+    }
+
+    private void factorReal() {
+        for (int k = 0; k < n; k++) {
+            int pivot = k;
+
+            for (int i = k + 1; i < n; i++) {
+                if (Math.abs(re[i * n + k]) > Math.abs(re[pivot * n + k])) {
+                    pivot = i;
+                }
+            }
+
+            pivots[k] = pivot;
+
+            if (re[pivot * n + k] == 0) {
+                singular = true;
+                continue;
+            }
+
+            if (pivot != k) {
+                swapRows(re, k, pivot, n);
+                negative = !negative;
+            }
+
+            double diagonal = re[k * n + k];
+
+            for (int i = k + 1; i < n; i++) {
+                double factor = re[i * n + k] / diagonal;
+                re[i * n + k] = factor;
+
+                if (factor != 0) {
+                    for (int j = k + 1; j < n; j++) {
+                        re[i * n + j] -= factor * re[k * n + j];
+                    }
+                }
+            }
+        }
+    }
+
+    private void factorComplex() {
+        for (int k = 0; k < n; k++) {
+            int pivot = k;
+            double max = abs2(re[k * n + k], im[k * n + k]);
+
+            for (int i = k + 1; i < n; i++) {
+                double value = abs2(re[i * n + k], im[i * n + k]);
+
+                if (value > max) {
+                    max = value;
+                    pivot = i;
+                }
+            }
+
+            pivots[k] = pivot;
+
+            if (max == 0) {
+                singular = true;
+                continue;
+            }
+
+            if (pivot != k) {
+                swapRows(re, k, pivot, n);
+                swapRows(im, k, pivot, n);
+                negative = !negative;
+            }
+
+            // reciprocal of diagonal
+            double inverseRe = re[k * n + k] / max;
+            double inverseIm = -im[k * n + k] / max;
+
+            for (int i = k + 1; i < n; i++) {
+                double factorRe = re[i * n + k] * inverseRe - im[i * n + k] * inverseIm;
+                double factorIm = re[i * n + k] * inverseIm + im[i * n + k] * inverseRe;
+                re[i * n + k] = factorRe;
+                im[i * n + k] = factorIm;
+
+                if ((factorRe != 0) || (factorIm != 0)) {
+                    for (int j = k + 1; j < n; j++) {
+                        re[i * n + j] -= factorRe * re[k * n + j] - factorIm * im[k * n + j];
+                        im[i * n + j] -= factorRe * im[k * n + j] + factorIm * re[k * n + j];
+                    }
+                }
+            }
+        }
+    }
+
+    static double abs2(double re, double im) {
+        return re * re + im * im;
+    }
+
+    static void swapRows(double[] a, int from, int to, int cols) {
+        if (from == to) {
+            return;
+        }
+
+        for (int j = 0; j < cols; j++) {
+            double tmp = a[from * cols + j];
+            a[from * cols + j] = a[to * cols + j];
+            a[to * cols + j] = tmp;
+        }
+    }
+}
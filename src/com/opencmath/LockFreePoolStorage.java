@@ -0,0 +1,96 @@
+package com.opencmath;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Treiber stack of object batches. Nodes are never reused, so popping is not affected by ABA problem
+ */
+class LockFreePoolStorage<T> implements PoolStorage<T> {
+    private final AtomicReference<Node> head;
+    private final AtomicInteger size;
+
+    LockFreePoolStorage() {
+        head = new AtomicReference<>();
+        size = new AtomicInteger();
+    }
+
+    @Override
+    public void push(Object[] items, int offset, int count) {
+        while (count > 0) {
+            int n = Math.min(count, PoolTemplate.BATCH_SIZE);
+            Object[] batch = new Object[n];
+            System.arraycopy(items, offset, batch, 0, n);
+            pushNode(batch);
+            offset += n;
+            count -= n;
+        }
+    }
+
+    @Override
+    public int pop(Object[] items, int offset, int count) {
+        int popped = 0;
+
+        while (popped < count) {
+            Node node;
+
+            do {
+                node = head.get();
+
+                if (node == null) {
+                    return popped;
+                }
+            } while (!head.compareAndSet(node, node.next));
+
+            size.addAndGet(-node.items.length);
+
+            int n = Math.min(count - popped, node.items.length);
+            System.arraycopy(node.items, 0, items, offset + popped, n);
+            popped += n;
+
+            if (n < node.items.length) { // return rest of batch
+                Object[] rest = new Object[node.items.length - n];
+                System.arraycopy(node.items, n, rest, 0, rest.length);
+                pushNode(rest);
+            }
+        }
+
+        return popped;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void collect(List<T> items) {
+        for (Node node = head.get(); node != null; node = node.next) {
+            for (Object item : node.items) {
+                @SuppressWarnings("unchecked")
+                T t = (T) item;
+                items.add(t);
+            }
+        }
+    }
+
+    private void pushNode(Object[] batch) {
+        Node node = new Node(batch);
+
+        do {
+            node.next = head.get();
+        } while (!head.compareAndSet(node.next, node));
+
+        size.addAndGet(batch.length);
+    }
+
+    private static final class Node {
+        final Object[] items;
+        Node next;
+
+        Node(Object[] items) {
+            this.items = items;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.opencmath;
+
+import java.util.Arrays;
+import java.util.List;
+
+class LockedPoolStorage<T> implements PoolStorage<T> {
+    private Object[] pool;
+    private int size;
+
+    LockedPoolStorage() {
+        pool = new Object[PoolTemplate.BATCH_SIZE * 4];
+        size = 0;
+    }
+
+    @Override
+    public synchronized void push(Object[] items, int offset, int count) {
+        if (size + count > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, size + count));
+        }
+
+        System.arraycopy(items, offset, pool, size, count);
+        size += count;
+    }
+
+    @Override
+    public synchronized int pop(Object[] items, int offset, int count) {
+        count = Math.min(count, size);
+        size -= count;
+        System.arraycopy(pool, size, items, offset, count);
+        Arrays.fill(pool, size, size + count, null);
+        return count;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void collect(List<T> items) {
+        for (int i = 0; i < size; i++) {
+            @SuppressWarnings("unchecked")
+            T t = (T) pool[i];
+            items.add(t);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.opencmath;
+
+import java.util.Arrays;
+
+/**
+ * Factorization of square MATRIX, which can be used for any number of linear systems with same matrix.
+ * Hermitian positive definite matrix is factorized by Cholesky decomposition, other matrices by LU decomposition.
+ * Each {@link #solve(BaseNumber)} costs O(n^2) per right side column, factors are not modified by solving
+ * <pre>
+ * MatrixFactorization a = BaseNumber.factorize(matrix);
+ * BaseNumber x = a.solve(b);
+ * BaseNumber y = a.solve(c);
+ * </pre>
+ * @see BaseNumber#factorize(BaseNumber)
+ */
+public final class MatrixFactorization {
+    private final int n;
+    private final CholeskyDecomposition cholesky; // null when matrix is not Hermitian positive definite
+    private final LUDecomposition lu; // null when Cholesky decomposition is used
+    private final long[] adjugate; // exact adjugate of integral matrix, null when not available
+    private final long det;
+    private final int scale; // adjugate and det are of matrix scaled by 2^scale
+    private final boolean singular;
+
+    // matrix must be square with numeric items, it is put back into pool
+    MatrixFactorization(MatrixNumber matrix) {
+        n = matrix.cols;
+        long[] exact = null;
+        long exactDet = 0;
+        long[] integers = null;
+        int exactScale = 0;
+
+        if (matrix.isIntegral()) {
+            integers = matrix.integers();
+        } else if (matrix.isReal()) { // items like 1.5 are integers after scaling by power of two
+            double[] items = matrix.realParts();
+            exactScale = MatrixNumber.dyadicScale(items);
+            integers = (exactScale > 0) ? MatrixNumber.dyadicIntegers(items, exactScale) : null;
+        }
+
+        if (integers != null) {
+            try {
+                long[] a = FractionFreeElimination.augment(integers, n);
+                exactDet = FractionFreeElimination.gaussJordan(a, n);
+                exact = new long[n * n];
+
+                for (int i = 0; i < n; i++) {
+                    System.arraycopy(a, i * 2 * n + n, exact, i * n, n);
+                }
+            } catch (ArithmeticException e) {
+                exact = null;
+            }
+        }
+
+        cholesky = CholeskyDecomposition.factor(matrix.realParts(), matrix.imagParts(), n);
+        lu = (cholesky == null) ? new LUDecomposition(matrix.realParts(), matrix.imagParts(), n) : null;
+        adjugate = exact;
+        det = exactDet;
+        scale = exactScale;
+
+        if (exact != null) {
+            singular = (exactDet == 0);
+        } else {
+            singular = (cholesky == null) && lu.isSingular();
+        }
+
+        BaseNumber.put(matrix);
+    }
+
+    /**
+     * @return Size of factorized matrix
+     */
+    public int getSize() {
+        return n;
+    }
+
+    /**
+     * @return True when matrix is Hermitian (real symmetric) and positive definite
+     */
+    public boolean isPositiveDefinite() {
+        return cholesky != null;
+    }
+
+    /**
+     * @return True when matrix has no inverse, solutions of singular matrix are NaN
+     */
+    public boolean isSingular() {
+        return singular;
+    }
+
+    /**
+     * Determinant of factorized matrix. Result of integral matrix, or of matrix with binary fractions like 1.5, is exact
+     * @return Result of determinant
+     */
+    public BaseNumber det() {
+        if ((adjugate != null) && (scale == 0)) {
+            return IntegerNumber.get(det);
+        }
+
+        if (adjugate != null) { // det(A) = det(2^s * A) / 2^(s * n)
+            return BaseNumber.simplify(RealNumber.get(Math.scalb((double) det, -scale * n)));
+        }
+
+        if (cholesky != null) {
+            return MatrixNumber.box(cholesky.determinant());
+        }
+
+        return lu.determinant();
+    }
+
+    /**
+     * Inverse of factorized matrix. Result of integral matrix, or of matrix with binary fractions like 1.5, is exact
+     * where division is exact
+     * @return Inverse MATRIX, NaN items for singular matrix
+     */
+    public BaseNumber inv() {
+        if (singular) {
+            double[] items = new double[n * n];
+            Arrays.fill(items, Double.NaN);
+            return MatrixNumber.get(n, n, items);
+        }
+
+        if (adjugate != null) {
+            double[] items = new double[n * n];
+
+            for (int i = 0; i < items.length; i++) {
+                items[i] = Math.scalb((adjugate[i] % det == 0) ? adjugate[i] / det : adjugate[i] / (double) det, scale);
+            }
+
+            return MatrixNumber.get(n, n, items);
+        }
+
+        double[][] items = (cholesky != null) ? cholesky.inverse() : lu.inverse();
+        return (items[1] != null) ? MatrixNumber.get(n, n, items[0], items[1]) : MatrixNumber.get(n, n, items[0]);
+    }
+
+    /**
+     * Solves AX = B, where A is factorized matrix. Result of integral matrix and right side is exact
+     * where division is exact
+     * @param rhs Right side B, MATRIX with same number of rows as A. It is put back into pool
+     * @return MATRIX X with same size as B, INVALID for wrong right side
+     */
+    public BaseNumber solve(BaseNumber rhs) {
+        if ((rhs.type != NumberType.MATRIX) || (((MatrixNumber) rhs).rows != n) || !((MatrixNumber) rhs).isNumeric()) {
+            BaseNumber.put(rhs);
+            return InvalidNumber.get();
+        }
+
+        MatrixNumber b = (MatrixNumber) rhs;
+        int count = b.cols;
+        int rows = b.rows;
+
+        if (singular) {
+            double[] items = new double[n * count];
+            Arrays.fill(items, Double.NaN);
+            BaseNumber.put(b);
+            return MatrixNumber.get(count, rows, items);
+        }
+
+        if ((adjugate != null) && b.isIntegral()) {
+            try {
+                double[] items = solveExact(b.integers(), count);
+                BaseNumber.put(b);
+                return MatrixNumber.get(count, rows, items);
+            } catch (ArithmeticException e) {
+                // solved by factors
+            }
+        }
+
+        double[] itemsRe = b.realParts();
+        double[] itemsIm = b.imagParts();
+        double[] matrixIm = (cholesky != null) ? cholesky.im : lu.im;
+
+        if ((matrixIm != null) && (itemsIm == null)) {
+            itemsIm = new double[itemsRe.length];
+        }
+
+        BaseNumber.put(b); // primitive storage of right side is taken over
+
+        if (cholesky != null) {
+            cholesky.solve(itemsRe, itemsIm, count);
+        } else {
+            lu.solve(itemsRe, itemsIm, count);
+        }
+
+        return (itemsIm != null) ? MatrixNumber.get(count, rows, itemsRe, itemsIm) : MatrixNumber.get(count, rows, itemsRe);
+    }
+
+    // adj(A) * B / det(A)
+    private double[] solveExact(long[] b, int count) {
+        double[] result = new double[n * count];
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < count; j++) {
+                long sum = 0;
+
+                for (int k = 0; k < n; k++) {
+                    sum = IntegerNumber.addChecked(sum, IntegerNumber.mulChecked(adjugate[i * n + k], b[k * count + j]));
+                }
+
+                result[i * count + j] = Math.scalb((sum % det == 0) ? sum / det : sum / (double) det, scale);
+            }
+        }
+
+        return result;
+    }
+}
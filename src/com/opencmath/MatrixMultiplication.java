@@ -0,0 +1,380 @@
+package com.opencmath;
+
+import java.util.Arrays;
+
+/**
+ * Matrix product of row-major primitive storage. Right matrix is transposed, so both operands are read with unit stride,
+ * columns of result are processed in blocks which stay in L1/L2 cache and 2x2 items of result are kept in registers.
+ * Large products are split into row ranges by {@link MatrixParallel}. Partial dot products of each {@link #DEPTH} block
+ * are added into result separately, so for inner dimension over {@link #DEPTH} result matches plain loop only up to
+ * floating-point reassociation
+ */
+final class MatrixMultiplication {
+    static final int BLOCK = 64; // rows of transposed right matrix per block
+    static final int DEPTH = 256; // length of dot product per block
+    static final int SMALL = 16 * 16 * 16; // below this number of multiply-adds transposition does not pay off
+
+    private MatrixMultiplication() {
+    }
+
+    // number of multiply-adds is counted in long, it overflows int from size 1291
+    static boolean isSmall(int rows, int inner, int cols) {
+        return (long) rows * inner * cols < SMALL;
+    }
+
+    /**
+     * @param a Row-major items of left matrix
+     * @param b Row-major items of right matrix
+     * @param rows Number of rows of left matrix
+     * @param inner Number of columns of left matrix, same as number of rows of right matrix
+     * @param cols Number of columns of right matrix
+     * @return Row-major items of product
+     */
+    static double[] multiply(double[] a, double[] b, int rows, int inner, int cols) {
+        double[] c = new double[rows * cols];
+        multiply(a, b, c, null, rows, inner, cols);
+        return c;
+    }
+
+    /**
+     * Real product, result is accumulated into c
+     * @param bt Buffer for transposed right matrix, null when it is allocated
+     */
+    static void multiply(final double[] a, double[] b, final double[] c, double[] bt, int rows, final int inner, final int cols) {
+        if (isSmall(rows, inner, cols)) {
+            for (int i = 0; i < rows; i++) {
+                for (int k = 0; k < inner; k++) {
+                    double aik = a[i * inner + k];
+
+                    for (int j = 0; j < cols; j++) {
+                        c[i * cols + j] += aik * b[k * cols + j];
+                    }
+                }
+            }
+
+            return;
+        }
+
+        final double[] transposed = transpose(b, inner, cols, (bt != null) ? bt : new double[b.length]);
+
+        MatrixParallel.forEach(rows, (long) inner * cols, 2, new MatrixParallel.Range() {
+            @Override
+            public void run(int from, int to) {
+                multiply(a, transposed, c, from, to, inner, cols);
+            }
+        });
+    }
+
+    /**
+     * Complex product, result is accumulated into cRe and cIm
+     * @param btRe Buffer for transposed real parts of right matrix, null when it is allocated
+     * @param btIm Buffer for transposed imaginary parts of right matrix, null when it is allocated
+     */
+    static void multiply(final double[] aRe, final double[] aIm, double[] bRe, double[] bIm, int rows, final int inner, final int cols,
+                         final double[] cRe, final double[] cIm, double[] btRe, double[] btIm) {
+        if (isSmall(rows, inner, cols)) {
+            for (int i = 0; i < rows; i++) {
+                for (int k = 0; k < inner; k++) {
+                    double aikRe = aRe[i * inner + k];
+                    double aikIm = aIm[i * inner + k];
+
+                    for (int j = 0; j < cols; j++) {
+                        double bkjRe = bRe[k * cols + j];
+                        double bkjIm = bIm[k * cols + j];
+                        cRe[i * cols + j] += aikRe * bkjRe - aikIm * bkjIm;
+                        cIm[i * cols + j] += aikRe * bkjIm + aikIm * bkjRe;
+                    }
+                }
+            }
+
+            return;
+        }
+
+        final double[] transposedRe = transpose(bRe, inner, cols, (btRe != null) ? btRe : new double[bRe.length]);
+        final double[] transposedIm = transpose(bIm, inner, cols, (btIm != null) ? btIm : new double[bIm.length]);
+
+        MatrixParallel.forEach(rows, 4L * inner * cols, 1, new MatrixParallel.Range() {
+            @Override
+            public void run(int from, int to) {
+                multiply(aRe, aIm, transposedRe, transposedIm, cRe, cIm, from, to, inner, cols);
+            }
+        });
+    }
+
+    /**
+     * Real product with transposed right matrix, which is read directly without copy. Result is accumulated into c
+     * @param bt Row-major items of transposed right matrix, cols x inner
+     */
+    static void multiplyTransposed(final double[] a, final double[] bt, final double[] c, int rows, final int inner, final int cols) {
+        MatrixParallel.forEach(rows, (long) inner * cols, 2, new MatrixParallel.Range() {
+            @Override
+            public void run(int from, int to) {
+                multiply(a, bt, c, from, to, inner, cols);
+            }
+        });
+    }
+
+    /**
+     * Complex product with transposed right matrix, which is read directly without copy. Result is accumulated into cRe and cIm
+     * @param btRe Row-major real parts of transposed right matrix, cols x inner
+     * @param btIm Row-major imaginary parts of transposed right matrix, cols x inner
+     */
+    static void multiplyTransposed(final double[] aRe, final double[] aIm, final double[] btRe, final double[] btIm,
+                                   final double[] cRe, final double[] cIm, int rows, final int inner, final int cols) {
+        MatrixParallel.forEach(rows, 4L * inner * cols, 1, new MatrixParallel.Range() {
+            @Override
+            public void run(int from, int to) {
+                multiply(aRe, aIm, btRe, btIm, cRe, cIm, from, to, inner, cols);
+            }
+        });
+    }
+
+    /**
+     * Positive power of square matrix by binary exponentiation, O(log k) products. Products alternate between
+     * three buffers of size n * n, so no storage is allocated inside of loop
+     * @param re Real parts, storage is taken over
+     * @param im Imaginary parts, null for real matrix. Storage is taken over
+     * @param n Size of matrix
+     * @param k Exponent, interpreted as unsigned number
+     * @return Real and imaginary parts of result, imaginary parts are null for real matrix
+     */
+    static double[][] power(double[] re, double[] im, int n, long k) {
+        double[] baseRe = re;
+        double[] baseIm = im;
+        double[] resultRe = null;
+        double[] resultIm = null;
+        double[] tmpRe = new double[n * n];
+        double[] tmpIm = (im != null) ? new double[n * n] : null;
+        double[] btRe = new double[n * n];
+        double[] btIm = (im != null) ? new double[n * n] : null;
+
+        while (k != 0) {
+            if ((k & 1) != 0) {
+                if (resultRe == null) {
+                    resultRe = baseRe.clone();
+                    resultIm = (baseIm != null) ? baseIm.clone() : null;
+                } else {
+                    product(resultRe, resultIm, baseRe, baseIm, tmpRe, tmpIm, btRe, btIm, n);
+                    double[] swap = resultRe;
+                    resultRe = tmpRe;
+                    tmpRe = swap;
+                    swap = resultIm;
+                    resultIm = tmpIm;
+                    tmpIm = swap;
+                }
+            }
+
+            k >>>= 1;
+
+            if (k != 0) {
+                product(baseRe, baseIm, baseRe, baseIm, tmpRe, tmpIm, btRe, btIm, n);
+                double[] swap = baseRe;
+                baseRe = tmpRe;
+                tmpRe = swap;
+                swap = baseIm;
+                baseIm = tmpIm;
+                tmpIm = swap;
+            }
+        }
+
+        return new double[][] {resultRe, resultIm};
+    }
+
+    /**
+     * Exact positive power of integer matrix by binary exponentiation, O(log k) products
+     * @param items Row-major items, not modified
+     * @param n Size of matrix
+     * @param k Exponent, interpreted as unsigned number
+     * @return Row-major items of result
+     * @throws ArithmeticException When item overflows long
+     */
+    static long[] power(long[] items, int n, long k) {
+        long[] base = items;
+        long[] result = null;
+
+        while (k != 0) {
+            if ((k & 1) != 0) {
+                result = (result == null) ? base.clone() : product(result, base, n);
+            }
+
+            k >>>= 1;
+
+            if (k != 0) {
+                base = product(base, base, n);
+            }
+        }
+
+        return result;
+    }
+
+    // a * b of square integer matrices with checked arithmetic
+    private static long[] product(long[] a, long[] b, int n) {
+        long[] c = new long[n * n];
+
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                long aik = a[i * n + k];
+
+                if (aik == 0) {
+                    continue;
+                }
+
+                for (int j = 0; j < n; j++) {
+                    c[i * n + j] = IntegerNumber.addChecked(c[i * n + j], IntegerNumber.mulChecked(aik, b[k * n + j]));
+                }
+            }
+        }
+
+        return c;
+    }
+
+    // c = a * b of square matrices, previous content of c is overwritten
+    private static void product(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] cRe, double[] cIm,
+                                double[] btRe, double[] btIm, int n) {
+        Arrays.fill(cRe, 0);
+
+        if (aIm == null) {
+            multiply(aRe, bRe, cRe, btRe, n, n, n);
+            return;
+        }
+
+        Arrays.fill(cIm, 0);
+        multiply(aRe, aIm, bRe, bIm, n, n, n, cRe, cIm, btRe, btIm);
+    }
+
+    // rows from rowFrom to rowTo of product with transposed right matrix bt
+    static void multiply(double[] a, double[] bt, double[] c, int rowFrom, int rowTo, int inner, int cols) {
+        for (int jj = 0; jj < cols; jj += BLOCK) {
+            int jEnd = Math.min(jj + BLOCK, cols);
+
+            for (int kk = 0; kk < inner; kk += DEPTH) {
+                int kEnd = Math.min(kk + DEPTH, inner);
+                int i = rowFrom;
+
+                for (; i + 1 < rowTo; i += 2) {
+                    int a0 = i * inner;
+                    int a1 = a0 + inner;
+                    int j = jj;
+
+                    for (; j + 1 < jEnd; j += 2) {
+                        int b0 = j * inner;
+                        int b1 = b0 + inner;
+                        double c00 = 0;
+                        double c01 = 0;
+                        double c10 = 0;
+                        double c11 = 0;
+
+                        for (int k = kk; k < kEnd; k++) {
+                            double x0 = a[a0 + k];
+                            double x1 = a[a1 + k];
+                            double y0 = bt[b0 + k];
+                            double y1 = bt[b1 + k];
+                            c00 += x0 * y0;
+                            c01 += x0 * y1;
+                            c10 += x1 * y0;
+                            c11 += x1 * y1;
+                        }
+
+                        c[i * cols + j] += c00;
+                        c[i * cols + j + 1] += c01;
+                        c[(i + 1) * cols + j] += c10;
+                        c[(i + 1) * cols + j + 1] += c11;
+                    }
+
+                    if (j < jEnd) {
+                        c[i * cols + j] += dot(a, a0, bt, j * inner, kk, kEnd);
+                        c[(i + 1) * cols + j] += dot(a, a1, bt, j * inner, kk, kEnd);
+                    }
+                }
+
+                if (i < rowTo) {
+                    for (int j = jj; j < jEnd; j++) {
+                        c[i * cols + j] += dot(a, i * inner, bt, j * inner, kk, kEnd);
+                    }
+                }
+            }
+        }
+    }
+
+    // complex variant with 1x2 items of result in registers
+    static void multiply(double[] aRe, double[] aIm, double[] btRe, double[] btIm, double[] cRe, double[] cIm,
+                         int rowFrom, int rowTo, int inner, int cols) {
+        for (int jj = 0; jj < cols; jj += BLOCK) {
+            int jEnd = Math.min(jj + BLOCK, cols);
+
+            for (int kk = 0; kk < inner; kk += DEPTH) {
+                int kEnd = Math.min(kk + DEPTH, inner);
+
+                for (int i = rowFrom; i < rowTo; i++) {
+                    int a0 = i * inner;
+                    int j = jj;
+
+                    for (; j + 1 < jEnd; j += 2) {
+                        int b0 = j * inner;
+                        int b1 = b0 + inner;
+                        double c0Re = 0;
+                        double c0Im = 0;
+                        double c1Re = 0;
+                        double c1Im = 0;
+
+                        for (int k = kk; k < kEnd; k++) {
+                            double xRe = aRe[a0 + k];
+                            double xIm = aIm[a0 + k];
+                            c0Re += xRe * btRe[b0 + k] - xIm * btIm[b0 + k];
+                            c0Im += xRe * btIm[b0 + k] + xIm * btRe[b0 + k];
+                            c1Re += xRe * btRe[b1 + k] - xIm * btIm[b1 + k];
+                            c1Im += xRe * btIm[b1 + k] + xIm * btRe[b1 + k];
+                        }
+
+                        cRe[i * cols + j] += c0Re;
+                        cIm[i * cols + j] += c0Im;
+                        cRe[i * cols + j + 1] += c1Re;
+                        cIm[i * cols + j + 1] += c1Im;
+                    }
+
+                    if (j < jEnd) {
+                        int b0 = j * inner;
+                        double c0Re = 0;
+                        double c0Im = 0;
+
+                        for (int k = kk; k < kEnd; k++) {
+                            c0Re += aRe[a0 + k] * btRe[b0 + k] - aIm[a0 + k] * btIm[b0 + k];
+                            c0Im += aRe[a0 + k] * btIm[b0 + k] + aIm[a0 + k] * btRe[b0 + k];
+                        }
+
+                        cRe[i * cols + j] += c0Re;
+                        cIm[i * cols + j] += c0Im;
+                    }
+                }
+            }
+        }
+    }
+
+    static double[] transpose(double[] items, int rows, int cols) {
+        return transpose(items, rows, cols, new double[items.length]);
+    }
+
+    // transposition into data
+    static double[] transpose(double[] items, int rows, int cols, double[] data) {
+        int k = 0;
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                data[j * rows + i] = items[k];
+                k++;
+            }
+        }
+
+        return data;
+    }
+
+    private static double dot(double[] a, int aOffset, double[] b, int bOffset, int from, int to) {
+        double sum = 0;
+
+        for (int k = from; k < to; k++) {
+            sum += a[aOffset + k] * b[bOffset + k];
+        }
+
+        return sum;
+    }
+}
@@ -3,27 +3,50 @@ package com.opencmath;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 class MatrixNumber extends BaseNumber {
-    private static final PoolTemplate<MatrixNumber> pool = new PoolTemplate<>(100, 100000, new PoolFactory<MatrixNumber>() {
+    static final PoolTemplate<MatrixNumber> pool = new PoolTemplate<>(NumberType.MATRIX, 100, 100000, new PoolFactory<MatrixNumber>() {
         @Override
         public MatrixNumber create() {
             return new MatrixNumber();
         }
     });
 
+    // largest integer which is exactly represented by double
+    static final double MAX_EXACT_INTEGER = 9007199254740992.0;
+    // approximate cost of element-wise function in multiply-adds, used for parallel threshold
+    private static final int FUNCTION_COST = 20;
+
     BaseNumber[] value;
-    byte cols;
-    byte rows;
+    // primitive storage, when set value is empty and items are boxed on demand by items()
+    double[] re;
+    // imaginary parts of complex matrix in primitive storage, null for real matrix
+    double[] im;
+    // compressed storage of sparse real matrix, when set value is empty and re is null
+    SparseMatrix sparse;
+    // zero-copy view of shared primitive storage, when set value is empty, re and sparse are null
+    MatrixView view;
+    int cols;
+    int rows;
+
+    // element-wise functions with primitive kernels
+    private enum Function {
+        EXP, LN, SQRT, SIN, COS, TAN, SINH, COSH, TANH
+    }
 
     private MatrixNumber() {
         super(NumberType.MATRIX);
         cols = 0;
         rows = 0;
         value = new BaseNumber[0];
+        re = null;
+        im = null;
+        sparse = null;
+        view = null;
     }
 
-    private void resizeMatrix(byte newCols, byte newRows) {
+    private void resizeMatrix(int newCols, int newRows) {
         this.cols = newCols;
         this.rows = newRows;
 
@@ -38,15 +61,15 @@ class MatrixNumber extends BaseNumber {
         }
     }
 
-    static MatrixNumber get(byte cols, byte rows) {
+    static MatrixNumber get(int cols, int rows) {
         MatrixNumber number = pool.get();
         number.cols = cols;
         number.rows = rows;
         return number;
     }
 
-    static MatrixNumber get(byte cols, byte rows, BaseNumber[] items) {
-        if (items.length != cols * rows) {
+    static MatrixNumber get(int cols, int rows, BaseNumber[] items) {
+        if ((cols < 0) || (rows < 0) || (items.length != (long) cols * rows)) {
             throw new IllegalArgumentException();
         }
 
@@ -58,9 +81,83 @@ class MatrixNumber extends BaseNumber {
         return matrix;
     }
 
+    // matrix with primitive storage, items are taken over
+    static MatrixNumber get(int cols, int rows, double[] items) {
+        if ((cols < 0) || (rows < 0) || (items.length != (long) cols * rows)) {
+            throw new IllegalArgumentException();
+        }
+
+        MatrixNumber matrix = pool.get();
+        matrix.cols = cols;
+        matrix.rows = rows;
+        matrix.re = items;
+
+        return matrix;
+    }
+
+    // complex matrix with primitive storage, items are taken over
+    static MatrixNumber get(int cols, int rows, double[] re, double[] im) {
+        if (im.length != re.length) {
+            throw new IllegalArgumentException();
+        }
+
+        MatrixNumber matrix = get(cols, rows, re);
+        matrix.im = im;
+
+        return matrix;
+    }
+
+    // sparse matrix, storage is taken over
+    static MatrixNumber get(SparseMatrix items) {
+        MatrixNumber matrix = pool.get();
+        matrix.cols = items.cols;
+        matrix.rows = items.rows;
+        matrix.sparse = items;
+
+        return matrix;
+    }
+
+    // matrix with view storage, view is taken over
+    static MatrixNumber get(MatrixView items) {
+        MatrixNumber matrix = pool.get();
+        matrix.cols = items.cols;
+        matrix.rows = items.rows;
+        matrix.view = items;
+
+        return matrix;
+    }
+
+    // items of view of matrix, primitive storage is taken over by view and boxed items are duplicated
+    static BaseNumber select(MatrixNumber matrix, MatrixView items) {
+        if (items.value == null) {
+            matrix.re = null;
+            matrix.im = null;
+            matrix.view = null;
+            put(matrix);
+            return simplify(get(items));
+        }
+
+        BaseNumber[] data = new BaseNumber[items.rows * items.cols];
+
+        for (int i = 0; i < items.rows; i++) {
+            for (int j = 0; j < items.cols; j++) {
+                data[i * items.cols + j] = items.get(i, j);
+            }
+        }
+
+        put(matrix);
+        return simplify(get(items.cols, items.rows, data));
+    }
+
     static void put(MatrixNumber item) {
+        clear(item, null);
+        pool.put(item);
+    }
+
+    // puts items back into pool except items contained in skip
+    static void clear(MatrixNumber item, Set<BaseNumber> skip) {
         for (int i = 0; i < item.value.length; i++) {
-            if (item.value[i] != null) {
+            if ((item.value[i] != null) && ((skip == null) || !skip.contains(item.value[i]))) {
                 put(item.value[i]);
             }
 
@@ -70,7 +167,447 @@ class MatrixNumber extends BaseNumber {
         item.cols = 0;
         item.rows = 0;
         item.value = new BaseNumber[0];
-        pool.put(item);
+        item.re = null;
+        item.im = null;
+        item.sparse = null;
+        item.view = null;
+    }
+
+    // boxed items, primitive storage is converted into pooled numbers
+    BaseNumber[] items() {
+        box();
+        return value;
+    }
+
+    // boxed items are owned by matrix and returned into pool with it, so they are not recorded by arena
+    void box() {
+        dense();
+
+        if (re == null) {
+            return;
+        }
+
+        BaseNumber[] items = new BaseNumber[re.length];
+
+        for (int i = 0; i < re.length; i++) {
+            items[i] = (im != null) ? box(re[i], im[i]) : box(re[i]);
+            NumberArena.released(items[i]);
+        }
+
+        value = items;
+        re = null;
+        im = null;
+    }
+
+    // boxed items for reading, storage is not changed. Items of other than boxed storage are new numbers
+    private BaseNumber[] boxedItems() {
+        if (view != null) {
+            BaseNumber[] items = new BaseNumber[rows * cols];
+
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    items[i * cols + j] = view.get(i, j);
+                }
+            }
+
+            return items;
+        }
+
+        double[] itemsRe = (sparse != null) ? sparse.toDense() : re;
+
+        if (itemsRe == null) {
+            return value;
+        }
+
+        BaseNumber[] items = new BaseNumber[itemsRe.length];
+
+        for (int i = 0; i < itemsRe.length; i++) {
+            items[i] = (im != null) ? box(itemsRe[i], im[i]) : box(itemsRe[i]);
+        }
+
+        return items;
+    }
+
+    // puts back items from boxedItems() which are not owned by matrix
+    private void releaseItems(BaseNumber[] items) {
+        if (items != value) {
+            for (BaseNumber item : items) {
+                put(item);
+            }
+        }
+    }
+
+    // switches sparse storage or view to primitive storage, view items are copied
+    void dense() {
+        if (sparse != null) {
+            re = sparse.toDense();
+            sparse = null;
+        }
+
+        if (view != null) {
+            re = view.realItems();
+            im = view.imagItems();
+            view = null;
+        }
+    }
+
+    // view of current storage, items are shared with this matrix
+    MatrixView view() {
+        if (view != null) {
+            return view;
+        }
+
+        dense();
+        return (re != null) ? MatrixView.of(re, im, rows, cols) : MatrixView.of(value, rows, cols);
+    }
+
+    // switches real primitive storage to sparse storage, valid only when isReal() is true
+    void toSparse() {
+        if (sparse == null) {
+            sparse = SparseMatrix.fromDense(primitive(), rows, cols);
+            re = null;
+        }
+    }
+
+    // true when all items can be stored in real primitive storage without loss
+    boolean isReal() {
+        if (sparse != null) {
+            return true;
+        }
+
+        if (view != null) {
+            return view.im == null;
+        }
+
+        if (re != null) {
+            return im == null;
+        }
+
+        if (value.length == 0) {
+            return false;
+        }
+
+        for (BaseNumber item : value) {
+            if (!isReal(item)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // switches to primitive storage, valid only when isReal() is true
+    double[] primitive() {
+        dense();
+
+        if (re == null) {
+            double[] items = new double[value.length];
+
+            for (int i = 0; i < value.length; i++) {
+                items[i] = value[i].getReal();
+                put(value[i]);
+            }
+
+            value = new BaseNumber[0];
+            re = items;
+        }
+
+        return re;
+    }
+
+    // true when all items can be stored in complex primitive storage without loss
+    boolean isComplex() {
+        if ((re != null) || (sparse != null) || (view != null)) {
+            return true;
+        }
+
+        if (value.length == 0) {
+            return false;
+        }
+
+        for (BaseNumber item : value) {
+            if (!isComplex(item)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // switches to complex primitive storage, valid only when isComplex() is true
+    void complexPrimitive() {
+        dense();
+
+        if (re == null) {
+            re = new double[value.length];
+            im = new double[value.length];
+
+            for (int i = 0; i < value.length; i++) {
+                re[i] = value[i].getReal();
+                im[i] = value[i].getImag();
+                put(value[i]);
+            }
+
+            value = new BaseNumber[0];
+        } else if (im == null) {
+            im = new double[re.length];
+        }
+    }
+
+    // true when all items are integers
+    boolean isIntegral() {
+        if (view != null) {
+            return view.isIntegral();
+        }
+
+        if ((re != null) || (sparse != null)) {
+            if (im != null) {
+                return false;
+            }
+
+            for (double item : (sparse != null) ? sparse.values : re) {
+                if (!isInteger(item)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        if (value.length == 0) {
+            return false;
+        }
+
+        for (BaseNumber item : value) {
+            if (item.type != NumberType.INTEGER) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // true when all items have numeric value, including constants
+    boolean isNumeric() {
+        if ((re != null) || (sparse != null) || (view != null)) {
+            return true;
+        }
+
+        if (value.length == 0) {
+            return false;
+        }
+
+        for (BaseNumber item : value) {
+            if ((item.type == NumberType.INVALID) || (item.type == NumberType.MATRIX)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Largest magnitude of integer items. Sums and products of integer items are exact in double arithmetic
+     * while their magnitudes stay below MAX_EXACT_INTEGER, otherwise boxed items are used to keep long arithmetic
+     */
+    double integerBound() {
+        if (sparse != null) {
+            return integerBound(sparse.values, null);
+        }
+
+        if (view != null) {
+            return view.integerBound();
+        }
+
+        if (re != null) {
+            return integerBound(re, im);
+        }
+
+        double bound = 0;
+
+        for (BaseNumber item : value) {
+            bound = Math.max(bound, integerBound(item));
+        }
+
+        return bound;
+    }
+
+    private static double integerBound(double[] re, double[] im) {
+        double bound = 0;
+
+        for (int i = 0; i < re.length; i++) {
+            if (((im == null) || (im[i] == 0)) && isInteger(re[i])) {
+                bound = Math.max(bound, Math.abs(re[i]));
+            }
+        }
+
+        return bound;
+    }
+
+    // magnitude of INTEGER number, zero for other types
+    static double integerBound(BaseNumber number) {
+        return (number.type == NumberType.INTEGER) ? Math.abs((double) ((IntegerNumber) number).value) : 0;
+    }
+
+    // items of integral matrix, valid only when isIntegral() is true
+    long[] integers() {
+        if (view != null) { // view is kept
+            return view.integers();
+        }
+
+        dense();
+        long[] items = new long[cols * rows];
+
+        for (int i = 0; i < items.length; i++) {
+            items[i] = (re != null) ? (long) re[i] : ((IntegerNumber) value[i]).value;
+        }
+
+        return items;
+    }
+
+    /**
+     * Smallest power of two which scales all items to integers below MAX_EXACT_INTEGER, like 1.5 to 3 by exponent 1.
+     * Determinant, inverse and adjugate of such matrix are computed exactly from scaled integers
+     * @param items Real items
+     * @return Exponent of scale, 0 for integral items, -1 when items have no such scale
+     */
+    static int dyadicScale(double[] items) {
+        int scale = 0;
+        double bound = 0;
+
+        for (double item : items) {
+            if (item == 0) {
+                continue;
+            }
+
+            if (Double.isNaN(item) || Double.isInfinite(item) || (Math.getExponent(item) < Double.MIN_EXPONENT)) {
+                return -1;
+            }
+
+            long significand = (Double.doubleToRawLongBits(item) & 0xFFFFFFFFFFFFFL) | 0x10000000000000L;
+            scale = Math.max(scale, 52 - Math.getExponent(item) - Long.numberOfTrailingZeros(significand));
+            bound = Math.max(bound, Math.abs(item));
+        }
+
+        return (Math.scalb(bound, scale) < MAX_EXACT_INTEGER) ? scale : -1;
+    }
+
+    // items multiplied by 2^scale, valid only for scale returned by dyadicScale()
+    static long[] dyadicIntegers(double[] items, int scale) {
+        long[] result = new long[items.length];
+
+        for (int i = 0; i < items.length; i++) {
+            result[i] = (long) Math.scalb(items[i], scale);
+        }
+
+        return result;
+    }
+
+    // real parts of numeric items, primitive storage is returned directly, view is copied
+    double[] realParts() {
+        if (view != null) {
+            return view.realItems();
+        }
+
+        dense();
+
+        if (re != null) {
+            return re;
+        }
+
+        double[] items = new double[value.length];
+
+        for (int i = 0; i < value.length; i++) {
+            items[i] = value[i].getReal();
+        }
+
+        return items;
+    }
+
+    // imaginary parts of numeric items, null for real matrix, primitive storage is returned directly, view is copied
+    double[] imagParts() {
+        if (view != null) {
+            return view.imagItems();
+        }
+
+        dense();
+
+        if (re != null) {
+            return im;
+        }
+
+        double[] items = null;
+
+        for (int i = 0; i < value.length; i++) {
+            if (value[i].type == NumberType.COMPLEX) {
+                if (items == null) {
+                    items = new double[value.length];
+                }
+
+                items[i] = value[i].getImag();
+            }
+        }
+
+        return items;
+    }
+
+    // constants are kept boxed, so results like 0 + PI stay symbolic
+    static boolean isReal(BaseNumber number) {
+        switch (number.type) {
+            case INTEGER:
+                return Math.abs(((IntegerNumber) number).value) <= MAX_EXACT_INTEGER;
+            case REAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static boolean isComplex(BaseNumber number) {
+        return (number.type == NumberType.COMPLEX) || isReal(number);
+    }
+
+    // same result as simplify() of complex number
+    static BaseNumber box(double re, double im) {
+        if (im == 0) {
+            return box(re);
+        }
+
+        if (Double.isNaN(re) || Double.isNaN(im) || Double.isInfinite(re) || Double.isInfinite(im)) {
+            return InvalidNumber.get();
+        }
+
+        return ComplexNumber.get(re, im);
+    }
+
+    // same result as simplify() of real number
+    static BaseNumber box(double value) {
+        if (isInteger(value)) {
+            return IntegerNumber.get((long) value);
+        }
+
+        if (Double.isNaN(value)) {
+            return InvalidNumber.get();
+        }
+
+        return RealNumber.get(value);
+    }
+
+    private static boolean isFinite(double value) {
+        return !Double.isNaN(value) && !Double.isInfinite(value);
+    }
+
+    // same result as equals() of boxed items
+    private static boolean itemEquals(double a, double b) {
+        if (Double.isNaN(a) || Double.isNaN(b)) {
+            return Double.isNaN(a) && Double.isNaN(b);
+        }
+
+        if (isInteger(a) || isInteger(b)) {
+            return a == b;
+        }
+
+        return compareRelative(a, b) || (a == b);
     }
 
     static int poolSize() {
@@ -97,18 +634,48 @@ class MatrixNumber extends BaseNumber {
             return false;
         }
 
-        for (int i = 0; i < value.length; i++) {
-            if (!value[i].equals(matrixNumber.value[i])) {
-                return false;
+        // storage of both matrices is kept, so comparison does not depend on arena or other readers
+        if ((value.length == 0) && isReal() && (matrixNumber.value.length == 0) && matrixNumber.isReal()) {
+            double[] items = realParts(this);
+            double[] matrixItems = realParts(matrixNumber);
+
+            for (int i = 0; i < items.length; i++) {
+                if (!itemEquals(items[i], matrixItems[i])) {
+                    return false;
+                }
             }
+
+            return true;
         }
 
-        return true;
+        BaseNumber[] items = boxedItems();
+        BaseNumber[] matrixItems = matrixNumber.boxedItems();
+        boolean equal = (items.length == matrixItems.length);
+
+        for (int i = 0; equal && (i < items.length); i++) {
+            equal = items[i].equals(matrixItems[i]);
+        }
+
+        releaseItems(items);
+        matrixNumber.releaseItems(matrixItems);
+        return equal;
+    }
+
+    // real parts of real matrix without boxed items, storage is not changed
+    private static double[] realParts(MatrixNumber m) {
+        if (m.view != null) {
+            return m.view.realItems();
+        }
+
+        return (m.sparse != null) ? m.sparse.toDense() : m.re;
     }
 
     @Override
     public String toString() {
-        return "Matrix[" + cols + "x" + rows + "]" + Arrays.deepToString(value);
+        BaseNumber[] items = boxedItems();
+        String result = "Matrix[" + cols + "x" + rows + "]" + Arrays.deepToString(items);
+        releaseItems(items);
+        return result;
     }
 
     @Override
@@ -120,13 +687,33 @@ class MatrixNumber extends BaseNumber {
             case INTEGER:
             case REAL:
             case CONSTANT:
-            case COMPLEX:
+            case COMPLEX: {
+                boolean exact = integerBound() + integerBound(number) < MAX_EXACT_INTEGER;
+
+                if (exact && isReal(number) && isReal()) {
+                    broadcastAdd(primitive(), null, number.getReal(), 0);
+
+                    put(number);
+                    return simplify(this);
+                }
+
+                if (exact && isComplex(number) && isComplex()) {
+                    complexPrimitive();
+                    broadcastAdd(re, im, number.getReal(), number.getImag());
+
+                    put(number);
+                    return simplify(this);
+                }
+
+                box();
+
                 for (int i = 0; i < cols * rows; i++) {
                     value[i] = value[i].add(duplicate(number));
                 }
 
                 put(number);
                 return simplify(this);
+            }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
 
@@ -136,8 +723,45 @@ class MatrixNumber extends BaseNumber {
                     return InvalidNumber.get();
                 }
 
+                boolean exact = integerBound() + matrixNumber.integerBound() < MAX_EXACT_INTEGER;
+
+                if (exact && (sparse != null) && (matrixNumber.sparse != null)) {
+                    sparse = sparse.add(matrixNumber.sparse, 1);
+
+                    put(matrixNumber);
+                    return simplify(this);
+                }
+
+                if (exact && isReal() && matrixNumber.isReal()) {
+                    double[] items = primitive();
+                    double[] matrixItems = matrixNumber.primitive();
+
+                    for (int i = 0; i < items.length; i++) {
+                        items[i] += matrixItems[i];
+                    }
+
+                    put(matrixNumber);
+                    return simplify(this);
+                }
+
+                if (exact && isComplex() && matrixNumber.isComplex()) {
+                    complexPrimitive();
+                    matrixNumber.complexPrimitive();
+
+                    for (int i = 0; i < re.length; i++) {
+                        re[i] += matrixNumber.re[i];
+                        im[i] += matrixNumber.im[i];
+                    }
+
+                    put(matrixNumber);
+                    return simplify(this);
+                }
+
+                box();
+                BaseNumber[] matrixItems = matrixNumber.items();
+
                 for (int i = 0; i < cols * rows; i++) {
-                    value[i] = value[i].add(matrixNumber.value[i]);
+                    value[i] = value[i].add(matrixItems[i]);
                 }
 
                 matrixNumber.value = new BaseNumber[0];
@@ -158,13 +782,33 @@ class MatrixNumber extends BaseNumber {
             case INTEGER:
             case REAL:
             case CONSTANT:
-            case COMPLEX:
+            case COMPLEX: {
+                boolean exact = integerBound() + integerBound(number) < MAX_EXACT_INTEGER;
+
+                if (exact && isReal(number) && isReal()) {
+                    broadcastAdd(primitive(), null, -number.getReal(), 0);
+
+                    put(number);
+                    return simplify(this);
+                }
+
+                if (exact && isComplex(number) && isComplex()) {
+                    complexPrimitive();
+                    broadcastAdd(re, im, -number.getReal(), -number.getImag());
+
+                    put(number);
+                    return simplify(this);
+                }
+
+                box();
+
                 for (int i = 0; i < cols * rows; i++) {
                     value[i] = value[i].sub(duplicate(number));
                 }
 
                 put(number);
                 return simplify(this);
+            }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
 
@@ -174,8 +818,45 @@ class MatrixNumber extends BaseNumber {
                     return InvalidNumber.get();
                 }
 
+                boolean exact = integerBound() + matrixNumber.integerBound() < MAX_EXACT_INTEGER;
+
+                if (exact && (sparse != null) && (matrixNumber.sparse != null)) {
+                    sparse = sparse.add(matrixNumber.sparse, -1);
+
+                    put(matrixNumber);
+                    return simplify(this);
+                }
+
+                if (exact && isReal() && matrixNumber.isReal()) {
+                    double[] items = primitive();
+                    double[] matrixItems = matrixNumber.primitive();
+
+                    for (int i = 0; i < items.length; i++) {
+                        items[i] -= matrixItems[i];
+                    }
+
+                    put(matrixNumber);
+                    return simplify(this);
+                }
+
+                if (exact && isComplex() && matrixNumber.isComplex()) {
+                    complexPrimitive();
+                    matrixNumber.complexPrimitive();
+
+                    for (int i = 0; i < re.length; i++) {
+                        re[i] -= matrixNumber.re[i];
+                        im[i] -= matrixNumber.im[i];
+                    }
+
+                    put(matrixNumber);
+                    return simplify(this);
+                }
+
+                box();
+                BaseNumber[] matrixItems = matrixNumber.items();
+
                 for (int i = 0; i < cols * rows; i++) {
-                    value[i] = value[i].sub(matrixNumber.value[i]);
+                    value[i] = value[i].sub(matrixItems[i]);
                 }
 
                 matrixNumber.value = new BaseNumber[0];
@@ -196,17 +877,44 @@ class MatrixNumber extends BaseNumber {
             case INTEGER:
             case REAL:
             case CONSTANT:
-            case COMPLEX:
+            case COMPLEX: {
+                boolean exact = integerBound() * integerBound(number) < MAX_EXACT_INTEGER;
+
+                if (exact && (sparse != null) && isReal(number) && isFinite(number.getReal())) { // zeros stay zeros
+                    sparse = sparse.scale(number.getReal());
+
+                    put(number);
+                    return simplify(this);
+                }
+
+                if (exact && isReal(number) && isReal()) {
+                    broadcastMul(primitive(), null, number.getReal(), 0);
+
+                    put(number);
+                    return simplify(this);
+                }
+
+                if (exact && isComplex(number) && isComplex()) {
+                    complexPrimitive();
+                    broadcastMul(re, im, number.getReal(), number.getImag());
+
+                    put(number);
+                    return simplify(this);
+                }
+
+                box();
+
                 for (int i = 0; i < cols * rows; i++) {
                     value[i] = value[i].mul(duplicate(number));
                 }
 
                 put(number);
                 return simplify(this);
+            }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
-                byte matrixNumberCols = matrixNumber.cols;
-                byte matrixNumberRows = matrixNumber.rows;
+                int matrixNumberCols = matrixNumber.cols;
+                int matrixNumberRows = matrixNumber.rows;
 
                 if ((rows != matrixNumberCols) || (cols != matrixNumberRows)) {
                     put(this);
@@ -214,6 +922,48 @@ class MatrixNumber extends BaseNumber {
                     return InvalidNumber.get();
                 }
 
+                // bound of dot products of integer items
+                boolean exact = integerBound() * matrixNumber.integerBound() * cols < MAX_EXACT_INTEGER;
+
+                if (exact && ((sparse != null) || (matrixNumber.sparse != null))) {
+                    MatrixNumber result = multiplySparse(this, matrixNumber);
+
+                    if (result != null) {
+                        put(matrixNumber);
+                        put(this);
+                        return simplify(result);
+                    }
+                }
+
+                if (exact && (matrixNumber.view != null) && matrixNumber.view.isTransposition() && isComplex()) {
+                    MatrixNumber result = multiplyTransposed(this, matrixNumber);
+                    put(matrixNumber);
+                    put(this);
+                    return simplify(result);
+                }
+
+                if (exact && isReal() && matrixNumber.isReal()) {
+                    double[] result = MatrixMultiplication.multiply(primitive(), matrixNumber.primitive(), rows, cols, matrixNumberCols);
+                    int tmpRows = rows;
+                    put(matrixNumber);
+                    put(this);
+                    return simplify(MatrixNumber.get(matrixNumberCols, tmpRows, result));
+                }
+
+                if (exact && isComplex() && matrixNumber.isComplex()) {
+                    complexPrimitive();
+                    matrixNumber.complexPrimitive();
+                    double[] resultRe = new double[rows * matrixNumberCols];
+                    double[] resultIm = new double[rows * matrixNumberCols];
+                    MatrixMultiplication.multiply(re, im, matrixNumber.re, matrixNumber.im, rows, cols, matrixNumberCols, resultRe, resultIm, null, null);
+                    int tmpRows = rows;
+                    put(matrixNumber);
+                    put(this);
+                    return simplify(MatrixNumber.get(matrixNumberCols, tmpRows, resultRe, resultIm));
+                }
+
+                box();
+                BaseNumber[] matrixItems = matrixNumber.items();
                 BaseNumber[] items = new BaseNumber[rows * matrixNumberCols];
 
                 int k = 0;
@@ -222,7 +972,7 @@ class MatrixNumber extends BaseNumber {
                         BaseNumber item = IntegerNumber.get(0);
 
                         for (int m = 0; m < cols; m++) {
-                            item = item.add(duplicate(value[i * cols + m]).mul(duplicate(matrixNumber.value[m * matrixNumberCols + j])));
+                            item = item.add(duplicate(value[i * cols + m]).mul(duplicate(matrixItems[m * matrixNumberCols + j])));
                         }
 
                         items[k] = item;
@@ -230,7 +980,7 @@ class MatrixNumber extends BaseNumber {
                     }
                 }
 
-                byte tmpRows = rows;
+                int tmpRows = rows;
                 put(matrixNumber);
                 put(this);
                 return simplify(MatrixNumber.get(matrixNumberCols, tmpRows, items));
@@ -250,6 +1000,50 @@ class MatrixNumber extends BaseNumber {
             case REAL:
             case CONSTANT:
             case COMPLEX:
+                if ((sparse != null) && isReal(number) && (number.getReal() != 0) && isFinite(number.getReal())) {
+                    double[] items = sparse.values;
+                    double scalar = number.getReal();
+
+                    for (int i = 0; i < items.length; i++) {
+                        items[i] /= scalar;
+                    }
+
+                    sparse = sparse.compact();
+
+                    put(number);
+                    return simplify(this);
+                }
+
+                if (isReal(number) && (number.getReal() != 0) && isReal()) { // division by zero gives invalid items
+                    double[] items = primitive();
+                    double scalar = number.getReal();
+
+                    for (int i = 0; i < items.length; i++) {
+                        items[i] /= scalar;
+                    }
+
+                    put(number);
+                    return simplify(this);
+                }
+
+                if (isComplex(number) && ((number.getReal() != 0) || (number.getImag() != 0)) && isComplex()) {
+                    complexPrimitive();
+                    double scalarRe = number.getReal();
+                    double scalarIm = number.getImag();
+                    double divisor = scalarRe * scalarRe + scalarIm * scalarIm;
+
+                    for (int i = 0; i < re.length; i++) {
+                        double tmp = (re[i] * scalarRe + im[i] * scalarIm) / divisor;
+                        im[i] = (im[i] * scalarRe - re[i] * scalarIm) / divisor;
+                        re[i] = tmp;
+                    }
+
+                    put(number);
+                    return simplify(this);
+                }
+
+                box();
+
                 for (int i = 0; i < cols * rows; i++) {
                     value[i] = value[i].div(duplicate(number));
                 }
@@ -275,6 +1069,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber arg() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].arg();
         }
@@ -284,6 +1080,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber abs() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].abs();
         }
@@ -293,6 +1091,12 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber ln() {
+        if (isComplex()) {
+            return apply(Function.LN);
+        }
+
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].ln();
         }
@@ -312,6 +1116,8 @@ class MatrixNumber extends BaseNumber {
             case REAL:
             case CONSTANT:
             case COMPLEX: {
+                box();
+
                 for (int i = 0; i < cols * rows; i++) {
                     value[i] = value[i].log(duplicate(base));
                 }
@@ -326,6 +1132,12 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber exp() {
+        if (isComplex()) {
+            return apply(Function.EXP);
+        }
+
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].exp();
         }
@@ -351,6 +1163,8 @@ class MatrixNumber extends BaseNumber {
             case REAL:
             case CONSTANT:
             case COMPLEX: {
+                box();
+
                 for (int i = 0; i < cols * rows; i++) {
                     value[i] = value[i].pow(duplicate(exp));
                 }
@@ -365,6 +1179,12 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber sqrt() {
+        if (isComplex()) {
+            return apply(Function.SQRT);
+        }
+
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].sqrt();
         }
@@ -384,6 +1204,8 @@ class MatrixNumber extends BaseNumber {
             case REAL:
             case CONSTANT:
             case COMPLEX: {
+                box();
+
                 for (int i = 0; i < cols * rows; i++) {
                     value[i] = value[i].root(duplicate(exp));
                 }
@@ -398,6 +1220,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber factorial() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].factorial();
         }
@@ -407,6 +1231,12 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber sin() {
+        if (isComplex()) {
+            return apply(Function.SIN);
+        }
+
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].sin();
         }
@@ -416,6 +1246,12 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber cos() {
+        if (isComplex()) {
+            return apply(Function.COS);
+        }
+
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].cos();
         }
@@ -423,8 +1259,14 @@ class MatrixNumber extends BaseNumber {
         return simplify(this);
     }
 
-    @Override
-    public BaseNumber tan() {
+    @Override
+    public BaseNumber tan() {
+        if (isComplex()) {
+            return apply(Function.TAN);
+        }
+
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].tan();
         }
@@ -434,6 +1276,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber cot() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].cot();
         }
@@ -443,6 +1287,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber sec() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].sec();
         }
@@ -452,6 +1298,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber csc() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].csc();
         }
@@ -461,6 +1309,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber asin() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].asin();
         }
@@ -470,6 +1320,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber acos() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].acos();
         }
@@ -479,6 +1331,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber atan() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].atan();
         }
@@ -488,6 +1342,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber acot() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].acot();
         }
@@ -497,6 +1353,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber asec() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].asec();
         }
@@ -506,6 +1364,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber acsc() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].acsc();
         }
@@ -515,6 +1375,12 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber sinh() {
+        if (isComplex()) {
+            return apply(Function.SINH);
+        }
+
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].sinh();
         }
@@ -524,6 +1390,12 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber cosh() {
+        if (isComplex()) {
+            return apply(Function.COSH);
+        }
+
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].cosh();
         }
@@ -533,6 +1405,12 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber tanh() {
+        if (isComplex()) {
+            return apply(Function.TANH);
+        }
+
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].tanh();
         }
@@ -542,6 +1420,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber coth() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].coth();
         }
@@ -551,6 +1431,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber sech() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].sech();
         }
@@ -560,6 +1442,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber csch() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].csch();
         }
@@ -569,6 +1453,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber asinh() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].asinh();
         }
@@ -578,6 +1464,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber acosh() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].acosh();
         }
@@ -587,6 +1475,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber atanh() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].atanh();
         }
@@ -596,6 +1486,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber acoth() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].acoth();
         }
@@ -605,6 +1497,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber asech() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].asech();
         }
@@ -614,6 +1508,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber acsch() {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].acsch();
         }
@@ -679,6 +1575,7 @@ class MatrixNumber extends BaseNumber {
             return InvalidNumber.get();
         }
 
+        box();
         BaseNumber sum = IntegerNumber.get(0);
 
         for (int i = 0; i < rows; i++) {
@@ -699,8 +1596,191 @@ class MatrixNumber extends BaseNumber {
         return gaussElimination(this);
     }
 
+    @Override
+    public BaseNumber solve(BaseNumber rhs) {
+        if ((cols > rows) || !isNumeric()) {
+            put(this);
+            put(rhs);
+            return InvalidNumber.get();
+        }
+
+        if (rows > cols) { // least squares
+            return new QRFactorization(this).solve(rhs);
+        }
+
+        return new MatrixFactorization(this).solve(rhs);
+    }
+
+    @Override
+    public BaseNumber matrixPow(BaseNumber exponent) {
+        if ((cols != rows) || (exponent.type != NumberType.INTEGER)) {
+            put(exponent);
+            put(this);
+            return InvalidNumber.get();
+        }
+
+        long k = ((IntegerNumber) exponent).value;
+        put(exponent);
+
+        if (cols == 1) {
+            return simplify(this).pow(IntegerNumber.get(k));
+        }
+
+        if (k == 0) {
+            double[] items = new double[cols * rows];
+
+            for (int i = 0; i < rows; i++) {
+                items[i * cols + i] = 1;
+            }
+
+            int n = cols;
+            put(this);
+            return MatrixNumber.get(n, n, items);
+        }
+
+        if (k < 0) { // -Long.MIN_VALUE is 2^63 as unsigned number
+            BaseNumber inverse = inverse(this);
+
+            if (inverse.type != NumberType.MATRIX) {
+                return inverse;
+            }
+
+            return ((MatrixNumber) inverse).power(-k);
+        }
+
+        return power(k);
+    }
+
+    // binary exponentiation, k is unsigned
+    private BaseNumber power(long k) {
+        // integer items are exact in long, products over long range continue with boxed items
+        if ((sparse == null) && isIntegral()) {
+            try {
+                long[] result = MatrixMultiplication.power(integers(), cols, k);
+                double[] items = new double[result.length];
+                long limit = (long) MAX_EXACT_INTEGER;
+                boolean exact = true;
+
+                for (int i = 0; i < result.length; i++) {
+                    items[i] = result[i];
+                    exact &= (result[i] >= -limit) && (result[i] <= limit);
+                }
+
+                int n = cols;
+                put(this);
+
+                if (exact) {
+                    return simplify(MatrixNumber.get(n, n, items));
+                }
+
+                BaseNumber[] boxed = new BaseNumber[result.length];
+
+                for (int i = 0; i < result.length; i++) {
+                    boxed[i] = IntegerNumber.get(result[i]);
+                }
+
+                return simplify(MatrixNumber.get(n, n, boxed));
+            } catch (ArithmeticException e) {
+                // continues with products of matrices
+            }
+        } else if ((sparse == null) && isReal()) {
+            double[][] result = MatrixMultiplication.power(primitive(), null, cols, k);
+            re = result[0];
+            return simplify(this);
+        } else if ((sparse == null) && isComplex()) {
+            complexPrimitive();
+            double[][] result = MatrixMultiplication.power(re, im, cols, k);
+            re = result[0];
+            im = result[1];
+            return simplify(this);
+        }
+
+        // sparse, symbolic or large integer items, products keep their storage
+        BaseNumber base = this;
+        BaseNumber result = null;
+
+        while (k != 0) {
+            if ((k & 1) != 0) {
+                result = (result == null) ? duplicate(base) : result.mul(duplicate(base));
+            }
+
+            k >>>= 1;
+
+            if (k != 0) {
+                base = base.mul(duplicate(base));
+            }
+        }
+
+        put(base);
+        return result;
+    }
+
+    @Override
+    public BaseNumber eigenvalues() {
+        if (cols != rows) {
+            put(this);
+            return InvalidNumber.get();
+        }
+
+        if (cols == 1) {
+            return simplify(this);
+        }
+
+        if (!isNumeric()) {
+            put(this);
+            return InvalidNumber.get();
+        }
+
+        return new EigenFactorization(this, false).getValues();
+    }
+
+    @Override
+    public BaseNumber pinv() {
+        if (!isNumeric()) {
+            put(this);
+            return InvalidNumber.get();
+        }
+
+        return new SVDFactorization(this).pinv();
+    }
+
+    @Override
+    public BaseNumber norm2() {
+        if (!isNumeric()) {
+            put(this);
+            return InvalidNumber.get();
+        }
+
+        double norm = new SVDFactorization(this, false).getNorm2();
+        return simplify(RealNumber.get(norm));
+    }
+
+    @Override
+    public BaseNumber cond() {
+        if (!isNumeric()) {
+            put(this);
+            return InvalidNumber.get();
+        }
+
+        double cond = new SVDFactorization(this, false).getCondition();
+        return simplify(RealNumber.get(cond));
+    }
+
     @Override
     public BaseNumber rank() {
+        if (isIntegral()) { // exact
+            int rank = FractionFreeElimination.rank(integers(), rows, cols);
+            put(this);
+            return IntegerNumber.get(rank);
+        }
+
+        if (isNumeric()) { // zero within rounding errors
+            int rank = new QRFactorization(this).getRank();
+            return IntegerNumber.get(rank);
+        }
+
+        box();
+
         if (value.length == 1) {
             BaseNumber tmp;
 
@@ -735,6 +1815,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber toRadians(AngleType angle) {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].toRadians(angle);
         }
@@ -744,6 +1826,8 @@ class MatrixNumber extends BaseNumber {
 
     @Override
     public BaseNumber fromRadians(AngleType angle) {
+        box();
+
         for (int i = 0; i < cols * rows; i++) {
             value[i] = value[i].fromRadians(angle);
         }
@@ -752,6 +1836,8 @@ class MatrixNumber extends BaseNumber {
     }
 
     private static MatrixNumber gaussElimination(MatrixNumber m) {
+        m.box();
+
         if (m.value.length == 1) {
             if ((m.value[0].type == NumberType.INTEGER) && (((IntegerNumber) m.value[0]).value == 0)) {
                 return m;
@@ -768,7 +1854,7 @@ class MatrixNumber extends BaseNumber {
                 put(m);
                 BaseNumber[] items = new BaseNumber[1];
                 items[0] = InvalidNumber.get();
-                return MatrixNumber.get((byte) 1, (byte) 1, items);
+                return MatrixNumber.get(1, 1, items);
             }
         }
 
@@ -838,6 +1924,11 @@ class MatrixNumber extends BaseNumber {
             }
 
             for (int j = 0; j < i; j++) {
+                BaseNumber number = m.value[j * m.cols + col];
+                if ((number.type == NumberType.INTEGER) && (((IntegerNumber) number).value == 0)) { // nothing to eliminate
+                    continue;
+                }
+
                 for (int k = col + 1; k < m.cols; k++) {
                     m.value[j * m.cols + k] = m.value[j * m.cols + k].sub(duplicate(m.value[i * m.cols + k]).mul(duplicate(m.value[j * m.cols + col])));
                 }
@@ -913,11 +2004,25 @@ class MatrixNumber extends BaseNumber {
             return InvalidNumber.get();
         }
 
-        if (m.value.length == 1) {
+        int size = m.cols;
+
+        if (size == 1) {
+            m.box();
             m.value[0] = IntegerNumber.get(1).div(m.value[0]);
             return m;
         }
 
+        if (m.isIntegral()) { // exact items where division is exact
+            double[] items = FractionFreeElimination.inverse(m.integers(), size);
+            put(m);
+            return MatrixNumber.get(size, size, items);
+        }
+
+        if (m.isNumeric()) { // Cholesky or LU decomposition
+            return new MatrixFactorization(m).inv();
+        }
+
+        m.box();
         MatrixNumber tmp = (MatrixNumber) duplicate(m);
         BaseNumber result = adjugate(m).div(determinant(tmp));
         return simplify(result);
@@ -929,59 +2034,157 @@ class MatrixNumber extends BaseNumber {
             return InvalidNumber.get();
         }
 
-        if (m.value.length == 1) {
+        int size = m.cols;
+
+        if (size == 1) {
+            m.box();
             put(m.value[0]);
             m.value[0] = IntegerNumber.get(1);
             return simplify(m);
         }
 
-        BaseNumber[] data = new BaseNumber[m.value.length];
-        int k = 0;
+        if (m.isIntegral()) {
+            BaseNumber[] items = FractionFreeElimination.adjugate(m.integers(), size);
 
-        for (int i = 0; i < m.rows; i++) {
-            for (int j = 0; j < m.cols; j++) {
-                BaseNumber[] subData = new BaseNumber[(m.cols - 1) * (m.rows - 1)];
-                BaseNumber subDet = ((i + j) % 2 == 1) ? IntegerNumber.get(-1) : IntegerNumber.get(1);
+            if (items != null) {
+                put(m);
+                return MatrixNumber.get(size, size, items);
+            }
+        } else if ((size > 3) && m.isNumeric()) { // det(A) * inv(A), small or singular matrix uses cofactors
+            int scale = m.isReal() ? dyadicScale(m.realParts()) : -1;
 
-                int c = 0;
-                int d = 0; // second row
-                for (int a = 0; a < m.rows; a++) {
-                    for (int b = 0; b < m.cols; b++) {
-                        if ((b != i) && (a != j)) {
-                            subData[c] = duplicate(m.value[d]);
-                            c++;
+            if (scale > 0) { // adj(A) = adj(2^s * A) / 2^(s * (n - 1)), exact while scaled items fit into long
+                try {
+                    long[] a = FractionFreeElimination.augment(dyadicIntegers(m.realParts(), scale), size);
+
+                    if (FractionFreeElimination.gaussJordan(a, size) != 0) {
+                        double[] items = new double[size * size];
+
+                        for (int i = 0; i < size; i++) {
+                            for (int j = 0; j < size; j++) {
+                                items[i * size + j] = Math.scalb((double) a[i * 2 * size + size + j], -scale * (size - 1));
+                            }
                         }
 
-                        d++;
+                        put(m);
+                        return MatrixNumber.get(size, size, items);
+                    }
+                } catch (ArithmeticException e) {
+                    // adjugate by LU decomposition
+                }
+            }
+
+            double[] itemsIm = m.imagParts();
+            LUDecomposition lu = new LUDecomposition(m.realParts().clone(), (itemsIm != null) ? itemsIm.clone() : null, size);
+
+            if (!lu.isSingular()) {
+                double[] det = lu.determinantParts();
+                double[][] items = lu.inverse();
+                put(m);
+
+                if ((items[1] == null) && (det[1] == 0)) {
+                    for (int i = 0; i < items[0].length; i++) {
+                        items[0][i] *= det[0];
                     }
+
+                    return MatrixNumber.get(size, size, items[0]);
+                }
+
+                if (items[1] == null) {
+                    items[1] = new double[size * size];
+                }
+
+                for (int i = 0; i < items[0].length; i++) {
+                    double tmp = items[0][i] * det[0] - items[1][i] * det[1];
+                    items[1][i] = items[0][i] * det[1] + items[1][i] * det[0];
+                    items[0][i] = tmp;
                 }
 
-                data[k] = subDet.mul(MatrixNumber.get((byte) (m.cols - 1), (byte) (m.rows - 1), subData).det());
+                return MatrixNumber.get(size, size, items[0], items[1]);
+            }
+        }
+
+        // cofactors of minors, which are views of same storage
+        MatrixView items = m.view();
+        BaseNumber[] data = new BaseNumber[size * size];
+        int k = 0;
+
+        for (int i = 0; i < m.rows; i++) {
+            for (int j = 0; j < m.cols; j++) {
+                BaseNumber subDet = ((i + j) % 2 == 1) ? IntegerNumber.get(-1) : IntegerNumber.get(1);
+                data[k] = subDet.mul(determinant(items.minor(j, i)));
                 k++;
             }
         }
 
-        byte tmpCols = m.cols;
-        byte tmpRows = m.rows;
+        int tmpCols = m.cols;
+        int tmpRows = m.rows;
         put(m);
         return simplify(MatrixNumber.get(tmpRows, tmpCols, data));
     }
 
+    // product with right matrix in transposed view, its storage is read directly as transposed right operand
+    private static MatrixNumber multiplyTransposed(MatrixNumber a, MatrixNumber b) {
+        MatrixView bt = b.view;
+        double[] resultRe = new double[a.rows * b.cols];
+
+        if (a.isReal() && (bt.im == null)) {
+            MatrixMultiplication.multiplyTransposed(a.primitive(), bt.re, resultRe, a.rows, a.cols, b.cols);
+            return get(b.cols, a.rows, resultRe);
+        }
+
+        a.complexPrimitive();
+        double[] resultIm = new double[a.rows * b.cols];
+        double[] btIm = (bt.im != null) ? bt.im : new double[bt.re.length];
+        MatrixMultiplication.multiplyTransposed(a.re, a.im, bt.re, btIm, resultRe, resultIm, a.rows, a.cols, b.cols);
+        return get(b.cols, a.rows, resultRe, resultIm);
+    }
+
+    // product with at least one sparse matrix, null when other matrix has no real primitive storage
+    private static MatrixNumber multiplySparse(MatrixNumber a, MatrixNumber b) {
+        if ((a.sparse != null) && (b.sparse != null)) {
+            return get(a.sparse.multiply(b.sparse));
+        }
+
+        if ((a.sparse != null) && b.isReal()) {
+            return get(b.cols, a.rows, a.sparse.multiply(b.primitive(), b.cols));
+        }
+
+        if ((b.sparse != null) && a.isReal()) {
+            return get(b.cols, a.rows, SparseMatrix.multiply(a.primitive(), a.rows, b.sparse));
+        }
+
+        return null;
+    }
+
+    // primitive storage is kept as transposed view, boxed items are moved
     private static BaseNumber transpose(MatrixNumber m) {
         int k = 0;
-        byte cols = m.cols;
-        byte rows = m.rows;
-        BaseNumber[] data = new BaseNumber[cols * rows];
-
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                data[j * rows + i] = duplicate(m.value[k]);
-                k++;
+        int cols = m.cols;
+        int rows = m.rows;
+
+        if (m.sparse != null) {
+            m.sparse = m.sparse.transpose();
+        } else if ((m.re != null) || (m.view != null)) {
+            m.view = m.view().transpose();
+            m.re = null;
+            m.im = null;
+        } else {
+            BaseNumber[] data = new BaseNumber[cols * rows];
+
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    data[j * rows + i] = m.value[k];
+                    k++;
+                }
             }
+
+            m.value = data;
         }
 
-        put(m);
-        return MatrixNumber.get(rows, cols, data);
+        m.cols = rows;
+        m.rows = cols;
+        return m;
     }
 
     private static BaseNumber determinant(MatrixNumber m) {
@@ -990,56 +2193,277 @@ class MatrixNumber extends BaseNumber {
             return InvalidNumber.get();
         }
 
-        switch (m.cols) {
-            case 1: {
-                BaseNumber number = duplicate(m.value[0]);
-                put(m);
-                return simplify(number);
-            }
+        if (m.isIntegral()) { // exact
+            BaseNumber det = FractionFreeElimination.determinant(m.integers(), m.cols);
+            put(m);
+            return det;
+        }
+
+        if (m.isComplex() || ((m.cols > 3) && m.isNumeric())) { // constants are kept in closed forms of small matrices
+            return new MatrixFactorization(m).det();
+        }
+
+        BaseNumber det = determinant(m.view());
+        put(m);
+        return det;
+    }
+
+    // determinant of square view, items are not consumed and minors are views of same storage
+    private static BaseNumber determinant(MatrixView m) {
+        int size = m.rows;
+
+        if (m.isIntegral()) {
+            return FractionFreeElimination.determinant(m.integers(), size);
+        }
+
+        if (m.isComplex() || ((size > 3) && m.isNumeric())) {
+            double[] itemsIm = m.imagItems();
+            MatrixNumber matrix = (itemsIm != null) ? get(size, size, m.realItems(), itemsIm) : get(size, size, m.realItems());
+            return new MatrixFactorization(matrix).det();
+        }
+
+        switch (size) {
+            case 1:
+                return simplify(m.get(0, 0));
             case 2: {
-                BaseNumber number = duplicate(m.value[0]).mul(duplicate(m.value[3])).sub(duplicate(m.value[1]).mul(duplicate(m.value[2])));
-                put(m);
+                BaseNumber number = m.get(0, 0).mul(m.get(1, 1)).sub(m.get(0, 1).mul(m.get(1, 0)));
                 return simplify(number);
             }
             case 3: {
-                BaseNumber positive1 = duplicate(m.value[0]).mul(duplicate(m.value[4])).mul(duplicate(m.value[8]));
-                BaseNumber positive2 = duplicate(m.value[2]).mul(duplicate(m.value[3])).mul(duplicate(m.value[7]));
-                BaseNumber positive3 = duplicate(m.value[1]).mul(duplicate(m.value[5])).mul(duplicate(m.value[6]));
+                BaseNumber positive1 = m.get(0, 0).mul(m.get(1, 1)).mul(m.get(2, 2));
+                BaseNumber positive2 = m.get(0, 2).mul(m.get(1, 0)).mul(m.get(2, 1));
+                BaseNumber positive3 = m.get(0, 1).mul(m.get(1, 2)).mul(m.get(2, 0));
                 BaseNumber positive = positive1.add(positive2.add(positive3));
-                BaseNumber negative1 = duplicate(m.value[0]).mul(duplicate(m.value[5])).mul(duplicate(m.value[7]));
-                BaseNumber negative2 = duplicate(m.value[1]).mul(duplicate(m.value[3])).mul(duplicate(m.value[8]));
-                BaseNumber negative3 = duplicate(m.value[2]).mul(duplicate(m.value[4])).mul(duplicate(m.value[6]));
+                BaseNumber negative1 = m.get(0, 0).mul(m.get(1, 2)).mul(m.get(2, 1));
+                BaseNumber negative2 = m.get(0, 1).mul(m.get(1, 0)).mul(m.get(2, 2));
+                BaseNumber negative3 = m.get(0, 2).mul(m.get(1, 1)).mul(m.get(2, 0));
                 BaseNumber negative = negative1.add(negative2).add(negative3);
                 BaseNumber number = positive.sub(negative);
-                put(m);
                 return simplify(number);
             }
-            default: // cols > 3
+            default: // size > 3, expansion by first row
                 BaseNumber det = IntegerNumber.get(0);
 
-                for (int i = 0; i < m.cols; i++) {
-                    BaseNumber[] data = new BaseNumber[(m.cols - 1) * (m.rows - 1)];
-                    BaseNumber subDet = duplicate(m.value[i]).mul((i % 2 == 1) ? IntegerNumber.get(-1) : IntegerNumber.get(1));
-
-                    int c = 0;
-                    int d = m.cols; // second row
-                    for (int a = 1; a < m.rows; a++) {
-                        for (int b = 0; b < m.cols; b++) {
-                            if (b != i) {
-                                data[c] = duplicate(m.value[d]);
-                                c++;
-                            }
+                for (int i = 0; i < size; i++) {
+                    BaseNumber subDet = m.get(0, i).mul((i % 2 == 1) ? IntegerNumber.get(-1) : IntegerNumber.get(1));
+                    subDet = subDet.mul(determinant(m.minor(0, i)));
+                    det = det.add(subDet);
+                }
+
+                return simplify(det);
+        }
+    }
 
-                            d++;
+    // element-wise function on primitive storage, real storage is kept when function has real result for all items
+    private BaseNumber apply(final Function function) {
+        if ((sparse != null) && isZeroPreserving(function)) {
+            double[] items = sparse.values;
+            boolean real = true;
+
+            for (int i = 0; (i < items.length) && real; i++) {
+                real = isRealDomain(function, items[i]);
+            }
+
+            if (real) { // only stored items are computed
+                for (int i = 0; i < items.length; i++) {
+                    items[i] = apply(function, items[i]);
+                }
+
+                sparse = sparse.compact();
+                return simplify(this);
+            }
+        }
+
+        if (isReal()) {
+            final double[] items = primitive();
+            boolean real = true;
+
+            for (int i = 0; (i < items.length) && real; i++) {
+                real = isRealDomain(function, items[i]);
+            }
+
+            if (real) {
+                MatrixParallel.forEach(items.length, FUNCTION_COST, 1, new MatrixParallel.Range() {
+                    @Override
+                    public void run(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            items[i] = apply(function, items[i]);
                         }
                     }
+                });
 
-                    subDet = subDet.mul(determinant(MatrixNumber.get((byte) (m.cols - 1), (byte) (m.rows - 1), data)));
-                    det = det.add(subDet);
+                return simplify(this);
+            }
+        }
+
+        complexPrimitive();
+        final double[] itemsRe = re;
+        final double[] itemsIm = im;
+
+        MatrixParallel.forEach(itemsRe.length, FUNCTION_COST, 1, new MatrixParallel.Range() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    if ((itemsIm[i] == 0) && isRealDomain(function, itemsRe[i])) {
+                        itemsRe[i] = apply(function, itemsRe[i]);
+                    } else {
+                        apply(function, itemsRe, itemsIm, i);
+                    }
                 }
+            }
+        });
 
-                put(m);
-                return simplify(det);
+        return simplify(this);
+    }
+
+    // items + scalar, im is null for real items
+    private static void broadcastAdd(final double[] re, final double[] im, final double scalarRe, final double scalarIm) {
+        MatrixParallel.forEach(re.length, 1, 1, new MatrixParallel.Range() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    re[i] += scalarRe;
+                }
+
+                if (im != null) {
+                    for (int i = from; i < to; i++) {
+                        im[i] += scalarIm;
+                    }
+                }
+            }
+        });
+    }
+
+    // items * scalar, im is null for real items
+    private static void broadcastMul(final double[] re, final double[] im, final double scalarRe, final double scalarIm) {
+        MatrixParallel.forEach(re.length, 1, 1, new MatrixParallel.Range() {
+            @Override
+            public void run(int from, int to) {
+                if (im == null) {
+                    for (int i = from; i < to; i++) {
+                        re[i] *= scalarRe;
+                    }
+
+                    return;
+                }
+
+                for (int i = from; i < to; i++) {
+                    double tmp = re[i] * scalarRe - im[i] * scalarIm;
+                    im[i] = re[i] * scalarIm + im[i] * scalarRe;
+                    re[i] = tmp;
+                }
+            }
+        });
+    }
+
+    // f(0) = 0
+    private static boolean isZeroPreserving(Function function) {
+        switch (function) {
+            case SQRT:
+            case SIN:
+            case TAN:
+            case SINH:
+            case TANH:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isRealDomain(Function function, double value) {
+        switch (function) {
+            case LN:
+            case SQRT:
+                return !(value < 0);
+            default:
+                return true;
+        }
+    }
+
+    // same formulas as RealNumber
+    private static double apply(Function function, double value) {
+        switch (function) {
+            case EXP:
+                return Math.exp(value);
+            case LN:
+                return Math.log(value);
+            case SQRT:
+                return Math.sqrt(value);
+            case SIN:
+                return Math.sin(value);
+            case COS:
+                return Math.cos(value);
+            case TAN:
+                return Math.tan(value);
+            case SINH:
+                return Math.sinh(value);
+            case COSH:
+                return Math.cosh(value);
+            case TANH:
+                return Math.tanh(value);
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    // same formulas as ComplexNumber, item i is replaced by result
+    private static void apply(Function function, double[] re, double[] im, int i) {
+        double a = re[i];
+        double b = im[i];
+
+        switch (function) {
+            case EXP: {
+                double exp = Math.exp(a);
+                re[i] = exp * Math.cos(b);
+                im[i] = exp * Math.sin(b);
+                return;
+            }
+            case LN:
+                re[i] = Math.log(Math.sqrt(a * a + b * b));
+                im[i] = Math.atan2(b, a);
+                return;
+            case SQRT: {
+                double t = Math.sqrt((Math.abs(a) + Math.sqrt(a * a + b * b)) / 2.0);
+
+                if (a >= 0) {
+                    re[i] = t;
+                    im[i] = b / (2 * t);
+                } else {
+                    re[i] = Math.abs(b) / (2 * t);
+                    im[i] = ((b >= 0) ? 1 : -1) * t;
+                }
+                return;
+            }
+            case SIN:
+                re[i] = Math.sin(a) * Math.cosh(b);
+                im[i] = Math.cos(a) * Math.sinh(b);
+                return;
+            case COS:
+                re[i] = Math.cos(a) * Math.cosh(b);
+                im[i] = -Math.sin(a) * Math.sinh(b);
+                return;
+            case TAN: {
+                double tmp = Math.cos(2 * a) + Math.cosh(2 * b);
+                re[i] = Math.sin(2 * a) / tmp;
+                im[i] = Math.sinh(2 * b) / tmp;
+                return;
+            }
+            case SINH:
+                re[i] = Math.sinh(a) * Math.cos(b);
+                im[i] = Math.cosh(a) * Math.sin(b);
+                return;
+            case COSH:
+                re[i] = Math.cosh(a) * Math.cos(b);
+                im[i] = Math.sinh(a) * Math.sin(b);
+                return;
+            case TANH: {
+                double tmp = Math.cosh(2 * a) + Math.cos(2 * b);
+                re[i] = Math.sinh(2 * a) / tmp;
+                im[i] = Math.sin(2 * b) / tmp;
+                return;
+            }
+            default:
+                throw new IllegalStateException();
         }
     }
 }
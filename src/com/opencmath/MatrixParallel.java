@@ -0,0 +1,152 @@
+package com.opencmath;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Splits work on primitive matrix storage into row or item ranges which run in fork/join pool. Work below threshold
+ * runs on calling thread. Only primitive arrays are touched by workers, so number pools and arenas are not involved
+ */
+final class MatrixParallel {
+    static final int DEFAULT_THRESHOLD = 32768;
+
+    private static final ThreadLocal<Integer> threadParallelism = new ThreadLocal<>();
+    private static volatile long threshold;
+    private static volatile int parallelism;
+    private static volatile ForkJoinPool pool;
+
+    interface Range {
+        void run(int from, int to);
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Range range;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        RangeTask(Range range, int from, int to, int chunk) {
+            this.range = range;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                range.run(from, to);
+                return;
+            }
+
+            // split on chunk boundary
+            int chunks = (to - from + chunk - 1) / chunk;
+            int middle = from + (chunks / 2) * chunk;
+            invokeAll(new RangeTask(range, from, middle, chunk), new RangeTask(range, middle, to, chunk));
+        }
+    }
+
+    static {
+        threshold = Long.getLong("opencmath.parallel.threshold", DEFAULT_THRESHOLD);
+        parallelism = Integer.getInteger("opencmath.parallel.parallelism", Runtime.getRuntime().availableProcessors());
+        pool = null;
+
+        if ((threshold < 0) || (parallelism < 1)) {
+            throw new IllegalStateException("Invalid parallel settings, threshold " + threshold + ", parallelism " + parallelism);
+        }
+    }
+
+    private MatrixParallel() {
+    }
+
+    /**
+     * Runs range over all items, in parallel when count * cost reaches threshold
+     * @param count Number of rows or items
+     * @param cost Approximate number of operations per row or item
+     * @param align Start of each parallel range is multiple of align
+     * @param range Work on range of rows or items
+     */
+    static void forEach(int count, long cost, int align, Range range) {
+        int tasks = parallelism();
+
+        if ((tasks <= 1) || (count < 2 * align) || ((long) count * cost < threshold)) {
+            range.run(0, count);
+            return;
+        }
+
+        int chunk = (count + tasks - 1) / tasks;
+        chunk = (chunk + align - 1) / align * align;
+
+        while (true) {
+            try {
+                getPool().invoke(new RangeTask(range, 0, count, chunk));
+                return;
+            } catch (RejectedExecutionException e) {
+                // pool was replaced by setParallelism() and shut down, work is submitted to new pool
+            }
+        }
+    }
+
+    // parallelism of current thread
+    static int parallelism() {
+        Integer value = threadParallelism.get();
+        return (value != null) ? value : parallelism;
+    }
+
+    static void setParallelism(int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+
+        synchronized (MatrixParallel.class) {
+            parallelism = value;
+
+            // own pool is never common pool, running work finishes in old pool and then its workers terminate
+            if ((pool != null) && (pool.getParallelism() < value)) {
+                ForkJoinPool old = pool;
+                pool = null;
+                old.shutdown();
+            }
+        }
+    }
+
+    static void setThreadParallelism(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Parallelism must not be negative");
+        }
+
+        if (value == 0) {
+            threadParallelism.remove();
+        } else {
+            threadParallelism.set(value);
+        }
+    }
+
+    static void setThreshold(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative");
+        }
+
+        threshold = value;
+    }
+
+    // pool is created on first parallel work, with at least global parallelism
+    static ForkJoinPool getPool() {
+        ForkJoinPool current = pool;
+
+        if (current == null) {
+            synchronized (MatrixParallel.class) {
+                if (pool == null) {
+                    pool = new ForkJoinPool(Math.max(parallelism, Runtime.getRuntime().availableProcessors()));
+                }
+
+                current = pool;
+            }
+        }
+
+        return current;
+    }
+}
@@ -0,0 +1,278 @@
+package com.opencmath;
+
+/**
+ * Zero-copy view of row-major matrix storage. Item (i, j) of view is item rowOffsets[i] + colOffsets[j] of storage,
+ * so transposition, submatrix, selected rows or columns and minor only build offset arrays with rows + cols items.
+ * Storage is shared with parent and other views, it is never written through view. Boxed items are owned by parent
+ */
+final class MatrixView {
+    final double[] re; // null for boxed storage
+    final double[] im; // null for real or boxed storage
+    final BaseNumber[] value; // null for primitive storage
+    final int[] rowOffsets;
+    final int[] colOffsets;
+    final int rows;
+    final int cols;
+
+    private MatrixView(double[] re, double[] im, BaseNumber[] value, int[] rowOffsets, int[] colOffsets) {
+        this.re = re;
+        this.im = im;
+        this.value = value;
+        this.rowOffsets = rowOffsets;
+        this.colOffsets = colOffsets;
+        rows = rowOffsets.length;
+        cols = colOffsets.length;
+    }
+
+    // whole matrix in primitive storage
+    static MatrixView of(double[] re, double[] im, int rows, int cols) {
+        return new MatrixView(re, im, null, offsets(rows, cols), offsets(cols, 1));
+    }
+
+    // whole matrix in boxed storage
+    static MatrixView of(BaseNumber[] value, int rows, int cols) {
+        return new MatrixView(null, null, value, offsets(rows, cols), offsets(cols, 1));
+    }
+
+    MatrixView transpose() {
+        return new MatrixView(re, im, value, colOffsets, rowOffsets);
+    }
+
+    // rows from row to row + count - 1 and columns from col to col + colCount - 1
+    MatrixView submatrix(int row, int col, int rowCount, int colCount) {
+        int[] selectedRows = new int[rowCount];
+        int[] selectedCols = new int[colCount];
+
+        for (int i = 0; i < rowCount; i++) {
+            selectedRows[i] = rowOffsets[row + i];
+        }
+
+        for (int j = 0; j < colCount; j++) {
+            selectedCols[j] = colOffsets[col + j];
+        }
+
+        return new MatrixView(re, im, value, selectedRows, selectedCols);
+    }
+
+    // rows and columns in given order, they can repeat
+    MatrixView select(int[] rowIndices, int[] colIndices) {
+        int[] selectedRows = new int[rowIndices.length];
+        int[] selectedCols = new int[colIndices.length];
+
+        for (int i = 0; i < rowIndices.length; i++) {
+            selectedRows[i] = rowOffsets[rowIndices[i]];
+        }
+
+        for (int j = 0; j < colIndices.length; j++) {
+            selectedCols[j] = colOffsets[colIndices[j]];
+        }
+
+        return new MatrixView(re, im, value, selectedRows, selectedCols);
+    }
+
+    // without row and column
+    MatrixView minor(int row, int col) {
+        return new MatrixView(re, im, value, without(rowOffsets, row), without(colOffsets, col));
+    }
+
+    // true when view is transposition of whole row-major storage, then storage is row-major transposed view
+    boolean isTransposition() {
+        if ((re == null) || (re.length != rows * cols)) {
+            return false;
+        }
+
+        for (int i = 0; i < rows; i++) {
+            if (rowOffsets[i] != i) {
+                return false;
+            }
+        }
+
+        for (int j = 0; j < cols; j++) {
+            if (colOffsets[j] != j * rows) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // item as new number from pool
+    BaseNumber get(int i, int j) {
+        int index = rowOffsets[i] + colOffsets[j];
+
+        if (value != null) {
+            return BaseNumber.duplicate(value[index]);
+        }
+
+        return (im != null) ? MatrixNumber.box(re[index], im[index]) : MatrixNumber.box(re[index]);
+    }
+
+    boolean isReal() {
+        if (value == null) {
+            return im == null;
+        }
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (!MatrixNumber.isReal(value[rowOffsets[i] + colOffsets[j]])) {
+                    return false;
+                }
+            }
+        }
+
+        return rows * cols > 0;
+    }
+
+    boolean isComplex() {
+        if (value == null) {
+            return true;
+        }
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (!MatrixNumber.isComplex(value[rowOffsets[i] + colOffsets[j]])) {
+                    return false;
+                }
+            }
+        }
+
+        return rows * cols > 0;
+    }
+
+    boolean isIntegral() {
+        if (im != null) {
+            return false;
+        }
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int index = rowOffsets[i] + colOffsets[j];
+
+                if ((value != null) ? (value[index].type != NumberType.INTEGER) : !BaseNumber.isInteger(re[index])) {
+                    return false;
+                }
+            }
+        }
+
+        return rows * cols > 0;
+    }
+
+    boolean isNumeric() {
+        if (value == null) {
+            return true;
+        }
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                NumberType type = value[rowOffsets[i] + colOffsets[j]].type;
+
+                if ((type == NumberType.INVALID) || (type == NumberType.MATRIX)) {
+                    return false;
+                }
+            }
+        }
+
+        return rows * cols > 0;
+    }
+
+    // largest magnitude of integer items
+    double integerBound() {
+        double bound = 0;
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int index = rowOffsets[i] + colOffsets[j];
+
+                if (value != null) {
+                    bound = Math.max(bound, MatrixNumber.integerBound(value[index]));
+                } else if (((im == null) || (im[index] == 0)) && BaseNumber.isInteger(re[index])) {
+                    bound = Math.max(bound, Math.abs(re[index]));
+                }
+            }
+        }
+
+        return bound;
+    }
+
+    // row-major items of integral view, valid only when isIntegral() is true
+    long[] integers() {
+        long[] items = new long[rows * cols];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int index = rowOffsets[i] + colOffsets[j];
+                items[i * cols + j] = (value != null) ? ((IntegerNumber) value[index]).value : (long) re[index];
+            }
+        }
+
+        return items;
+    }
+
+    // row-major copy of real parts of numeric items
+    double[] realItems() {
+        double[] items = new double[rows * cols];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int index = rowOffsets[i] + colOffsets[j];
+                items[i * cols + j] = (value != null) ? value[index].getReal() : re[index];
+            }
+        }
+
+        return items;
+    }
+
+    // row-major copy of imaginary parts of numeric items, null for real view
+    double[] imagItems() {
+        if (value == null) {
+            if (im == null) {
+                return null;
+            }
+
+            double[] items = new double[rows * cols];
+
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    items[i * cols + j] = im[rowOffsets[i] + colOffsets[j]];
+                }
+            }
+
+            return items;
+        }
+
+        double[] items = null;
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                BaseNumber item = value[rowOffsets[i] + colOffsets[j]];
+
+                if (item.type == NumberType.COMPLEX) {
+                    if (items == null) {
+                        items = new double[rows * cols];
+                    }
+
+                    items[i * cols + j] = item.getImag();
+                }
+            }
+        }
+
+        return items;
+    }
+
+    private static int[] offsets(int count, int stride) {
+        int[] offsets = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            offsets[i] = i * stride;
+        }
+
+        return offsets;
+    }
+
+    private static int[] without(int[] offsets, int index) {
+        int[] result = new int[offsets.length - 1];
+        System.arraycopy(offsets, 0, result, 0, index);
+        System.arraycopy(offsets, index + 1, result, index, offsets.length - index - 1);
+        return result;
+    }
+}
@@ -0,0 +1,148 @@
+package com.opencmath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scope which records every number retrieved from pool by current thread. When arena is closed, all recorded
+ * numbers which were not put back into pool or marked by {@link #escape(BaseNumber)} are returned into pool at once.
+ * Arenas can be nested, escaped numbers of nested arena are passed to enclosing arena.
+ * Numbers retrieved inside arena must not be put back into pool by another thread
+ * <pre>
+ * BaseNumber result;
+ *
+ * try (NumberArena arena = BaseNumber.openArena()) {
+ *     result = arena.escape(a.mul(b).add(c));
+ * }
+ * </pre>
+ */
+public final class NumberArena implements AutoCloseable {
+    private static final ThreadLocal<NumberArena> current = new ThreadLocal<>();
+    private static final AtomicInteger openCount = new AtomicInteger();
+
+    private final NumberArena parent;
+    private final Set<BaseNumber> records;
+    private final Thread owner;
+    private boolean closed;
+
+    private NumberArena(NumberArena parent) {
+        this.parent = parent;
+        records = Collections.newSetFromMap(new IdentityHashMap<BaseNumber, Boolean>());
+        owner = Thread.currentThread();
+        closed = false;
+    }
+
+    static NumberArena open() {
+        NumberArena arena = new NumberArena(current.get());
+        current.set(arena);
+        openCount.incrementAndGet();
+        return arena;
+    }
+
+    static void allocated(BaseNumber number) {
+        if (openCount.get() > 0) {
+            NumberArena arena = current.get();
+
+            if (arena != null) {
+                arena.records.add(number);
+            }
+        }
+    }
+
+    static void released(BaseNumber number) {
+        if (openCount.get() > 0) {
+            for (NumberArena arena = current.get(); arena != null; arena = arena.parent) {
+                if (arena.records.remove(number)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Exclude number (for MATRIX also its items) from returning into pool when arena is closed
+     * @param number Number retrieved inside arena
+     * @return Same number
+     */
+    public BaseNumber escape(BaseNumber number) {
+        if (closed) {
+            throw new IllegalStateException("Arena is closed");
+        }
+
+        escape(this, number);
+        return number;
+    }
+
+    /**
+     * Gets number of recorded numbers which will be returned into pool
+     * @return Number of recorded numbers
+     */
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * Returns all recorded numbers into pool. Must be called by thread which opened arena and only for innermost arena
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        if ((Thread.currentThread() != owner) || (current.get() != this)) {
+            throw new IllegalStateException("Only innermost arena can be closed by owner thread");
+        }
+
+        closed = true;
+        openCount.decrementAndGet();
+
+        if (parent != null) {
+            current.set(parent);
+        } else {
+            current.remove();
+        }
+
+        Map<NumberType, ArrayList<BaseNumber>> groups = new EnumMap<>(NumberType.class);
+
+        for (BaseNumber number : records) {
+            if (number.type == NumberType.MATRIX) {
+                MatrixNumber.clear((MatrixNumber) number, records);
+            }
+
+            ArrayList<BaseNumber> group = groups.get(number.type);
+
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(number.type, group);
+            }
+
+            group.add(number);
+        }
+
+        records.clear();
+
+        for (Map.Entry<NumberType, ArrayList<BaseNumber>> group : groups.entrySet()) {
+            BaseNumber.getPool(group.getKey()).putAll(group.getValue().toArray());
+        }
+    }
+
+    private static void escape(NumberArena arena, BaseNumber number) {
+        if (arena.records.remove(number) && (arena.parent != null)) {
+            arena.parent.records.add(number);
+        }
+
+        if (number.type == NumberType.MATRIX) {
+            for (BaseNumber item : ((MatrixNumber) number).value) {
+                if (item != null) {
+                    escape(arena, item);
+                }
+            }
+        }
+    }
+}
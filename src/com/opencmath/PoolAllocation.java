@@ -0,0 +1,65 @@
+package com.opencmath;
+
+/**
+ * Number retrieved from pool and not returned yet, recorded in pool debug mode
+ * @see BaseNumber#getOutstandingAllocations(NumberType)
+ */
+public final class PoolAllocation {
+    private final Object number;
+    private final long generation;
+    private final String thread;
+    private final Throwable site;
+
+    PoolAllocation(Object number, long generation, String thread, Throwable site) {
+        this.number = number;
+        this.generation = generation;
+        this.thread = thread;
+        this.site = site;
+    }
+
+    /**
+     * Gets retrieved number
+     * @return Number which was not put back into pool
+     */
+    public BaseNumber getNumber() {
+        return (BaseNumber) number;
+    }
+
+    /**
+     * Gets generation of allocation. Each retrieval from pool gets higher generation than previous one
+     * @return Generation of allocation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets name of thread which retrieved number
+     * @return Thread name
+     */
+    public String getThreadName() {
+        return thread;
+    }
+
+    /**
+     * Gets stack trace of allocation site. Recorded only when "opencmath.pool.debug" is set to "stacks"
+     * @return Stack trace or null when not recorded
+     */
+    public StackTraceElement[] getStackTrace() {
+        return (site != null) ? site.getStackTrace() : null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Generation ").append(generation).append(" retrieved by thread '").append(thread).append("'");
+
+        if (site != null) {
+            for (StackTraceElement element : site.getStackTrace()) {
+                builder.append("\n\tat ").append(element);
+            }
+        }
+
+        return builder.toString();
+    }
+}
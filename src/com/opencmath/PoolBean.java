@@ -0,0 +1,19 @@
+package com.opencmath;
+
+class PoolBean implements PoolMXBean {
+    private final NumberType type;
+
+    PoolBean(NumberType type) {
+        this.type = type;
+    }
+
+    @Override
+    public PoolStatistics getStatistics() {
+        return BaseNumber.getPoolStatistics(type);
+    }
+
+    @Override
+    public int trim() {
+        return BaseNumber.trimPool(type);
+    }
+}
@@ -0,0 +1,24 @@
+package com.opencmath;
+
+/**
+ * Thrown when pool reached its maximum size and no free object is available. Pool accounting is not changed,
+ * so pool remains usable after numbers are returned
+ * @see PoolExhaustionPolicy
+ */
+public class PoolExhaustedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int maximumSize;
+
+    PoolExhaustedException(String message, int maximumSize) {
+        super(message);
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @return Maximum pool size which was reached
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+}
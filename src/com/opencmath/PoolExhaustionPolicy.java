@@ -0,0 +1,23 @@
+package com.opencmath;
+
+/**
+ * Behaviour of pool which reached its maximum size and has no free object
+ * @see BaseNumber#setPoolExhaustionPolicy(NumberType, PoolExhaustionPolicy, long)
+ */
+public enum PoolExhaustionPolicy {
+    /**
+     * Throw {@link PoolExhaustedException} (default)
+     */
+    FAIL,
+
+    /**
+     * Wait until other thread returns objects into pool, {@link PoolExhaustedException} is thrown after timeout.
+     * Thread caches are bypassed, so each returned object is immediately available to blocked threads
+     */
+    BLOCK,
+
+    /**
+     * Allocate object on heap, it is released to garbage collector when returned while pool is over maximum size
+     */
+    ALLOCATE,
+}
@@ -0,0 +1,19 @@
+package com.opencmath;
+
+/**
+ * JMX view of pool counters, registered by {@link BaseNumber#registerPoolMBeans()}. All counters are read
+ * from one snapshot, so they are consistent with each other
+ * @see PoolStatistics
+ */
+public interface PoolMXBean {
+    /**
+     * @return Snapshot of pool counters, mapped to composite data by JMX
+     */
+    PoolStatistics getStatistics();
+
+    /**
+     * Releases free objects above low watermark
+     * @return Number of released objects
+     */
+    int trim();
+}
@@ -0,0 +1,143 @@
+package com.opencmath;
+
+/**
+ * Snapshot of pool counters
+ * @see BaseNumber#getPoolStatistics(NumberType)
+ */
+public final class PoolStatistics {
+    private final NumberType type;
+    private final long gets;
+    private final long hits;
+    private final long puts;
+    private final long created;
+    private final long growths;
+    private final long exhaustions;
+    private final long released;
+    private final int outstanding;
+    private final int peakOutstanding;
+    private final int free;
+    private final int capacity;
+    private final int maximumSize;
+
+    PoolStatistics(NumberType type, long gets, long hits, long puts, long created, long growths, long exhaustions, long released,
+                   int outstanding, int peakOutstanding, int free, int capacity, int maximumSize) {
+        this.type = type;
+        this.gets = gets;
+        this.hits = hits;
+        this.puts = puts;
+        this.created = created;
+        this.growths = growths;
+        this.exhaustions = exhaustions;
+        this.released = released;
+        this.outstanding = outstanding;
+        this.peakOutstanding = peakOutstanding;
+        this.free = free;
+        this.capacity = capacity;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @return Number type of pool
+     */
+    public NumberType getType() {
+        return type;
+    }
+
+    /**
+     * @return Count of retrievals from pool, including failed ones. Each retrieval is either hit or miss
+     */
+    public long getGets() {
+        return gets;
+    }
+
+    /**
+     * @return Count of numbers returned into pool
+     */
+    public long getPuts() {
+        return puts;
+    }
+
+    /**
+     * @return Count of retrievals which found no free number in pool, so pool had to grow or was exhausted
+     */
+    public long getMisses() {
+        return gets - hits;
+    }
+
+    /**
+     * @return Count of retrievals served by free number from pool
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Count of numbers created by pool, including initial ones
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return Count of pool growths
+     */
+    public long getGrowths() {
+        return growths;
+    }
+
+    /**
+     * @return Count of retrievals failed because pool reached maximum size
+     */
+    public long getExhaustions() {
+        return exhaustions;
+    }
+
+    /**
+     * @return Count of free numbers released to garbage collector by trimming or over high watermark
+     */
+    public long getReleased() {
+        return released;
+    }
+
+    /**
+     * @return Numbers currently retrieved and not returned into pool, free numbers in thread caches are not included
+     */
+    public int getOutstanding() {
+        return outstanding;
+    }
+
+    /**
+     * @return Highest count of outstanding numbers, sampled when thread cache is empty and when statistics are read
+     */
+    public int getPeakOutstanding() {
+        return peakOutstanding;
+    }
+
+    /**
+     * @return Free numbers in pool
+     */
+    public int getFree() {
+        return free;
+    }
+
+    /**
+     * @return Count of numbers owned by pool (free and outstanding)
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Maximum count of numbers owned by pool
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public String toString() {
+        return type + "[gets=" + gets + ", hits=" + hits + ", puts=" + puts + ", created=" + created + ", growths=" + growths + ", exhaustions=" + exhaustions
+                + ", released=" + released + ", outstanding=" + outstanding + ", peakOutstanding=" + peakOutstanding + ", free=" + free
+                + ", capacity=" + capacity + ", maximumSize=" + maximumSize + "]";
+    }
+}
@@ -0,0 +1,20 @@
+package com.opencmath;
+
+import java.util.List;
+
+/**
+ * Shared storage of free pool objects behind thread caches of {@link PoolTemplate}.
+ * Objects are moved in batches, implementations must be thread safe
+ */
+interface PoolStorage<T> {
+    void push(Object[] items, int offset, int count);
+
+    /**
+     * @return number of objects stored into items, at most count
+     */
+    int pop(Object[] items, int offset, int count);
+
+    int size();
+
+    void collect(List<T> items);
+}
@@ -1,69 +1,675 @@
 package com.opencmath;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 class PoolTemplate<T> {
-    private final ArrayList<T> pool;
+    static final int BATCH_SIZE = 32;
+
+    private static final String PROPERTY_PREFIX = "opencmath.pool.";
+    // when disabled, get() allocates new object and put() does nothing, so JIT can use escape analysis
+    private static final boolean DISABLED = Boolean.getBoolean(PROPERTY_PREFIX + "disabled");
+    private static final String STORAGE_LOCKED = "locked";
+    private static final String STORAGE_LOCK_FREE = "lockfree";
+    private static final long BLOCK_POLL = 10;
+
+    private final PoolStorage<T> storage;
+    private final ArrayList<LocalCache<T>> caches;
+    private final ThreadLocal<LocalCache<T>> local;
     private final PoolFactory<T> factory;
-    private final int maxSize;
-    private int currentSize;
+    private final boolean numbers;
+    private final PoolTracker<T> tracker;
+    private volatile int maxSize;
+    private volatile int currentSize;
+    private volatile int peakOutstanding;
+    private long created;
+    private long growths;
+    private long exhaustions;
+    private long released;
+    private long retiredGets;
+    private long retiredHits;
+    private long retiredPuts;
+    private volatile int lowWatermark;
+    private volatile int highWatermark;
+    private volatile long trimDelay;
+    private volatile long lastShortage;
+    private volatile PoolExhaustionPolicy exhaustionPolicy;
+    private volatile long blockTimeout;
+    private volatile int waiting;
 
     PoolTemplate(int initialSize, int maximumSize, PoolFactory<T> poolFactory) {
+        this(initialSize, maximumSize, poolFactory, new LockedPoolStorage<T>());
+    }
+
+    /**
+     * Pool of number objects, initial and maximum sizes can be overridden by system properties
+     * "opencmath.pool.&lt;type&gt;.initialSize" and "opencmath.pool.&lt;type&gt;.maximumSize" (or "opencmath.pool.initialSize" and
+     * "opencmath.pool.maximumSize" for all types). Storage is selected by system property "opencmath.pool.&lt;type&gt;.storage"
+     * or "opencmath.pool.storage" with value "locked" (default) or "lockfree". Trimming is configured by
+     * properties "lowWatermark", "highWatermark" and "trimDelay" in same way. Debug tracking is enabled by
+     * property "debug" with value "true" or "stacks" (also records allocation stack traces). Behaviour of exhausted
+     * pool is set by property "exhaustionPolicy" with value "fail" (default), "block" or "allocate" and "blockTimeout"
+     */
+    PoolTemplate(NumberType type, int initialSize, int maximumSize, PoolFactory<T> poolFactory) {
+        this(Integer.parseInt(getProperty(type, "initialSize", Integer.toString(initialSize))),
+                Integer.parseInt(getProperty(type, "maximumSize", Integer.toString(maximumSize))),
+                poolFactory, PoolTemplate.<T>createStorage(type), true, PoolTemplate.<T>createTracker(type));
+
+        setTrimPolicy(Integer.parseInt(getProperty(type, "lowWatermark", Integer.toString(lowWatermark))),
+                Integer.parseInt(getProperty(type, "highWatermark", Integer.toString(Integer.MAX_VALUE))),
+                Long.parseLong(getProperty(type, "trimDelay", "-1")));
+
+        setExhaustionPolicy(PoolExhaustionPolicy.valueOf(getProperty(type, "exhaustionPolicy", "fail").toUpperCase(Locale.ROOT)),
+                Long.parseLong(getProperty(type, "blockTimeout", "1000")));
+    }
+
+    PoolTemplate(int initialSize, int maximumSize, PoolFactory<T> poolFactory, PoolStorage<T> poolStorage) {
+        this(initialSize, maximumSize, poolFactory, poolStorage, false, null);
+    }
+
+    PoolTemplate(int initialSize, int maximumSize, PoolFactory<T> poolFactory, PoolStorage<T> poolStorage, PoolTracker<T> poolTracker) {
+        this(initialSize, maximumSize, poolFactory, poolStorage, false, poolTracker);
+    }
+
+    // pool of numbers is recorded by arenas
+    private PoolTemplate(int initialSize, int maximumSize, PoolFactory<T> poolFactory, PoolStorage<T> poolStorage, boolean numberPool,
+                         PoolTracker<T> poolTracker) {
+        if ((initialSize < 0) || (maximumSize < initialSize)) {
+            throw new IllegalArgumentException("Invalid pool size " + initialSize + "/" + maximumSize);
+        }
+
+        numbers = numberPool;
+        tracker = poolTracker;
         maxSize = maximumSize;
         currentSize = initialSize;
+        peakOutstanding = 0;
+        created = initialSize;
+        growths = 0;
+        exhaustions = 0;
+        released = 0;
+        retiredGets = 0;
+        retiredHits = 0;
+        retiredPuts = 0;
         factory = poolFactory;
-        pool = new ArrayList<>();
+        storage = poolStorage;
+        lowWatermark = initialSize;
+        highWatermark = Integer.MAX_VALUE;
+        trimDelay = -1;
+        lastShortage = System.nanoTime();
+        exhaustionPolicy = PoolExhaustionPolicy.FAIL;
+        blockTimeout = 0;
+        waiting = 0;
+        caches = new ArrayList<>();
+        local = new ThreadLocal<LocalCache<T>>() {
+            @Override
+            protected LocalCache<T> initialValue() {
+                return register();
+            }
+        };
+
+        if (DISABLED) {
+            created = 0;
+            return;
+        }
+
+        Object[] items = new Object[initialSize];
 
         for (int i = 0; i < initialSize; i++) {
-            pool.add(factory.create());
+            items[i] = factory.create();
+        }
+
+        storage.push(items, 0, initialSize);
+    }
+
+    void put(T t) {
+        if (DISABLED) {
+            return;
+        }
+
+        if (tracker != null) {
+            tracker.released(t);
+        }
+
+        if (numbers) {
+            NumberArena.released((BaseNumber) t);
+        }
+
+        LocalCache<T> cache = local.get();
+
+        if (cache.count == cache.items.length) {
+            release(cache);
+        }
+
+        cache.items[cache.count++] = t;
+        cache.puts++;
+
+        if (exhaustionPolicy == PoolExhaustionPolicy.BLOCK) {
+            flush(cache);
         }
     }
 
-    synchronized void put(T t) {
-        pool.add(t);
+    // returns objects directly into global pool
+    void putAll(Object[] items) {
+        if (DISABLED) {
+            return;
+        }
+
+        if (tracker != null) {
+            for (Object item : items) {
+                @SuppressWarnings("unchecked")
+                T t = (T) item;
+                tracker.released(t);
+            }
+        }
+
+        storage.push(items, 0, items.length);
+        local.get().puts += items.length;
+        returned();
     }
 
-    synchronized T get() {
-        if (pool.size() == 0) {
-            if (currentSize < maxSize) {
-                if (currentSize * 2 > maxSize) {
-                    int i;
-                    for (i = 0; i < maxSize - currentSize; i++) {
-                        pool.add(factory.create());
+    T get() {
+        if (DISABLED) {
+            return factory.create();
+        }
+
+        LocalCache<T> cache = local.get();
+        cache.gets++; // failed retrievals are counted too
+
+        if ((cache.count > 0) || acquire(cache)) {
+            cache.hits++;
+        }
+
+        @SuppressWarnings("unchecked")
+        T t = (T) cache.items[--cache.count];
+        cache.items[cache.count] = null;
+
+        if (tracker != null) {
+            tracker.allocated(t);
+        }
+
+        if (numbers) {
+            NumberArena.allocated((BaseNumber) t);
+        }
+
+        return t;
+    }
+
+    /**
+     * Sets limits of free objects held in global pool
+     * @param low Number of free objects kept after trimming
+     * @param high Maximum number of free objects, objects put over this limit are left to garbage collector
+     * @param delay Milliseconds without shortage of free objects after which pool is trimmed to low watermark,
+     *              negative value disables automatic trimming
+     */
+    void setTrimPolicy(int low, int high, long delay) {
+        if ((low < 0) || (high < low)) {
+            throw new IllegalArgumentException();
+        }
+
+        lowWatermark = low;
+        highWatermark = high;
+        trimDelay = (delay < 0) ? -1 : delay * 1000000L;
+    }
+
+    /**
+     * Sets behaviour of pool without free objects at maximum size
+     * @param policy Exhaustion policy
+     * @param timeout Milliseconds to wait for returned objects with {@link PoolExhaustionPolicy#BLOCK}
+     */
+    void setExhaustionPolicy(PoolExhaustionPolicy policy, long timeout) {
+        if ((policy == null) || (timeout < 0)) {
+            throw new IllegalArgumentException();
+        }
+
+        exhaustionPolicy = policy;
+        blockTimeout = timeout * 1000000L;
+    }
+
+    /**
+     * Sets maximum number of objects owned by pool. Objects already created over new limit are released when returned
+     */
+    synchronized void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        maxSize = maximumSize;
+        discard(currentSize - maxSize);
+    }
+
+    /**
+     * Creates free objects in global pool, so they are not created during later retrievals
+     * @param count Required number of free objects in global pool, limited by maximum size and high watermark
+     * @return Number of created objects
+     */
+    synchronized int prewarm(int count) {
+        if (DISABLED) {
+            return 0;
+        }
+
+        count = Math.min(count, highWatermark) - storage.size();
+        count = Math.min(count, maxSize - currentSize);
+
+        if (count <= 0) {
+            return 0;
+        }
+
+        Object[] items = new Object[count];
+
+        for (int i = 0; i < count; i++) {
+            items[i] = factory.create();
+        }
+
+        currentSize += count;
+        created += count;
+        storage.push(items, 0, count);
+        return count;
+    }
+
+    /**
+     * Releases free objects from global pool above low watermark
+     * @return Number of released objects
+     */
+    int trim() {
+        return discard(storage.size() - lowWatermark);
+    }
+
+    /**
+     * Counters of pool. Counters of thread caches are read without synchronization, so snapshot is exact
+     * only when no other thread is using pool
+     */
+    PoolStatistics getStatistics(NumberType type) {
+        long gets;
+        long hits;
+        long puts;
+        int free = storage.size();
+
+        synchronized (caches) {
+            gets = retiredGets;
+            hits = retiredHits;
+            puts = retiredPuts;
+
+            for (LocalCache<T> cache : caches) {
+                gets += cache.gets;
+                hits += cache.hits;
+                puts += cache.puts;
+                free += cache.count;
+            }
+        }
+
+        synchronized (this) {
+            int outstanding = currentSize - free;
+
+            if (outstanding > peakOutstanding) {
+                peakOutstanding = outstanding;
+            }
+
+            return new PoolStatistics(type, gets, hits, puts, created, growths, exhaustions, released, outstanding,
+                    peakOutstanding, free, currentSize, maxSize);
+        }
+    }
+
+    /**
+     * @return Objects retrieved from pool and not returned yet, empty when debug tracking is disabled
+     */
+    List<PoolAllocation> getOutstanding() {
+        if (tracker == null) {
+            return new ArrayList<>();
+        }
+
+        return tracker.outstanding();
+    }
+
+    // looks for duplicates in linear time, items are copied first so global pool is not locked during check
+    boolean checkConsistency() {
+        ArrayList<T> items = collect();
+        Set<T> unique = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>(items.size()));
+
+        for (T t : items) {
+            if (!unique.add(t)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Free objects in global pool and in all thread caches. Caches of other threads are read without
+     * synchronization, so result is exact only when no other thread is using pool
+     */
+    int size() {
+        int size = storage.size();
+
+        synchronized (caches) {
+            for (LocalCache<T> cache : caches) {
+                size += cache.count;
+            }
+        }
+
+        return size;
+    }
+
+    private LocalCache<T> register() {
+        LocalCache<T> cache = new LocalCache<>(Thread.currentThread());
+
+        synchronized (caches) {
+            caches.add(cache);
+        }
+
+        return cache;
+    }
+
+    // moves half of full thread cache into global pool, objects over high watermark or maximum size are dropped
+    private void release(LocalCache<T> cache) {
+        cache.count -= BATCH_SIZE;
+
+        if ((storage.size() + BATCH_SIZE > highWatermark) || (currentSize > maxSize)) {
+            synchronized (this) {
+                currentSize -= BATCH_SIZE;
+                released += BATCH_SIZE;
+            }
+
+            if (tracker != null) {
+                for (int i = cache.count; i < cache.count + BATCH_SIZE; i++) {
+                    tracker.forget(cache.items[i]);
+                }
+            }
+        } else {
+            storage.push(cache.items, cache.count, BATCH_SIZE);
+
+            if (waiting > 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        for (int i = cache.count; i < cache.count + BATCH_SIZE; i++) {
+            cache.items[i] = null;
+        }
+
+        if ((trimDelay >= 0) && (storage.size() > lowWatermark) && (System.nanoTime() - lastShortage > trimDelay)) {
+            trim();
+            lastShortage = System.nanoTime();
+        }
+    }
+
+    // drops up to count objects from global pool
+    private synchronized int discard(int count) {
+        if (count <= 0) {
+            return 0;
+        }
+
+        Object[] items = new Object[Math.min(count, BATCH_SIZE)];
+        int discarded = 0;
+        int n;
+
+        while ((discarded < count) && ((n = storage.pop(items, 0, Math.min(count - discarded, items.length))) > 0)) {
+            discarded += n;
+
+            if (tracker != null) {
+                for (int i = 0; i < n; i++) {
+                    tracker.forget(items[i]);
+                }
+            }
+        }
+
+        currentSize -= discarded;
+        released += discarded;
+        return discarded;
+    }
+
+    // moves thread cache into global pool, so objects returned with BLOCK policy are visible to blocked retrievals
+    private void flush(LocalCache<T> cache) {
+        storage.push(cache.items, 0, cache.count);
+        Arrays.fill(cache.items, 0, cache.count, null);
+        cache.count = 0;
+        returned();
+    }
+
+    // drops objects over high watermark or maximum size and wakes retrievals blocked by exhausted pool
+    private void returned() {
+        int excess = Math.max(storage.size() - highWatermark, currentSize - maxSize);
+
+        if (excess > 0) {
+            discard(excess);
+        }
+
+        if (waiting > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    // thread caches hold no free objects with BLOCK policy, retrieval takes single object from global pool
+    private int batchSize() {
+        return (exhaustionPolicy == PoolExhaustionPolicy.BLOCK) ? 1 : BATCH_SIZE;
+    }
+
+    // fills empty thread cache with batch from global pool, returns false when no free object was found
+    private boolean acquire(LocalCache<T> cache) {
+        sampleOutstanding();
+        int batch = batchSize();
+        boolean hit = true;
+        cache.count = storage.pop(cache.items, 0, batch);
+
+        if (cache.count == 0) {
+            synchronized (this) {
+                cache.count = storage.pop(cache.items, 0, batch);
+
+                if (cache.count == 0) {
+                    reclaim();
+                    cache.count = storage.pop(cache.items, 0, batch);
+                }
+
+                if (cache.count == 0) {
+                    hit = false;
+
+                    if (currentSize < maxSize) {
+                        grow(cache);
+                    } else {
+                        exhausted(cache);
                     }
-                    currentSize += i;
-                } else {
-                    for (int i = 0; i < currentSize; i++) {
-                        pool.add(factory.create());
+                }
+            }
+        }
+
+        if ((trimDelay >= 0) && (storage.size() <= lowWatermark)) {
+            lastShortage = System.nanoTime();
+        }
+
+        return hit;
+    }
+
+    // objects in use are sampled when thread cache is empty, that is after each batch of retrievals
+    private void sampleOutstanding() {
+        int outstanding = currentSize - storage.size();
+
+        synchronized (caches) {
+            for (LocalCache<T> cache : caches) {
+                outstanding -= cache.count;
+            }
+        }
+
+        if (outstanding > peakOutstanding) {
+            peakOutstanding = outstanding;
+        }
+    }
+
+    // creates new objects, first batch goes directly into thread cache
+    private void grow(LocalCache<T> cache) {
+        int count;
+
+        if ((long) currentSize * 2 > maxSize) {
+            count = maxSize - currentSize;
+        } else {
+            count = Math.min(Math.max(currentSize, BATCH_SIZE), maxSize - currentSize);
+        }
+
+        count = Math.min(count, Math.max(highWatermark, BATCH_SIZE)); // no growth over high watermark
+
+        Object[] items = new Object[count];
+
+        for (int i = 0; i < count; i++) {
+            items[i] = factory.create();
+        }
+
+        currentSize += count;
+        created += count;
+        growths++;
+        cache.count = Math.min(count, batchSize());
+        System.arraycopy(items, 0, cache.items, 0, cache.count);
+        storage.push(items, cache.count, count - cache.count);
+    }
+
+    // pool is at maximum size, called with pool locked and empty thread cache
+    private void exhausted(LocalCache<T> cache) {
+        exhaustions++;
+
+        switch (exhaustionPolicy) {
+            case FAIL:
+                break;
+            case BLOCK: {
+                // objects are returned directly into global pool with this policy, caches of terminated threads are polled
+                long deadline = System.nanoTime() + blockTimeout;
+                long remaining = blockTimeout;
+                waiting++;
+
+                try {
+                    while ((cache.count == 0) && (remaining > 0)) {
+                        wait(Math.min(Math.max(remaining / 1000000L, 1), BLOCK_POLL));
+                        reclaim();
+                        cache.count = storage.pop(cache.items, 0, 1);
+
+                        if ((cache.count == 0) && (currentSize < maxSize)) {
+                            grow(cache); // maximum size was increased
+                        }
+
+                        remaining = deadline - System.nanoTime();
                     }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    waiting--;
+                }
 
-                    currentSize += currentSize;
+                if (cache.count > 0) {
+                    return;
                 }
-            } else {
-                throw new RuntimeException("Maximum number of pool object removed, no more data");
+
+                break;
             }
+            case ALLOCATE:
+                // counted as pool object, so it is released when returned while pool is over maximum size
+                cache.items[0] = factory.create();
+                cache.count = 1;
+                currentSize++;
+                created++;
+                return;
         }
 
-        return pool.remove(pool.size() - 1);
+        throw new PoolExhaustedException("Pool reached maximum size " + maxSize + ", no free object available", maxSize);
     }
 
-    synchronized boolean checkConsistency() {
-        for (int i = 0; i < pool.size() - 1; i++) {
-            T t1 = pool.get(i);
+    // returns objects from caches of terminated threads back to global pool
+    private void reclaim() {
+        synchronized (caches) {
+            for (int i = caches.size() - 1; i >= 0; i--) {
+                LocalCache<T> cache = caches.get(i);
+                Thread owner = cache.owner.get();
+
+                if ((owner == null) || !owner.isAlive()) {
+                    storage.push(cache.items, 0, cache.count);
+                    cache.count = 0;
+                    retiredGets += cache.gets;
+                    retiredHits += cache.hits;
+                    retiredPuts += cache.puts;
+                    caches.remove(i);
+                }
+            }
+        }
 
-            for (int j = i + 1; j < pool.size(); j++) {
-                T t2 = pool.get(j);
+        discard(storage.size() - highWatermark);
+    }
+
+    private ArrayList<T> collect() {
+        ArrayList<T> items = new ArrayList<>();
+        storage.collect(items);
 
-                if (t1 == t2) {
-                    return false;
+        synchronized (caches) {
+            for (LocalCache<T> cache : caches) {
+                for (int i = 0; i < cache.count; i++) {
+                    @SuppressWarnings("unchecked")
+                    T t = (T) cache.items[i];
+                    items.add(t);
                 }
             }
         }
 
-        return true;
+        return items;
     }
 
-    synchronized int size() {
-        return pool.size();
+    private static <T> PoolStorage<T> createStorage(NumberType type) {
+        String value = getProperty(type, "storage", STORAGE_LOCKED);
+
+        switch (value) {
+            case STORAGE_LOCKED:
+                return new LockedPoolStorage<>();
+            case STORAGE_LOCK_FREE:
+                return new LockFreePoolStorage<>();
+            default:
+                throw new IllegalArgumentException("Unknown pool storage: " + value);
+        }
+    }
+
+    private static <T> PoolTracker<T> createTracker(NumberType type) {
+        String value = getProperty(type, "debug", "false");
+
+        switch (value) {
+            case "false":
+                return null;
+            case "true":
+                return new PoolTracker<>(false);
+            case "stacks":
+                return new PoolTracker<>(true);
+            default:
+                throw new IllegalArgumentException("Unknown pool debug mode: " + value);
+        }
+    }
+
+    // per type property "opencmath.pool.<type>.<name>" overrides global property "opencmath.pool.<name>"
+    static String getProperty(NumberType type, String name, String defaultValue) {
+        String value = System.getProperty(PROPERTY_PREFIX + name, defaultValue);
+        return System.getProperty(PROPERTY_PREFIX + type.name().toLowerCase(Locale.ROOT) + "." + name, value);
+    }
+
+    /**
+     * Per-thread front of pool. Accessed without locking by owner thread, global pool is touched only
+     * when cache is empty or full and then whole batch is moved at once
+     */
+    private static final class LocalCache<T> {
+        final WeakReference<Thread> owner;
+        final Object[] items;
+        int count;
+        long gets;
+        long hits;
+        long puts;
+
+        LocalCache(Thread thread) {
+            owner = new WeakReference<>(thread);
+            items = new Object[BATCH_SIZE * 2];
+            count = 0;
+            gets = 0;
+            hits = 0;
+            puts = 0;
+        }
     }
 }
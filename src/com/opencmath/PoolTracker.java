@@ -0,0 +1,97 @@
+package com.opencmath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Debug tracking of pool objects. Each retrieved object is tagged with generation and optionally with
+ * allocation stack, so double put is found in O(1) and leaked objects can be listed with their allocation sites
+ */
+class PoolTracker<T> {
+    private final Map<Object, Record> records;
+    private final boolean stacks;
+    private long generation;
+
+    PoolTracker(boolean stacks) {
+        this.stacks = stacks;
+        records = new IdentityHashMap<>();
+        generation = 0;
+    }
+
+    synchronized void allocated(T t) {
+        Record record = records.get(t);
+
+        if (record == null) {
+            record = new Record();
+            records.put(t, record);
+        }
+
+        generation++;
+        record.generation = generation;
+        record.thread = Thread.currentThread().getName();
+        record.allocation = stacks ? new Throwable("Retrieved from pool") : null;
+        record.release = null;
+        record.outstanding = true;
+    }
+
+    synchronized void released(T t) {
+        Record record = records.get(t);
+
+        if (record == null) {
+            throw new IllegalStateException("Object " + t + " was not retrieved from pool");
+        }
+
+        if (!record.outstanding) {
+            IllegalStateException e = new IllegalStateException("Object " + t + " put into pool twice, retrieved in generation "
+                    + record.generation + " by thread '" + record.thread + "'");
+
+            if (record.release != null) {
+                e.initCause(record.release);
+            }
+
+            throw e;
+        }
+
+        record.outstanding = false;
+        record.allocation = null;
+        record.release = stacks ? new Throwable("Previously put into pool") : null;
+    }
+
+    // object released by pool to garbage collector
+    synchronized void forget(Object t) {
+        records.remove(t);
+    }
+
+    synchronized List<PoolAllocation> outstanding() {
+        List<PoolAllocation> list = new ArrayList<>();
+
+        for (Map.Entry<Object, Record> entry : records.entrySet()) {
+            Record record = entry.getValue();
+
+            if (record.outstanding) {
+                list.add(new PoolAllocation(entry.getKey(), record.generation, record.thread, record.allocation));
+            }
+        }
+
+        Collections.sort(list, new Comparator<PoolAllocation>() {
+            @Override
+            public int compare(PoolAllocation o1, PoolAllocation o2) {
+                return Long.compare(o1.getGeneration(), o2.getGeneration());
+            }
+        });
+
+        return list;
+    }
+
+    private static final class Record {
+        long generation;
+        String thread;
+        Throwable allocation;
+        Throwable release;
+        boolean outstanding;
+    }
+}
@@ -0,0 +1,302 @@
+package com.opencmath;
+
+/**
+ * Householder QR decomposition with column pivoting of real or complex matrix, AP = QR. Householder vectors are
+ * stored in place of source items on and below diagonal, R is stored above diagonal and its diagonal separately.
+ * Column with largest remaining norm is selected in each step, so |R[k][k]| does not increase and rank is
+ * number of diagonal items above tolerance
+ */
+final class QRDecomposition {
+    final int rows;
+    final int cols;
+    final int steps;
+    final double[] re;
+    final double[] im; // null for real matrix
+    final double[] diagonalRe;
+    final double[] diagonalIm; // null for real matrix
+    final int[] permutation; // column j of AP is column permutation[j] of A
+    private final double[] norms; // squared norms of Householder vectors, 0 for skipped reflection
+
+    /**
+     * @param re Row-major real parts of items, overwritten by factors
+     * @param im Row-major imaginary parts of items or null for real matrix, overwritten by factors
+     * @param rows Number of rows
+     * @param cols Number of columns
+     */
+    QRDecomposition(double[] re, double[] im, int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.re = re;
+        this.im = im;
+        steps = Math.min(rows, cols);
+        diagonalRe = new double[steps];
+        diagonalIm = (im != null) ? new double[steps] : null;
+        permutation = new int[cols];
+        norms = new double[steps];
+
+        for (int j = 0; j < cols; j++) {
+            permutation[j] = j;
+        }
+
+        factor();
+    }
+
+    /**
+     * @return Tolerance max(rows, cols) * eps * |R[0][0]|, diagonal items below it are considered zero
+     */
+    double tolerance() {
+        if (steps == 0) {
+            return 0;
+        }
+
+        return Math.max(rows, cols) * Math.ulp(1.0) * abs(0);
+    }
+
+    /**
+     * @param tolerance Largest diagonal item of R which is considered zero
+     * @return Number of diagonal items of R above tolerance
+     */
+    int rank(double tolerance) {
+        int rank = 0;
+
+        while ((rank < steps) && (abs(rank) > tolerance)) {
+            rank++;
+        }
+
+        return rank;
+    }
+
+    /**
+     * Least squares solution of AX = B, which minimizes |AX - B|. Rank deficient matrix gives basic solution with
+     * zero items for columns above rank
+     * @param bRe Row-major real parts of right side with rows items per column, overwritten
+     * @param bIm Row-major imaginary parts of right side, must not be null for complex matrix
+     * @param count Number of right side columns
+     * @param rank Number of used columns of R
+     * @return Row-major real and imaginary parts (null for real result) of solution with cols rows
+     */
+    double[][] solve(double[] bRe, double[] bIm, int count, int rank) {
+        for (int k = 0; k < steps; k++) {
+            for (int j = 0; j < count; j++) {
+                reflect(k, bRe, bIm, count, j);
+            }
+        }
+
+        double[] xRe = new double[cols * count];
+        double[] xIm = (bIm != null) ? new double[cols * count] : null;
+
+        // back substitution with R, solution rows are permuted back
+        for (int j = 0; j < count; j++) {
+            for (int i = rank - 1; i >= 0; i--) {
+                double sumRe = bRe[i * count + j];
+                double sumIm = (bIm != null) ? bIm[i * count + j] : 0;
+
+                for (int l = i + 1; l < rank; l++) {
+                    double rRe = re[i * cols + l];
+                    double rIm = (im != null) ? im[i * cols + l] : 0;
+                    double zRe = bRe[l * count + j];
+                    double zIm = (bIm != null) ? bIm[l * count + j] : 0;
+                    sumRe -= rRe * zRe - rIm * zIm;
+                    sumIm -= rRe * zIm + rIm * zRe;
+                }
+
+                double dRe = diagonalRe[i];
+                double dIm = (im != null) ? diagonalIm[i] : 0;
+                double divisor = dRe * dRe + dIm * dIm;
+                bRe[i * count + j] = (sumRe * dRe + sumIm * dIm) / divisor;
+
+                if (bIm != null) {
+                    bIm[i * count + j] = (sumIm * dRe - sumRe * dIm) / divisor;
+                }
+            }
+
+            for (int i = 0; i < rank; i++) {
+                xRe[permutation[i] * count + j] = bRe[i * count + j];
+
+                if (xIm != null) {
+                    xIm[permutation[i] * count + j] = bIm[i * count + j];
+                }
+            }
+        }
+
+        return new double[][]{xRe, xIm};
+    }
+
+    /**
+     * @return Row-major real and imaginary parts (null for real matrix) of Q with rows x steps items
+     */
+    double[][] q() {
+        double[] qRe = new double[rows * steps];
+        double[] qIm = (im != null) ? new double[rows * steps] : null;
+
+        for (int i = 0; i < steps; i++) {
+            qRe[i * steps + i] = 1;
+        }
+
+        // Q = H0 H1 ... applied to first columns of identity
+        for (int k = steps - 1; k >= 0; k--) {
+            for (int j = k; j < steps; j++) {
+                reflect(k, qRe, qIm, steps, j);
+            }
+        }
+
+        return new double[][]{qRe, qIm};
+    }
+
+    /**
+     * @return Row-major real and imaginary parts (null for real matrix) of R with steps x cols items
+     */
+    double[][] r() {
+        double[] rRe = new double[steps * cols];
+        double[] rIm = (im != null) ? new double[steps * cols] : null;
+
+        for (int i = 0; i < steps; i++) {
+            rRe[i * cols + i] = diagonalRe[i];
+
+            if (im != null) {
+                rIm[i * cols + i] = diagonalIm[i];
+            }
+
+            for (int j = i + 1; j < cols; j++) {
+                rRe[i * cols + j] = re[i * cols + j];
+
+                if (im != null) {
+                    rIm[i * cols + j] = im[i * cols + j];
+                }
+            }
+        }
+
+        return new double[][]{rRe, rIm};
+    }
+
+    private void factor() {
+        double[] columnNorms = new double[cols];
+
+        for (int k = 0; k < steps; k++) {
+            // column with largest norm of remaining rows
+            int pivot = k;
+
+            for (int j = k; j < cols; j++) {
+                columnNorms[j] = columnNorm(k, j);
+
+                if (columnNorms[j] > columnNorms[pivot]) {
+                    pivot = j;
+                }
+            }
+
+            if (pivot != k) {
+                swapColumns(re, k, pivot);
+
+                if (im != null) {
+                    swapColumns(im, k, pivot);
+                }
+
+                int tmp = permutation[k];
+                permutation[k] = permutation[pivot];
+                permutation[pivot] = tmp;
+            }
+
+            double norm = Math.sqrt(columnNorms[pivot]);
+
+            if (norm == 0) { // remaining items are zero
+                break;
+            }
+
+            // alpha = -phase(x0) * |x|, v = x - alpha * e1 has no cancellation in first item
+            double x0Re = re[k * cols + k];
+            double x0Im = (im != null) ? im[k * cols + k] : 0;
+            double x0Abs = Math.hypot(x0Re, x0Im);
+            double alphaRe = (x0Abs != 0) ? -x0Re / x0Abs * norm : -norm;
+            double alphaIm = (x0Abs != 0) ? -x0Im / x0Abs * norm : 0;
+
+            re[k * cols + k] -= alphaRe;
+
+            if (im != null) {
+                im[k * cols + k] -= alphaIm;
+                diagonalIm[k] = alphaIm;
+            }
+
+            diagonalRe[k] = alphaRe;
+            norms[k] = columnNorm(k, k);
+
+            for (int j = k + 1; j < cols; j++) {
+                reflect(k, re, im, cols, j);
+            }
+        }
+    }
+
+    // applies reflection I - 2 v v^H / |v|^2 of step k to rows from k of column j in row-major matrix b
+    private void reflect(int k, double[] bRe, double[] bIm, int bCols, int j) {
+        if (norms[k] == 0) {
+            return;
+        }
+
+        if ((im == null) && (bIm == null)) {
+            double sum = 0;
+
+            for (int i = k; i < rows; i++) {
+                sum += re[i * cols + k] * bRe[i * bCols + j];
+            }
+
+            double factor = 2 * sum / norms[k];
+
+            if (factor != 0) {
+                for (int i = k; i < rows; i++) {
+                    bRe[i * bCols + j] -= factor * re[i * cols + k];
+                }
+            }
+
+            return;
+        }
+
+        double sumRe = 0;
+        double sumIm = 0;
+
+        for (int i = k; i < rows; i++) {
+            double vRe = re[i * cols + k];
+            double vIm = (im != null) ? im[i * cols + k] : 0;
+            double xRe = bRe[i * bCols + j];
+            double xIm = (bIm != null) ? bIm[i * bCols + j] : 0;
+            sumRe += vRe * xRe + vIm * xIm;
+            sumIm += vRe * xIm - vIm * xRe;
+        }
+
+        double factorRe = 2 * sumRe / norms[k];
+        double factorIm = 2 * sumIm / norms[k];
+
+        for (int i = k; i < rows; i++) {
+            double vRe = re[i * cols + k];
+            double vIm = (im != null) ? im[i * cols + k] : 0;
+            bRe[i * bCols + j] -= factorRe * vRe - factorIm * vIm;
+
+            if (bIm != null) {
+                bIm[i * bCols + j] -= factorRe * vIm + factorIm * vRe;
+            }
+        }
+    }
+
+    // squared norm of rows from k of column j
+    private double columnNorm(int k, int j) {
+        double sum = 0;
+
+        for (int i = k; i < rows; i++) {
+            double itemRe = re[i * cols + j];
+            double itemIm = (im != null) ? im[i * cols + j] : 0;
+            sum += itemRe * itemRe + itemIm * itemIm;
+        }
+
+        return sum;
+    }
+
+    private double abs(int k) {
+        return Math.hypot(diagonalRe[k], (diagonalIm != null) ? diagonalIm[k] : 0);
+    }
+
+    private void swapColumns(double[] a, int from, int to) {
+        for (int i = 0; i < rows; i++) {
+            double tmp = a[i * cols + from];
+            a[i * cols + from] = a[i * cols + to];
+            a[i * cols + to] = tmp;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.opencmath;
+
+/**
+ * QR decomposition with column pivoting of MATRIX with numeric items, AP = QR, where Q has orthonormal columns,
+ * R is upper triangular and P is permutation of columns. Rank is number of diagonal items of R above tolerance,
+ * {@link #solve(BaseNumber)} gives least squares solution of overdetermined systems
+ * <pre>
+ * QRFactorization a = BaseNumber.factorizeQR(matrix);
+ * int rank = a.getRank();
+ * BaseNumber x = a.solve(b);
+ * </pre>
+ * @see BaseNumber#factorizeQR(BaseNumber)
+ */
+public final class QRFactorization {
+    private final QRDecomposition qr;
+    private final int rank;
+
+    // matrix must have numeric items, it is put back into pool
+    QRFactorization(MatrixNumber matrix) {
+        qr = new QRDecomposition(matrix.realParts(), matrix.imagParts(), matrix.rows, matrix.cols);
+        rank = qr.rank(qr.tolerance());
+        BaseNumber.put(matrix);
+    }
+
+    /**
+     * @return Number of rows of factorized matrix
+     */
+    public int getRows() {
+        return qr.rows;
+    }
+
+    /**
+     * @return Number of columns of factorized matrix
+     */
+    public int getCols() {
+        return qr.cols;
+    }
+
+    /**
+     * Numerical rank with tolerance max(rows, cols) * eps * |R[0][0]|
+     * @return Number of diagonal items of R above tolerance
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * @param tolerance Largest absolute value of diagonal item of R which is considered zero
+     * @return Number of diagonal items of R above tolerance
+     */
+    public int getRank(double tolerance) {
+        return qr.rank(tolerance);
+    }
+
+    /**
+     * @return MATRIX Q with orthonormal columns, rows x min(rows, cols)
+     */
+    public BaseNumber getQ() {
+        double[][] q = qr.q();
+        return matrix(qr.steps, qr.rows, q);
+    }
+
+    /**
+     * @return Upper triangular MATRIX R, min(rows, cols) x cols
+     */
+    public BaseNumber getR() {
+        double[][] r = qr.r();
+        return matrix(qr.cols, qr.steps, r);
+    }
+
+    /**
+     * @return Column permutation, column j of AP is column permutation[j] of A
+     */
+    public int[] getPermutation() {
+        return qr.permutation.clone();
+    }
+
+    /**
+     * Solves AX = B in least squares sense, X minimizes |AX - B|. Columns above rank get zero items
+     * @param rhs Right side B, MATRIX with same number of rows as A. It is put back into pool
+     * @return MATRIX X with cols rows, INVALID for wrong right side
+     */
+    public BaseNumber solve(BaseNumber rhs) {
+        if ((rhs.type != NumberType.MATRIX) || (((MatrixNumber) rhs).rows != qr.rows) || !((MatrixNumber) rhs).isNumeric()) {
+            BaseNumber.put(rhs);
+            return InvalidNumber.get();
+        }
+
+        MatrixNumber b = (MatrixNumber) rhs;
+        int count = b.cols;
+        double[] itemsRe = b.realParts();
+        double[] itemsIm = b.imagParts();
+
+        if ((qr.im != null) && (itemsIm == null)) {
+            itemsIm = new double[itemsRe.length];
+        }
+
+        BaseNumber.put(b); // primitive storage of right side is taken over
+        return matrix(count, qr.cols, qr.solve(itemsRe, itemsIm, count, rank));
+    }
+
+    private static BaseNumber matrix(int cols, int rows, double[][] items) {
+        return BaseNumber.simplify((items[1] != null) ? MatrixNumber.get(cols, rows, items[0], items[1]) : MatrixNumber.get(cols, rows, items[0]));
+    }
+}
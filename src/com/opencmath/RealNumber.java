@@ -2,7 +2,7 @@ package com.opencmath;
 
 class RealNumber extends BaseNumber {
 
-    private static final PoolTemplate<RealNumber> pool = new PoolTemplate<>(100, 100000, new PoolFactory<RealNumber>() {
+    static final PoolTemplate<RealNumber> pool = new PoolTemplate<>(NumberType.REAL, 100, 100000, new PoolFactory<RealNumber>() {
         @Override
         public RealNumber create() {
             return new RealNumber();
@@ -124,6 +124,7 @@ class RealNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).sub(matrixNumber.value[i]);
@@ -210,6 +211,7 @@ class RealNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).div(matrixNumber.value[i]);
@@ -305,6 +307,7 @@ class RealNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).log(matrixNumber.value[i]);
@@ -375,6 +378,7 @@ class RealNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).pow(matrixNumber.value[i]);
@@ -469,6 +473,7 @@ class RealNumber extends BaseNumber {
             }
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) exp;
+                matrixNumber.box();
 
                 for (int i = 0; i < matrixNumber.value.length; i++) {
                     matrixNumber.value[i] = duplicate(this).root(matrixNumber.value[i]);
@@ -827,6 +832,37 @@ class RealNumber extends BaseNumber {
         return IntegerNumber.get(0);
     }
 
+    @Override
+    public BaseNumber solve(BaseNumber rhs) {
+        return rhs.div(this);
+    }
+
+    @Override
+    public BaseNumber matrixPow(BaseNumber exponent) {
+        return pow(exponent);
+    }
+
+    @Override
+    public BaseNumber eigenvalues() {
+        return this;
+    }
+
+    @Override
+    public BaseNumber pinv() {
+        return inv();
+    }
+
+    @Override
+    public BaseNumber norm2() {
+        return abs();
+    }
+
+    @Override
+    public BaseNumber cond() {
+        put(this);
+        return IntegerNumber.get(1);
+    }
+
     @Override
     public BaseNumber rank() {
         put(this);
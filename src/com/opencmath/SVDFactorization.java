@@ -0,0 +1,113 @@
+package com.opencmath;
+
+/**
+ * Singular value decomposition of MATRIX with numeric items, A = U diag(values) V^H, where U and V have orthonormal
+ * columns and singular values are in descending order. Pseudo-inverse, 2-norm, condition number and numerical rank
+ * are built on singular values. Values and vectors are NaN when Jacobi iteration does not converge
+ * <pre>
+ * SVDFactorization a = BaseNumber.factorizeSVD(matrix);
+ * double cond = a.getCondition();
+ * BaseNumber x = a.pinv().mul(b);
+ * </pre>
+ * @see BaseNumber#factorizeSVD(BaseNumber)
+ */
+public final class SVDFactorization {
+    private final SingularValueDecomposition svd;
+
+    // matrix must have numeric items, it is put back into pool
+    SVDFactorization(MatrixNumber matrix, boolean vectors) {
+        svd = new SingularValueDecomposition(matrix.realParts(), matrix.imagParts(), matrix.rows, matrix.cols, vectors);
+        BaseNumber.put(matrix);
+    }
+
+    SVDFactorization(MatrixNumber matrix) {
+        this(matrix, true);
+    }
+
+    /**
+     * @return Number of rows of factorized matrix
+     */
+    public int getRows() {
+        return svd.rows;
+    }
+
+    /**
+     * @return Number of columns of factorized matrix
+     */
+    public int getCols() {
+        return svd.cols;
+    }
+
+    /**
+     * @return Column MATRIX of min(rows, cols) singular values in descending order, scalar for single value
+     */
+    public BaseNumber getValues() {
+        return matrix(1, svd.steps, svd.values, null);
+    }
+
+    /**
+     * @return MATRIX U with orthonormal columns, rows x min(rows, cols)
+     */
+    public BaseNumber getU() {
+        return matrix(svd.steps, svd.rows, svd.uRe, svd.uIm);
+    }
+
+    /**
+     * @return MATRIX V with orthonormal columns, cols x min(rows, cols)
+     */
+    public BaseNumber getV() {
+        return matrix(svd.steps, svd.cols, svd.vRe, svd.vIm);
+    }
+
+    /**
+     * Numerical rank with tolerance max(rows, cols) * eps * largest singular value
+     * @return Number of singular values above tolerance
+     */
+    public int getRank() {
+        return svd.rank(svd.tolerance());
+    }
+
+    /**
+     * @param tolerance Largest singular value which is considered zero
+     * @return Number of singular values above tolerance
+     */
+    public int getRank(double tolerance) {
+        return svd.rank(tolerance);
+    }
+
+    /**
+     * @return Largest singular value
+     */
+    public double getNorm2() {
+        return svd.values[0];
+    }
+
+    /**
+     * @return Ratio of largest and smallest singular value, infinity for rank deficient matrix
+     */
+    public double getCondition() {
+        double min = svd.values[svd.steps - 1];
+        return (min == 0) ? Double.POSITIVE_INFINITY : svd.values[0] / min;
+    }
+
+    /**
+     * Moore-Penrose pseudo-inverse, singular values up to max(rows, cols) * eps * largest singular value are skipped
+     * @return Pseudo-inverse MATRIX, cols x rows
+     */
+    public BaseNumber pinv() {
+        return pinv(svd.tolerance());
+    }
+
+    /**
+     * @param tolerance Largest singular value which is considered zero
+     * @return Pseudo-inverse MATRIX, cols x rows
+     */
+    public BaseNumber pinv(double tolerance) {
+        double[][] x = svd.pseudoInverse(tolerance);
+        return matrix(svd.rows, svd.cols, x[0], x[1]);
+    }
+
+    private static BaseNumber matrix(int cols, int rows, double[] re, double[] im) {
+        return BaseNumber.simplify((im != null) ? MatrixNumber.get(cols, rows, re.clone(), im.clone()) : MatrixNumber.get(cols, rows, re.clone()));
+    }
+}
@@ -0,0 +1,423 @@
+package com.opencmath;
+
+import java.util.Arrays;
+
+/**
+ * Singular value decomposition of real or complex matrix by one-sided Jacobi rotations, A = U diag(values) V^H.
+ * Pairs of columns are rotated until they are orthogonal, then column norms are singular values. Wide matrix is
+ * decomposed as its conjugate transpose. Each sweep runs in round-robin order, where all pairs of one round are
+ * disjoint and rotated in parallel by {@link MatrixParallel}. Columns are stored contiguously during iteration
+ */
+final class SingularValueDecomposition {
+    private static final double EPSILON = Math.ulp(1.0);
+    private static final int MAX_SWEEPS = 60;
+
+    final int rows;
+    final int cols;
+    final int steps;
+    final double[] values; // descending, NaN when iteration does not converge
+    final double[] uRe; // row-major rows x steps, null when vectors are not computed
+    final double[] uIm; // null for real matrix
+    final double[] vRe; // row-major cols x steps, null when vectors are not computed
+    final double[] vIm; // null for real matrix
+
+    // working columns, length of column is p
+    private final int p;
+    private final double[] wRe;
+    private final double[] wIm;
+    private final double[] jRe;
+    private final double[] jIm;
+
+    /**
+     * Source items are not modified
+     * @param re Row-major real parts of items
+     * @param im Row-major imaginary parts of items or null for real matrix
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param vectors True when singular vectors are computed
+     */
+    SingularValueDecomposition(double[] re, double[] im, int rows, int cols, boolean vectors) {
+        this.rows = rows;
+        this.cols = cols;
+        boolean transposed = (rows < cols);
+        p = Math.max(rows, cols);
+        steps = Math.min(rows, cols);
+        wRe = new double[p * steps];
+        wIm = (im != null) ? new double[p * steps] : null;
+
+        // column k of A, or column k of A^H, which is conjugated row k of A
+        for (int k = 0; k < steps; k++) {
+            for (int i = 0; i < p; i++) {
+                int index = transposed ? k * cols + i : i * cols + k;
+                wRe[k * p + i] = re[index];
+
+                if (im != null) {
+                    wIm[k * p + i] = transposed ? -im[index] : im[index];
+                }
+            }
+        }
+
+        // accumulated rotations, column k of J is contiguous
+        jRe = vectors ? new double[steps * steps] : null;
+        jIm = (vectors && (im != null)) ? new double[steps * steps] : null;
+
+        if (vectors) {
+            for (int k = 0; k < steps; k++) {
+                jRe[k * steps + k] = 1;
+            }
+        }
+
+        boolean converged = sweeps();
+        values = new double[steps];
+        int[] order = new int[steps];
+
+        for (int k = 0; k < steps; k++) {
+            values[k] = Math.sqrt(norm(wRe, wIm, k, p));
+            order[k] = k;
+        }
+
+        // selection sort, descending
+        for (int i = 0; i < steps - 1; i++) {
+            int max = i;
+
+            for (int k = i + 1; k < steps; k++) {
+                if (values[order[k]] > values[order[max]]) {
+                    max = k;
+                }
+            }
+
+            int tmp = order[i];
+            order[i] = order[max];
+            order[max] = tmp;
+        }
+
+        double[] sorted = new double[steps];
+
+        for (int k = 0; k < steps; k++) {
+            sorted[k] = converged ? values[order[k]] : Double.NaN;
+        }
+
+        if (!vectors) {
+            System.arraycopy(sorted, 0, values, 0, steps);
+            uRe = null;
+            uIm = null;
+            vRe = null;
+            vIm = null;
+            return;
+        }
+
+        // left vectors of working matrix are normalized columns, right vectors are columns of J
+        double[] leftRe = new double[p * steps];
+        double[] leftIm = (im != null) ? new double[p * steps] : null;
+
+        for (int k = 0; k < steps; k++) {
+            int from = order[k];
+
+            for (int i = 0; i < p; i++) {
+                double scale = (values[from] != 0) ? values[from] : 1;
+                leftRe[k * p + i] = wRe[from * p + i] / scale;
+
+                if (im != null) {
+                    leftIm[k * p + i] = wIm[from * p + i] / scale;
+                }
+            }
+        }
+
+        System.arraycopy(sorted, 0, values, 0, steps);
+
+        for (int k = 0; k < steps; k++) {
+            if (values[k] == 0) {
+                complete(leftRe, leftIm, k);
+            }
+        }
+
+        double[] rightRe = new double[steps * steps];
+        double[] rightIm = (im != null) ? new double[steps * steps] : null;
+
+        for (int k = 0; k < steps; k++) {
+            System.arraycopy(jRe, order[k] * steps, rightRe, k * steps, steps);
+
+            if (im != null) {
+                System.arraycopy(jIm, order[k] * steps, rightIm, k * steps, steps);
+            }
+        }
+
+        // A^H = L S R^H gives A = R S L^H
+        uRe = transposed ? rowMajor(rightRe, steps) : rowMajor(leftRe, p);
+        uIm = (im == null) ? null : transposed ? rowMajor(rightIm, steps) : rowMajor(leftIm, p);
+        vRe = transposed ? rowMajor(leftRe, p) : rowMajor(rightRe, steps);
+        vIm = (im == null) ? null : transposed ? rowMajor(leftIm, p) : rowMajor(rightIm, steps);
+
+        if (!converged) {
+            Arrays.fill(uRe, Double.NaN);
+            Arrays.fill(vRe, Double.NaN);
+
+            if (im != null) {
+                Arrays.fill(uIm, Double.NaN);
+                Arrays.fill(vIm, Double.NaN);
+            }
+        }
+    }
+
+    /**
+     * @param tolerance Largest singular value which is considered zero
+     * @return Number of singular values above tolerance
+     */
+    int rank(double tolerance) {
+        int rank = 0;
+
+        while ((rank < steps) && (values[rank] > tolerance)) {
+            rank++;
+        }
+
+        return rank;
+    }
+
+    /**
+     * @return Tolerance max(rows, cols) * eps * largest singular value
+     */
+    double tolerance() {
+        return (steps > 0) ? p * EPSILON * values[0] : 0;
+    }
+
+    /**
+     * Pseudo-inverse V diag(1 / values) U^H, singular values up to tolerance are skipped. Vectors must be computed
+     * @param tolerance Largest singular value which is considered zero
+     * @return Row-major real and imaginary parts (null for real matrix) of cols x rows pseudo-inverse
+     */
+    double[][] pseudoInverse(double tolerance) {
+        final int rank = rank(tolerance);
+        final double[] xRe = new double[cols * rows];
+        final double[] xIm = (uIm != null) ? new double[cols * rows] : null;
+
+        MatrixParallel.forEach(cols, 4L * rank * rows, 1, new MatrixParallel.Range() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    for (int k = 0; k < rank; k++) {
+                        double aRe = vRe[i * steps + k] / values[k];
+                        double aIm = (vIm != null) ? vIm[i * steps + k] / values[k] : 0;
+
+                        // x[i][j] += a * conj(u[j][k])
+                        for (int j = 0; j < rows; j++) {
+                            double bRe = uRe[j * steps + k];
+
+                            if (xIm == null) {
+                                xRe[i * rows + j] += aRe * bRe;
+                                continue;
+                            }
+
+                            double bIm = uIm[j * steps + k];
+                            xRe[i * rows + j] += aRe * bRe + aIm * bIm;
+                            xIm[i * rows + j] += aIm * bRe - aRe * bIm;
+                        }
+                    }
+                }
+            }
+        });
+
+        return new double[][]{xRe, xIm};
+    }
+
+    // Jacobi sweeps until no pair is rotated, returns false when iteration does not converge
+    private boolean sweeps() {
+        final int count = steps + (steps & 1); // odd number of columns gets dummy column
+        final int[] ring = new int[count];
+        final int[] pairs = new int[count];
+        final boolean[] rotated = new boolean[count / 2];
+
+        for (int k = 0; k < count; k++) {
+            ring[k] = k;
+        }
+
+        MatrixParallel.Range range = new MatrixParallel.Range() {
+            @Override
+            public void run(int from, int to) {
+                for (int pair = from; pair < to; pair++) {
+                    int j = pairs[2 * pair];
+                    int k = pairs[2 * pair + 1];
+                    rotated[pair] = (j < steps) && (k < steps) && rotate(Math.min(j, k), Math.max(j, k));
+                }
+            }
+        };
+
+        long cost = 8L * (p + ((jRe != null) ? steps : 0));
+
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            boolean changed = false;
+
+            // first item is fixed, others move around ring after each round
+            for (int round = 0; round < count - 1; round++) {
+                for (int pair = 0; pair < count / 2; pair++) {
+                    pairs[2 * pair] = ring[pair];
+                    pairs[2 * pair + 1] = ring[count - 1 - pair];
+                }
+
+                MatrixParallel.forEach(count / 2, cost, 1, range);
+
+                for (boolean item : rotated) {
+                    changed |= item;
+                }
+
+                if (count > 2) {
+                    int last = ring[count - 1];
+                    System.arraycopy(ring, 1, ring, 2, count - 2);
+                    ring[1] = last;
+                }
+            }
+
+            if (!changed) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // rotation of columns j and k, which makes them orthogonal, returns false when they already are
+    private boolean rotate(int j, int k) {
+        double alpha = norm(wRe, wIm, j, p);
+        double beta = norm(wRe, wIm, k, p);
+        double gammaRe = 0;
+        double gammaIm = 0;
+
+        // gamma = w_j^H w_k
+        for (int i = 0; i < p; i++) {
+            gammaRe += wRe[j * p + i] * wRe[k * p + i];
+
+            if (wIm != null) {
+                gammaRe += wIm[j * p + i] * wIm[k * p + i];
+                gammaIm += wRe[j * p + i] * wIm[k * p + i] - wIm[j * p + i] * wRe[k * p + i];
+            }
+        }
+
+        double gamma = Math.hypot(gammaRe, gammaIm);
+
+        if (!(gamma > EPSILON * Math.sqrt(alpha) * Math.sqrt(beta))) {
+            return false;
+        }
+
+        // real rotation of w_j and w_k * conj(phase(gamma)), whose product is real
+        double zeta = (beta - alpha) / (2 * gamma);
+        double t = ((zeta >= 0) ? 1 : -1) / (Math.abs(zeta) + Math.hypot(1, zeta));
+        double c = 1 / Math.hypot(1, t);
+        double s = c * t;
+        double phaseRe = gammaRe / gamma;
+        double phaseIm = gammaIm / gamma;
+        apply(wRe, wIm, j, k, p, c, s, phaseRe, phaseIm);
+
+        if (jRe != null) {
+            apply(jRe, jIm, j, k, steps, c, s, phaseRe, phaseIm);
+        }
+
+        return true;
+    }
+
+    // w_j = c w_j - s w_k conj(phase), w_k = s w_j + c w_k conj(phase)
+    private static void apply(double[] re, double[] im, int j, int k, int length, double c, double s, double phaseRe, double phaseIm) {
+        for (int i = 0; i < length; i++) {
+            double xRe = re[j * length + i];
+            double yRe = re[k * length + i];
+
+            if (im == null) {
+                yRe *= phaseRe;
+                re[j * length + i] = c * xRe - s * yRe;
+                re[k * length + i] = s * xRe + c * yRe;
+                continue;
+            }
+
+            double xIm = im[j * length + i];
+            double yIm = im[k * length + i];
+            double zRe = yRe * phaseRe + yIm * phaseIm;
+            double zIm = yIm * phaseRe - yRe * phaseIm;
+            re[j * length + i] = c * xRe - s * zRe;
+            im[j * length + i] = c * xIm - s * zIm;
+            re[k * length + i] = s * xRe + c * zRe;
+            im[k * length + i] = s * xIm + c * zIm;
+        }
+    }
+
+    // squared norm of column k
+    private static double norm(double[] re, double[] im, int k, int length) {
+        double sum = 0;
+
+        for (int i = 0; i < length; i++) {
+            sum += re[k * length + i] * re[k * length + i];
+
+            if (im != null) {
+                sum += im[k * length + i] * im[k * length + i];
+            }
+        }
+
+        return sum;
+    }
+
+    // replaces zero column k by unit vector orthogonal to other columns, Gram-Schmidt applied twice
+    private void complete(double[] re, double[] im, int k) {
+        for (int unit = 0; unit < p; unit++) {
+            Arrays.fill(re, k * p, (k + 1) * p, 0);
+
+            if (im != null) {
+                Arrays.fill(im, k * p, (k + 1) * p, 0);
+            }
+
+            re[k * p + unit] = 1;
+
+            for (int pass = 0; pass < 2; pass++) {
+                for (int l = 0; l < steps; l++) {
+                    if ((l == k) || ((l > k) && (values[l] == 0))) { // zero columns after k are not completed yet
+                        continue;
+                    }
+
+                    // column k -= (column l^H column k) column l
+                    double dotRe = 0;
+                    double dotIm = 0;
+
+                    for (int i = 0; i < p; i++) {
+                        dotRe += re[l * p + i] * re[k * p + i];
+
+                        if (im != null) {
+                            dotRe += im[l * p + i] * im[k * p + i];
+                            dotIm += re[l * p + i] * im[k * p + i] - im[l * p + i] * re[k * p + i];
+                        }
+                    }
+
+                    for (int i = 0; i < p; i++) {
+                        re[k * p + i] -= dotRe * re[l * p + i] - ((im != null) ? dotIm * im[l * p + i] : 0);
+
+                        if (im != null) {
+                            im[k * p + i] -= dotRe * im[l * p + i] + dotIm * re[l * p + i];
+                        }
+                    }
+                }
+            }
+
+            double length = Math.sqrt(norm(re, im, k, p));
+
+            if (length > 0.5) {
+                for (int i = 0; i < p; i++) {
+                    re[k * p + i] /= length;
+
+                    if (im != null) {
+                        im[k * p + i] /= length;
+                    }
+                }
+
+                return;
+            }
+        }
+    }
+
+    // contiguous columns to row-major matrix with length rows
+    private double[] rowMajor(double[] columns, int length) {
+        double[] result = new double[length * steps];
+
+        for (int k = 0; k < steps; k++) {
+            for (int i = 0; i < length; i++) {
+                result[i * steps + k] = columns[k * length + i];
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,317 @@
+package com.opencmath;
+
+import java.util.Arrays;
+
+/**
+ * Real matrix in compressed sparse row (CSR) storage. Items of row i are at positions rowPointers[i] until
+ * rowPointers[i + 1] of columns and values, sorted by column. Zeros are not stored, so operations skip them
+ */
+final class SparseMatrix {
+    final int rows;
+    final int cols;
+    final int[] rowPointers;
+    final int[] columns;
+    final double[] values;
+
+    SparseMatrix(int rows, int cols, int[] rowPointers, int[] columns, double[] values) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowPointers = rowPointers;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    int nonZeros() {
+        return rowPointers[rows];
+    }
+
+    SparseMatrix copy() {
+        return new SparseMatrix(rows, cols, rowPointers.clone(), columns.clone(), values.clone());
+    }
+
+    /**
+     * @param items Row-major items
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @return Sparse matrix with non-zero items
+     */
+    static SparseMatrix fromDense(double[] items, int rows, int cols) {
+        int count = 0;
+
+        for (double item : items) {
+            if (item != 0) {
+                count++;
+            }
+        }
+
+        int[] rowPointers = new int[rows + 1];
+        int[] columns = new int[count];
+        double[] values = new double[count];
+        int k = 0;
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                double item = items[i * cols + j];
+
+                if (item != 0) {
+                    columns[k] = j;
+                    values[k] = item;
+                    k++;
+                }
+            }
+
+            rowPointers[i + 1] = k;
+        }
+
+        return new SparseMatrix(rows, cols, rowPointers, columns, values);
+    }
+
+    /**
+     * Converts coordinate (COO) items, items with same position are summed
+     * @param count Number of items in arrays
+     */
+    static SparseMatrix fromCoordinates(int rows, int cols, int[] itemRows, int[] itemCols, double[] itemValues, int count) {
+        int[] rowPointers = new int[rows + 1];
+
+        for (int i = 0; i < count; i++) {
+            rowPointers[itemRows[i] + 1]++;
+        }
+
+        for (int i = 0; i < rows; i++) {
+            rowPointers[i + 1] += rowPointers[i];
+        }
+
+        // bucket by row, column and original index are packed for sorting inside row
+        long[] keys = new long[count];
+        int[] next = Arrays.copyOf(rowPointers, rows);
+
+        for (int i = 0; i < count; i++) {
+            keys[next[itemRows[i]]++] = ((long) itemCols[i] << 32) | i;
+        }
+
+        int[] columns = new int[count];
+        double[] values = new double[count];
+        int k = 0;
+
+        for (int i = 0; i < rows; i++) {
+            int from = rowPointers[i];
+            int to = rowPointers[i + 1];
+            Arrays.sort(keys, from, to);
+            rowPointers[i] = k;
+
+            for (int p = from; p < to; p++) {
+                int column = (int) (keys[p] >>> 32);
+                double value = itemValues[(int) keys[p]];
+
+                if ((k > rowPointers[i]) && (columns[k - 1] == column)) {
+                    values[k - 1] += value;
+                } else {
+                    columns[k] = column;
+                    values[k] = value;
+                    k++;
+                }
+            }
+        }
+
+        rowPointers[rows] = k;
+        return new SparseMatrix(rows, cols, rowPointers, columns, values).compact();
+    }
+
+    double[] toDense() {
+        double[] items = new double[rows * cols];
+
+        for (int i = 0; i < rows; i++) {
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                items[i * cols + columns[p]] = values[p];
+            }
+        }
+
+        return items;
+    }
+
+    SparseMatrix transpose() {
+        int count = nonZeros();
+        int[] pointers = new int[cols + 1];
+        int[] rowIndices = new int[count];
+        double[] items = new double[count];
+
+        for (int p = 0; p < count; p++) {
+            pointers[columns[p] + 1]++;
+        }
+
+        for (int j = 0; j < cols; j++) {
+            pointers[j + 1] += pointers[j];
+        }
+
+        int[] next = Arrays.copyOf(pointers, cols);
+
+        for (int i = 0; i < rows; i++) {
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                int q = next[columns[p]]++;
+                rowIndices[q] = i;
+                items[q] = values[p];
+            }
+        }
+
+        return new SparseMatrix(cols, rows, pointers, rowIndices, items);
+    }
+
+    // sparse x sparse, row by row with dense accumulator
+    SparseMatrix multiply(SparseMatrix b) {
+        int[] pointers = new int[rows + 1];
+        double[] accumulator = new double[b.cols];
+        int[] marker = new int[b.cols];
+        int[] pattern = new int[b.cols];
+        int[] resultColumns = new int[Math.max(nonZeros(), 16)];
+        double[] resultValues = new double[resultColumns.length];
+        int k = 0;
+
+        Arrays.fill(marker, -1);
+
+        for (int i = 0; i < rows; i++) {
+            int size = 0;
+
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                int row = columns[p];
+                double value = values[p];
+
+                for (int q = b.rowPointers[row]; q < b.rowPointers[row + 1]; q++) {
+                    int column = b.columns[q];
+
+                    if (marker[column] != i) {
+                        marker[column] = i;
+                        pattern[size++] = column;
+                        accumulator[column] = value * b.values[q];
+                    } else {
+                        accumulator[column] += value * b.values[q];
+                    }
+                }
+            }
+
+            Arrays.sort(pattern, 0, size);
+
+            if (k + size > resultColumns.length) {
+                int length = Math.max(2 * resultColumns.length, k + size);
+                resultColumns = Arrays.copyOf(resultColumns, length);
+                resultValues = Arrays.copyOf(resultValues, length);
+            }
+
+            for (int p = 0; p < size; p++) {
+                resultColumns[k] = pattern[p];
+                resultValues[k] = accumulator[pattern[p]];
+                k++;
+            }
+
+            pointers[i + 1] = k;
+        }
+
+        return new SparseMatrix(rows, b.cols, pointers, Arrays.copyOf(resultColumns, k), Arrays.copyOf(resultValues, k)).compact();
+    }
+
+    // sparse x dense, result is row-major dense
+    double[] multiply(double[] b, int bCols) {
+        double[] c = new double[rows * bCols];
+
+        for (int i = 0; i < rows; i++) {
+            for (int p = rowPointers[i]; p < rowPointers[i + 1]; p++) {
+                double value = values[p];
+                int row = columns[p];
+
+                for (int j = 0; j < bCols; j++) {
+                    c[i * bCols + j] += value * b[row * bCols + j];
+                }
+            }
+        }
+
+        return c;
+    }
+
+    // dense x sparse, result is row-major dense
+    static double[] multiply(double[] a, int aRows, SparseMatrix b) {
+        double[] c = new double[aRows * b.cols];
+
+        for (int i = 0; i < aRows; i++) {
+            for (int k = 0; k < b.rows; k++) {
+                double value = a[i * b.rows + k];
+
+                if (value == 0) {
+                    continue;
+                }
+
+                for (int q = b.rowPointers[k]; q < b.rowPointers[k + 1]; q++) {
+                    c[i * b.cols + b.columns[q]] += value * b.values[q];
+                }
+            }
+        }
+
+        return c;
+    }
+
+    // this + factor * b, rows are merged by column
+    SparseMatrix add(SparseMatrix b, double factor) {
+        int[] pointers = new int[rows + 1];
+        int[] resultColumns = new int[nonZeros() + b.nonZeros()];
+        double[] resultValues = new double[resultColumns.length];
+        int k = 0;
+
+        for (int i = 0; i < rows; i++) {
+            int p = rowPointers[i];
+            int q = b.rowPointers[i];
+
+            while ((p < rowPointers[i + 1]) || (q < b.rowPointers[i + 1])) {
+                int column = (p < rowPointers[i + 1]) ? columns[p] : Integer.MAX_VALUE;
+                int bColumn = (q < b.rowPointers[i + 1]) ? b.columns[q] : Integer.MAX_VALUE;
+
+                if (column < bColumn) {
+                    resultValues[k] = values[p++];
+                } else if (bColumn < column) {
+                    resultValues[k] = factor * b.values[q++];
+                } else {
+                    resultValues[k] = values[p++] + factor * b.values[q++];
+                }
+
+                resultColumns[k] = Math.min(column, bColumn);
+                k++;
+            }
+
+            pointers[i + 1] = k;
+        }
+
+        return new SparseMatrix(rows, cols, pointers, resultColumns, resultValues).compact();
+    }
+
+    // all items multiplied by factor, in place
+    SparseMatrix scale(double factor) {
+        for (int p = 0; p < values.length; p++) {
+            values[p] *= factor;
+        }
+
+        return compact();
+    }
+
+    // removes zeros created by cancellation
+    SparseMatrix compact() {
+        int k = 0;
+
+        for (int i = 0; i < rows; i++) {
+            int from = rowPointers[i];
+            rowPointers[i] = k;
+
+            for (int p = from; p < rowPointers[i + 1]; p++) {
+                if (values[p] != 0) {
+                    columns[k] = columns[p];
+                    values[k] = values[p];
+                    k++;
+                }
+            }
+        }
+
+        rowPointers[rows] = k;
+
+        if (k == columns.length) {
+            return this;
+        }
+
+        return new SparseMatrix(rows, cols, rowPointers, Arrays.copyOf(columns, k), Arrays.copyOf(values, k));
+    }
+}
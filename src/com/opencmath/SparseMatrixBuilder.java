@@ -0,0 +1,68 @@
+package com.opencmath;
+
+import java.util.Arrays;
+
+/**
+ * Collects non-zero real items of sparse MATRIX by coordinates. Items with same position are summed
+ * <pre>
+ * SparseMatrixBuilder builder = BaseNumber.getSparseMatrixBuilder(1000, 1000);
+ * builder.add(0, 0, 4.0).add(0, 1, -1.0);
+ * BaseNumber matrix = builder.build();
+ * </pre>
+ * @see BaseNumber#getSparseMatrixBuilder(int, int)
+ */
+public final class SparseMatrixBuilder {
+    private final int rows;
+    private final int cols;
+    private int[] itemRows;
+    private int[] itemCols;
+    private double[] values;
+    private int count;
+
+    SparseMatrixBuilder(int rows, int cols) {
+        if ((rows < 0) || (cols < 0) || ((long) rows * cols > Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("Invalid matrix size " + rows + "x" + cols);
+        }
+
+        this.rows = rows;
+        this.cols = cols;
+        itemRows = new int[16];
+        itemCols = new int[16];
+        values = new double[16];
+        count = 0;
+    }
+
+    /**
+     * Adds value to item
+     * @param row Row of item, from 0
+     * @param col Column of item, from 0
+     * @param value Added value
+     * @return This builder
+     */
+    public SparseMatrixBuilder add(int row, int col, double value) {
+        if ((row < 0) || (row >= rows) || (col < 0) || (col >= cols)) {
+            throw new IndexOutOfBoundsException("Item " + row + "x" + col + " is outside of matrix " + rows + "x" + cols);
+        }
+
+        if (count == values.length) {
+            itemRows = Arrays.copyOf(itemRows, 2 * count);
+            itemCols = Arrays.copyOf(itemCols, 2 * count);
+            values = Arrays.copyOf(values, 2 * count);
+        }
+
+        itemRows[count] = row;
+        itemCols[count] = col;
+        values[count] = value;
+        count++;
+
+        return this;
+    }
+
+    /**
+     * Creates sparse MATRIX from added items, builder can be used again
+     * @return MATRIX in sparse storage, 1x1 matrix is simplified to its item
+     */
+    public BaseNumber build() {
+        return BaseNumber.simplify(MatrixNumber.get(SparseMatrix.fromCoordinates(rows, cols, itemRows, itemCols, values, count)));
+    }
+}
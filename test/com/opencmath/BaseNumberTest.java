@@ -2,6 +2,10 @@ package com.opencmath;
 
 import org.junit.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 
 import static com.opencmath.BaseNumber.put;
@@ -10,6 +14,7 @@ import static com.opencmath.TestHelper.compareResultAndPut;
 import static com.opencmath.TestHelper.parseNumber;
 import static com.opencmath.TestHelper.parseValues;
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
 
 public class BaseNumberTest {
 
@@ -35,7 +40,7 @@ public class BaseNumberTest {
 
     @Test
     public void fromToTest() throws Exception {
-        ArrayList<BaseNumber> input = parseValues("{NaN, 2, 2.5, 2+3i, PI, M2x2[0;1;2;3]}");
+        ArrayList<BaseNumber> input = parseValues("{NaN, 2, 2.5, 2+3i, PI, M2x2[0;1;2;3], M2x2[PI;1;2.5;1+1i], M2x1[NaN;1.5], M1x2[1+1i;2]}");
 
         for (BaseNumber number : input) {
             byte[] data = BaseNumber.toData(number);
@@ -46,6 +51,47 @@ public class BaseNumberTest {
         }
     }
 
+    @Test
+    public void fromToLarge() throws Exception {
+        double[] items = new double[300 * 200];
+
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i / 4.0;
+        }
+
+        BaseNumber number = MatrixNumber.get(300, 200, items);
+        BaseNumber result = BaseNumber.fromData(BaseNumber.toData(number));
+        assertNotNull(result);
+        assertEquals(300, result.getCols());
+        assertEquals(200, result.getRows());
+        assertEquals(number, result);
+        put(number);
+        put(result);
+
+        // byte dimensions of older data
+        byte[] data = {5, 3, 1, 1, 0, 0, 0, 0, 0, 0, 0, 7, 4, 0, 0, 0, 0, 2, 64, 4, 0, 0, 0, 0, 0, 0};
+        compareResultAndPut(parseNumber("M1x3[7;PI;2.5]"), BaseNumber.fromData(data));
+    }
+
+    @Test
+    public void poolStatisticsTest() throws Exception {
+        assumeFalse(Boolean.getBoolean("opencmath.pool.disabled"));
+        long gets = BaseNumber.getPoolStatistics(NumberType.COMPLEX).getGets();
+        put(BaseNumber.getComplex(2, 3));
+
+        PoolStatistics statistics = BaseNumber.getPoolStatistics(NumberType.COMPLEX);
+        assertEquals(NumberType.COMPLEX, statistics.getType());
+        assertEquals(gets + 1, statistics.getGets());
+        assertEquals(BaseNumber.getPoolSize(NumberType.COMPLEX), statistics.getFree());
+
+        BaseNumber.registerPoolMBeans();
+        BaseNumber.registerPoolMBeans();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CompositeData value = (CompositeData) server.getAttribute(new ObjectName("com.opencmath:type=Pool,name=COMPLEX"), "Statistics");
+        assertEquals(gets + 1, value.get("gets"));
+        assertEquals(value.get("gets"), (Long) value.get("hits") + (Long) value.get("misses"));
+    }
+
     @Test
     public void typeTest() throws Exception {
         assertEquals(parseNumber("NaN").getType(), NumberType.INVALID);
@@ -0,0 +1,104 @@
+package com.opencmath;
+
+/**
+ * Throughput of matrix product in GFLOP/s. Compares plain i-k-j loop with blocked kernel and with complete
+ * real and complex MATRIX multiplication including pool traffic.
+ * Run as plain java application with test classpath, optional argument is measured time per case in milliseconds
+ */
+public class MatrixMultiplicationBenchmark {
+    private static final int[] SIZES = {8, 16, 32, 64, 96, 127, 256, 512};
+    private static final int ROUNDS = 5;
+
+    private interface Case {
+        void run();
+    }
+
+    public static void main(String[] args) throws Exception {
+        long time = (args.length > 0) ? Long.parseLong(args[0]) : 200;
+
+        System.out.printf("%6s %12s %12s %12s %12s%n", "size", "naive", "blocked", "mul", "complex mul");
+
+        for (final int n : SIZES) {
+            final double[] a = random(n * n);
+            final double[] b = random(n * n);
+            final double[] aIm = random(n * n);
+            final double[] bIm = random(n * n);
+
+            double naive = measure(time, 2.0 * n * n * n, new Case() {
+                @Override
+                public void run() {
+                    naive(a, b, n);
+                }
+            });
+
+            double blocked = measure(time, 2.0 * n * n * n, new Case() {
+                @Override
+                public void run() {
+                    MatrixMultiplication.multiply(a, MatrixMultiplication.transpose(b, n, n), new double[n * n], 0, n, n, n);
+                }
+            });
+
+            double mul = measure(time, 2.0 * n * n * n, new Case() {
+                @Override
+                public void run() {
+                    BaseNumber.put(MatrixNumber.get(n, n, a.clone()).mul(MatrixNumber.get(n, n, b.clone())));
+                }
+            });
+
+            // complex multiply-add is 4 multiplications and 4 additions
+            double complexMul = measure(time, 8.0 * n * n * n, new Case() {
+                @Override
+                public void run() {
+                    BaseNumber.put(MatrixNumber.get(n, n, a.clone(), aIm.clone()).mul(MatrixNumber.get(n, n, b.clone(), bIm.clone())));
+                }
+            });
+
+            System.out.printf("%6d %12.3f %12.3f %12.3f %12.3f%n", n, naive, blocked, mul, complexMul);
+        }
+    }
+
+    private static double[] naive(double[] a, double[] b, int n) {
+        double[] c = new double[n * n];
+
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                for (int j = 0; j < n; j++) {
+                    c[i * n + j] += a[i * n + k] * b[k * n + j];
+                }
+            }
+        }
+
+        return c;
+    }
+
+    private static double[] random(int length) {
+        double[] items = new double[length];
+
+        for (int i = 0; i < length; i++) {
+            items[i] = Math.random() - 0.5;
+        }
+
+        return items;
+    }
+
+    // returns best throughput of all rounds in GFLOP/s
+    private static double measure(long time, double flops, Case test) {
+        double best = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long count = 0;
+            long start = System.nanoTime();
+            long elapsed;
+
+            do {
+                test.run();
+                count++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < time * 1000000);
+
+            best = Math.max(best, flops * count / elapsed);
+        }
+
+        return best;
+    }
+}
@@ -4,15 +4,23 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
+import static com.opencmath.BaseNumber.duplicate;
 import static com.opencmath.BaseNumber.put;
 import static com.opencmath.TestHelper.compareResultAndPut;
 import static com.opencmath.TestHelper.parseNumber;
 import static com.opencmath.TestHelper.parseValues;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class MatrixNumberTest {
 
@@ -83,6 +91,190 @@ public class MatrixNumberTest {
         }
     }
 
+    @Test
+    public void mulBlocked() throws Exception {
+        // odd sizes cover edges of register tiles, dot products over 256 items are blocked
+        // blocked dot products are reassociated, so result is compared with tolerance
+        int rows = 131;
+        int inner = 300;
+        double[] a = new double[rows * inner];
+        double[] b = new double[inner * rows];
+        double[] aIm = new double[rows * inner];
+        double[] bIm = new double[inner * rows];
+        double[] c = new double[rows * rows];
+        double[] cRe = new double[rows * rows];
+        double[] cIm = new double[rows * rows];
+
+        for (int i = 0; i < a.length; i++) {
+            a[i] = Math.sin(i);
+            b[i] = Math.cos(i);
+            aIm[i] = Math.sin(0.5 * i);
+            bIm[i] = Math.cos(0.3 * i);
+        }
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < rows; j++) {
+                for (int k = 0; k < inner; k++) {
+                    c[i * rows + j] += a[i * inner + k] * b[k * rows + j];
+                    cRe[i * rows + j] += a[i * inner + k] * b[k * rows + j] - aIm[i * inner + k] * bIm[k * rows + j];
+                    cIm[i * rows + j] += a[i * inner + k] * bIm[k * rows + j] + aIm[i * inner + k] * b[k * rows + j];
+                }
+            }
+        }
+
+        // items are compared without boxing
+        MatrixNumber result = (MatrixNumber) MatrixNumber.get(inner, rows, a.clone()).mul(MatrixNumber.get(rows, inner, b.clone()));
+        assertArrayEquals(c, result.re, 1e-12);
+        put(result);
+
+        MatrixNumber complex = (MatrixNumber) MatrixNumber.get(inner, rows, a, aIm).mul(MatrixNumber.get(rows, inner, b, bIm));
+        assertArrayEquals(cRe, complex.re, 1e-12);
+        assertArrayEquals(cIm, complex.im, 1e-12);
+        put(complex);
+
+        // large products use blocked kernel, count of multiply-adds does not overflow
+        assertTrue(MatrixMultiplication.isSmall(15, 16, 16));
+        assertFalse(MatrixMultiplication.isSmall(16, 16, 16));
+        assertFalse(MatrixMultiplication.isSmall(1291, 1291, 1291));
+        assertFalse(MatrixMultiplication.isSmall(2048, 2048, 1024));
+    }
+
+    @Test
+    public void parallel() throws Exception {
+        double[] a = new double[127 * 127];
+        double[] b = new double[127 * 127];
+
+        for (int i = 0; i < a.length; i++) {
+            a[i] = Math.sin(i);
+            b[i] = Math.cos(i);
+        }
+
+        BaseNumber.setThreadParallelism(1);
+        BaseNumber expectedProduct = MatrixNumber.get(127, 127, a.clone()).mul(MatrixNumber.get(127, 127, b.clone()));
+        BaseNumber expectedExp = MatrixNumber.get(127, 127, a.clone()).mul(parseNumber("2.5")).exp();
+        MatrixNumber expectedComplex = (MatrixNumber) MatrixNumber.get(127, 127, a.clone(), b.clone()).add(parseNumber("1i")).sin();
+
+        try {
+            BaseNumber.setThreadParallelism(4);
+            BaseNumber.setParallelThreshold(0);
+
+            // row blocks give same result as single thread
+            BaseNumber product = MatrixNumber.get(127, 127, a.clone()).mul(MatrixNumber.get(127, 127, b.clone()));
+            BaseNumber exp = MatrixNumber.get(127, 127, a.clone()).mul(parseNumber("2.5")).exp();
+            MatrixNumber complex = (MatrixNumber) MatrixNumber.get(127, 127, a, b).add(parseNumber("1i")).sin();
+
+            assertEquals(expectedProduct, product);
+            assertEquals(expectedExp, exp);
+            assertArrayEquals(expectedComplex.re, complex.re, 0);
+            assertArrayEquals(expectedComplex.im, complex.im, 0);
+            put(product);
+            put(exp);
+            put(complex);
+        } finally {
+            BaseNumber.setThreadParallelism(0);
+            BaseNumber.setParallelThreshold(MatrixParallel.DEFAULT_THRESHOLD);
+        }
+
+        put(expectedProduct);
+        put(expectedExp);
+        put(expectedComplex);
+    }
+
+    @Test
+    public void parallelism() throws Exception {
+        int parallelism = MatrixParallel.parallelism();
+        ForkJoinPool pool = MatrixParallel.getPool();
+
+        try {
+            // larger parallelism replaces pool, old one is shut down
+            BaseNumber.setParallelism(pool.getParallelism() + 1);
+            assertTrue(pool.isShutdown());
+            assertEquals(pool.getParallelism() + 1, MatrixParallel.getPool().getParallelism());
+        } finally {
+            BaseNumber.setParallelism(parallelism);
+        }
+    }
+
+    @Test
+    public void sparse() throws Exception {
+        SparseMatrixBuilder builder = BaseNumber.getSparseMatrixBuilder(3, 4);
+        builder.add(0, 0, 1).add(0, 3, 1).add(0, 3, 1).add(1, 2, 3).add(2, 1, 4).add(2, 2, 5).add(2, 2, -5);
+
+        try {
+            builder.add(3, 0, 1);
+            fail("Item outside of sparse matrix not detected");
+        } catch (IndexOutOfBoundsException e) {
+            // outside of matrix
+        }
+
+        String a = "M3x4[1;0;0;2;0;0;3;0;0;4;0;0]";
+        String b = "M4x3[0;1;0;2;0;0;0;0;-1;1;0;0]";
+        BaseNumber sparseA = builder.build();
+        assertTrue(sparseA.isSparse());
+        assertEquals(4, ((MatrixNumber) sparseA).sparse.nonZeros());
+        compareResultAndPut(parseNumber(a), duplicate(sparseA));
+
+        // products of sparse and dense storage
+        BaseNumber product = duplicate(sparseA).mul(BaseNumber.toSparse(parseNumber(b)));
+        assertTrue(product.isSparse());
+        compareResultAndPut(parseNumber("M3x3[2;1;0;0;0;-3;8;0;0]"), product);
+        compareResultAndPut(parseNumber("M3x3[2;1;0;0;0;-3;8;0;0]"), duplicate(sparseA).mul(parseNumber(b)));
+        compareResultAndPut(parseNumber("M4x4[0;0;3;0;2;0;0;4;0;-4;0;0;1;0;0;2]"), parseNumber(b).mul(duplicate(sparseA)));
+
+        BaseNumber transposed = duplicate(sparseA).transpose();
+        assertTrue(transposed.isSparse());
+        compareResultAndPut(parseNumber("M4x3[1;0;0;0;0;4;0;3;0;2;0;0]"), transposed);
+
+        // element-wise operations keep zeros
+        BaseNumber difference = duplicate(sparseA).sub(duplicate(sparseA));
+        assertEquals(0, ((MatrixNumber) difference).sparse.nonZeros());
+        compareResultAndPut(parseNumber("M3x4[0;0;0;0;0;0;0;0;0;0;0;0]"), difference);
+        compareResultAndPut(parseNumber("M3x4[2;0;0;4;0;0;6;0;0;8;0;0]"), duplicate(sparseA).add(duplicate(sparseA)));
+        compareResultAndPut(parseNumber("M3x4[0.5;0;0;1;0;0;1.5;0;0;2;0;0]"), duplicate(sparseA).mul(parseNumber("2")).div(parseNumber("4")));
+        BaseNumber sqrt = duplicate(sparseA).sqrt();
+        assertTrue(sqrt.isSparse());
+        compareResultAndPut(parseNumber(a).sqrt(), sqrt);
+        compareResultAndPut(parseNumber(a).cos(), duplicate(sparseA).cos());
+        compareResultAndPut(parseNumber(a).add(parseNumber("1i")), duplicate(sparseA).add(parseNumber("1i")));
+
+        BaseNumber data = BaseNumber.fromData(BaseNumber.toData(sparseA));
+        assertFalse(data.isSparse());
+        compareResultAndPut(parseNumber(a), data);
+
+        BaseNumber square = parseNumber("M3x3[2;0;1;0;0;3;0;4;0]");
+        compareResultAndPut(duplicate(square).gauss(), BaseNumber.toSparse(duplicate(square)).gauss());
+        compareResultAndPut(duplicate(square).det(), BaseNumber.toSparse(square).det());
+        put(sparseA);
+
+        // tridiagonal matrix
+        int n = 200;
+        builder = BaseNumber.getSparseMatrixBuilder(n, n);
+        double[] items = new double[n * n];
+
+        for (int i = 0; i < n; i++) {
+            builder.add(i, i, 2);
+            items[i * n + i] = 2;
+
+            if (i > 0) {
+                builder.add(i, i - 1, -1);
+                items[i * n + i - 1] = -1;
+            }
+        }
+
+        BaseNumber sparseProduct = builder.build().mul(builder.build());
+        BaseNumber denseProduct = MatrixNumber.get(n, n, items.clone()).mul(MatrixNumber.get(n, n, items.clone()));
+        assertEquals(3 * n - 3, ((MatrixNumber) sparseProduct).sparse.nonZeros());
+        assertEquals(denseProduct, sparseProduct);
+        put(denseProduct);
+        put(sparseProduct);
+
+        BaseNumber mixedProduct = builder.build().mul(MatrixNumber.get(n, n, items.clone()));
+        denseProduct = MatrixNumber.get(n, n, items.clone()).mul(MatrixNumber.get(n, n, items));
+        assertEquals(denseProduct, mixedProduct);
+        put(denseProduct);
+        put(mixedProduct);
+    }
+
     @Test
     public void div() throws Exception {
         ArrayList<BaseNumber> inputValues =     parseValues("{ M2x2[0;1;2;3],     M2x2[2;3;4;5],   M2x2[3;4;5;6],       M2x2[0;1;2;3], M2x2[0;0;0;0],           M2x2[0;1;2;3], M2x1[0;1] }");
@@ -177,6 +369,18 @@ public class MatrixNumberTest {
         }
     }
 
+    @Test
+    public void scalarRoot() throws Exception {
+        // matrix produced by arithmetic is kept in primitive storage
+        ArrayList<BaseNumber> inputValues =     parseValues("{              16,             6.25,            3+4i,              PI }");
+        ArrayList<BaseNumber> expectedValues =  parseValues("{ M2x2[16.0;4;4;2], M2x2[6.25;2.5;2.5;1.5811388300841898], M2x2[3+4i;2+1i;2+1i;1.455346690225355+0.34356074972251244i], M2x2[3.141592653589793;1.7724538509055159;1.7724538509055159;1.3313353638003897] }");
+        for (int i = 0; i < expectedValues.size(); i++) {
+            MatrixNumber exp = (MatrixNumber) parseNumber("M2x2[0.5;1;1;2]").mul(parseNumber("2"));
+            assertNotNull(exp.re);
+            compareResultAndPut(expectedValues.get(i), inputValues.get(i).root(exp));
+        }
+    }
+
     @Test
     public void factorial() throws Exception {
         ArrayList<BaseNumber> inputValues =     parseValues("{        M2x1[5;10] }");
@@ -502,6 +706,127 @@ public class MatrixNumberTest {
         }
     }
 
+    @Test
+    public void primitive() throws Exception {
+        MatrixNumber a = (MatrixNumber) parseNumber("M2x3[1.5;2;3;4;5;6]");
+        BaseNumber b = parseNumber("M3x2[1;2;3;4;5;6]");
+        assertTrue(a.isReal());
+
+        // chained operations stay in primitive storage
+        BaseNumber c = a.mul(parseNumber("2")).sub(parseNumber("1"));
+        assertTrue(((MatrixNumber) c).re != null);
+        c = c.mul(b).transpose();
+        assertTrue(((MatrixNumber) c).view != null); // transposed view of primitive storage
+        compareResultAndPut(parseNumber("M2x2[36;89;46;116]"), c);
+
+        // mixed storage
+        BaseNumber d = parseNumber("M2x2[1;2;3;4]").add(parseNumber("0.5"));
+        compareResultAndPut(parseNumber("M2x2[1.5;2.5+1i;3.5;4.5]"), d.add(parseNumber("M2x2[0;1i;0;0]")));
+
+        MatrixNumber e = (MatrixNumber) parseNumber("M2x2[0.5;1;2;3]");
+        e.primitive();
+        compareResultAndPut(parseNumber("M2x2[0.5;1;2;3]"), BaseNumber.duplicate(e));
+        put(e);
+    }
+
+    @Test
+    public void integerPrecision() throws Exception {
+        // integer results from 2^53 up are not exact in double, they are computed with long items as boxed numbers
+        ArrayList<BaseNumber> inputValues =     parseValues("{ M1x2[9007199254740992;1], M1x2[9007199254740992;1], M1x2[100000007;1],  M1x2[100000007;100000007], M2x2[100000007;0;0;1] }");
+        ArrayList<BaseNumber> paramValues =     parseValues("{                M1x2[1;1],                         1,         100000007, M2x1[100000007;-100000006], M2x2[100000007;0;0;1] }");
+        ArrayList<BaseNumber> expectedValues =  parseValues("{ M1x2[9007199254740993;2], M1x2[9007199254740993;2], M1x2[10000001400000049;100000007], 100000007, M2x2[10000001400000049;0;0;1] }");
+        for (int i = 0; i < expectedValues.size(); i++) {
+            BaseNumber result = (i < 2) ? inputValues.get(i).add(paramValues.get(i)) : inputValues.get(i).mul(paramValues.get(i));
+            assertEquals(expectedValues.get(i), result);
+            put(expectedValues.get(i));
+            put(result);
+        }
+
+        BaseNumber expected = parseNumber("M1x2[-9007199254740993;0]");
+        BaseNumber result = parseNumber("M1x2[-9007199254740992;1]").sub(parseNumber("M1x2[1;1]"));
+        assertEquals(expected, result);
+        put(result);
+
+        result = parseNumber("M1x2[-9007199254740992;1]").sub(parseNumber("1"));
+        assertEquals(expected, result);
+        put(expected);
+        put(result);
+
+        // sparse and transposed view operands
+        expected = parseNumber("M2x2[10000001400000049;0;0;1]");
+        result = BaseNumber.toSparse(parseNumber("M2x2[100000007;0;0;1]")).mul(BaseNumber.toSparse(parseNumber("M2x2[100000007;0;0;1]")));
+        assertEquals(expected, result);
+        put(result);
+
+        result = MatrixNumber.get(2, 2, new double[] {100000007, 0, 0, 1}).mul(MatrixNumber.get(2, 2, new double[] {100000007, 0, 0, 1}).transpose());
+        assertEquals(expected, result);
+        put(expected);
+        put(result);
+    }
+
+    @Test
+    public void complexPrimitive() throws Exception {
+        BaseNumber a = parseNumber("M2x2[1+1i;2;0;1i]");
+        BaseNumber b = parseNumber("M2x2[1;1i;2;3]");
+        assertTrue(((MatrixNumber) a).isComplex());
+        BaseNumber c = a.mul(b);
+        assertTrue(((MatrixNumber) c).im != null);
+        compareResultAndPut(parseNumber("M2x2[5+1i;5+1i;2i;3i]"), c);
+
+        BaseNumber d = parseNumber("M2x2[1+1i;2;0;1i]").mul(parseNumber("2+1i")).div(parseNumber("2+1i"));
+        compareResultAndPut(parseNumber("M2x2[1+1i;2;0;1i]"), d.sub(parseNumber("M2x2[0;0;0;0]")));
+
+        // element-wise functions give same results as boxed items
+        String[] inputs = { "1+1i; 2; -3; 0.5-2i; 0; -1i", "4; -1; 0.5; 9; 0; 1" };
+        String[] functions = { "exp", "ln", "sqrt", "sin", "cos", "tan", "sinh", "cosh", "tanh" };
+
+        for (String input : inputs) {
+            for (String function : functions) {
+                Method method = BaseNumber.class.getMethod(function);
+                ArrayList<BaseNumber> items = parseValues("{ " + input.replace(';', ',') + " }");
+                BaseNumber[] expected = new BaseNumber[items.size()];
+
+                for (int i = 0; i < expected.length; i++) {
+                    expected[i] = (BaseNumber) method.invoke(items.get(i));
+                }
+
+                BaseNumber output = (BaseNumber) method.invoke(parseNumber("M2x3[" + input + "]"));
+                compareResultAndPut(MatrixNumber.get(3, 2, expected), output);
+            }
+        }
+    }
+
+    @Test
+    public void detReal() throws Exception {
+        // binary fractions are exact after scaling by power of two, integral result is INTEGER
+        ArrayList<BaseNumber> inputValues =     parseValues("{ M2x2[0.5;2;3;4], M3x3[0.5;1;2;3;4;5;6;7;9], M4x4[1.5;5;2;3;5;5;6;9;9;9;10;15;13;15;14;19], M4x4[0.25;0;0;0;0;2;0;0;0;0;0.5;1;0;0;1;3] }");
+        ArrayList<BaseNumber> expectedValues =  parseValues("{               -4,                       -2.5,                                             -28,                                      0.25 }");
+        for (int i = 0; i < expectedValues.size(); i++) {
+            BaseNumber det = inputValues.get(i).det();
+            assertEquals(expectedValues.get(i).getType(), det.getType());
+            assertEquals(expectedValues.get(i).getReal(), det.getReal(), 0);
+            put(expectedValues.get(i));
+            put(det);
+        }
+
+        // 12x12 with 0.5 on diagonal and 1 elsewhere, eigenvalues are 11.5 and 11 times -0.5
+        double[] items = new double[144];
+
+        for (int i = 0; i < items.length; i++) {
+            items[i] = (i % 13 == 0) ? 0.5 : 1;
+        }
+
+        BaseNumber det = MatrixNumber.get(12, 12, items).det();
+        assertEquals(11.5 * Math.pow(-0.5, 11), det.getReal(), 0);
+        put(det);
+
+        // other fractions are factored by LU decomposition with rounding error
+        det = parseNumber("M4x4[0.1;5;2;3;5;5;6;9;9;9;10;15;13;15;14;19.3]").det();
+        assertEquals(NumberType.REAL, det.getType());
+        assertEquals(-33.32, det.getReal(), 1e-12);
+        put(det);
+    }
+
     @Test
     public void transpose() throws Exception {
         ArrayList<BaseNumber> inputValues =     parseValues("{ M1x1[1], M2x2[1;2;3;4], M3x3[1;2;3;4;5;6;7;8;9], M4x4[1;2;3;4;5;6;7;8;9;10;11;12;13;14;15;16], M1x2[1;2], M2x1[1;2] }");
@@ -542,6 +867,42 @@ public class MatrixNumberTest {
         }
     }
 
+    @Test
+    public void rankExact() throws Exception {
+        ArrayList<BaseNumber> inputValues =     parseValues("{ M2x2[0.5;1;1;2], M3x4[1;3;1;9;1;1;-1;1;3;11;5;35], M2x3[0;1;2;0;2;4], M2x2[1;1i;1i;-1], M2x2[1;1i;0;1] }");
+        ArrayList<BaseNumber> expectedValues =  parseValues("{                1,                                2,                 1,                 1,                2 }");
+        for (int i = 0; i < expectedValues.size(); i++) {
+            compareResultAndPut(expectedValues.get(i), inputValues.get(i).rank());
+        }
+
+        // leading minors overflow long
+        compareResultAndPut(parseNumber("2"), parseNumber("M3x3[4611686018427387904;1;0;4611686018427387904;1;0;0;0;1]").rank());
+    }
+
+    @Test
+    public void detLarge() throws Exception {
+        ArrayList<BaseNumber> inputValues =     parseValues("{ M2x2[1099511627776;1099511627776;1099511627776;1099511627777], M2x2[1+1i;2;1i;3], M3x3[1i;0;0;0;2;0;1;1;1i] }");
+        ArrayList<BaseNumber> expectedValues =  parseValues("{                                                 1099511627776,             3+1i,                          -2 }");
+        for (int i = 0; i < expectedValues.size(); i++) {
+            compareResultAndPut(expectedValues.get(i), inputValues.get(i).det());
+        }
+
+        // 127x127 with 2 on diagonal and 1 elsewhere, eigenvalues are 128 and 126 times 1
+        double[] items = new double[127 * 127];
+
+        for (int i = 0; i < items.length; i++) {
+            items[i] = (i % 128 == 0) ? 2 : 1;
+        }
+
+        compareResultAndPut(parseNumber("128"), MatrixNumber.get(127, 127, items).det());
+
+        // determinant over long range
+        BaseNumber det = parseNumber("M3x3[1099511627776;1;0;0;1099511627776;1;1;0;1099511627776]").det();
+        assertEquals(NumberType.REAL, det.getType());
+        assertEquals(Math.pow(2, 120), det.getReal(), Math.pow(2, 70));
+        put(det);
+    }
+
     @Test
     public void inv() throws Exception {
         ArrayList<BaseNumber> inputValues =     parseValues("{ M1x1[1],       M2x2[1;2;3;4],                                        M3x3[0;1;2;3;4;5;6;7;9],                                      M4x4[1;5;2;3;5;5;6;9;9;9;10;15;13;15;14;19], M1x2[1;2], M2x1[1;2] }");
@@ -552,6 +913,477 @@ public class MatrixNumberTest {
         }
     }
 
+    @Test
+    public void invLarge() throws Exception {
+        ArrayList<BaseNumber> inputValues =     parseValues("{ M2x2[1;2;2;4],      M2x2[0.5;0;0;0.25], M2x2[1i;0;0;2], M2x2[1099511627776;1;1;1099511627776] }");
+        ArrayList<BaseNumber> expectedValues =  parseValues("{ M2x2[NaN;NaN;NaN;NaN], M2x2[2;0;0;4], M2x2[-1i;0;0;0.5], M2x2[9.094947017729282E-13;-8.271806125530277E-25;-8.271806125530277E-25;9.094947017729282E-13] }");
+        for (int i = 0; i < expectedValues.size(); i++) {
+            compareResultAndPut(expectedValues.get(i), inputValues.get(i).inv());
+        }
+
+        inputValues =     parseValues("{ M2x2[0.5;1;0;2],  M2x2[1+1i;2;1i;3], M3x3[1;2;3;4;5;6;7;8;9],     M4x4[0.5;0;0;0;0;2;0;0;0;0;4;0;0;0;0;0.25], M4x4[0.5;0;0;0;0;2;0;0;0;0;2i;0;0;0;0;1] }");
+        expectedValues =  parseValues("{ M2x2[2;-1;0;0.5], M2x2[3;-2;-1i;1+1i], M3x3[-3;6;-3;6;-12;6;-3;6;-3], M4x4[2;0;0;0;0;0.5;0;0;0;0;0.25;0;0;0;0;4], M4x4[4i;0;0;0;0;1i;0;0;0;0;1;0;0;0;0;2i] }");
+        for (int i = 0; i < expectedValues.size(); i++) {
+            compareResultAndPut(expectedValues.get(i), inputValues.get(i).adjugate());
+        }
+
+        // 127x127 with 2 on diagonal and 1 elsewhere, inverse is identity minus 1/128 everywhere
+        double[] items = new double[127 * 127];
+        double[] inverse = new double[127 * 127];
+
+        for (int i = 0; i < items.length; i++) {
+            items[i] = (i % 128 == 0) ? 2 : 1;
+            inverse[i] = (i % 128 == 0) ? 0.9921875 : -0.0078125;
+        }
+
+        // compared without boxing of items
+        BaseNumber expected = MatrixNumber.get(127, 127, inverse);
+        BaseNumber result = MatrixNumber.get(127, 127, items).inv();
+        assertEquals(expected, result);
+        put(expected);
+        put(result);
+    }
+
+    @Test
+    public void invExact() throws Exception {
+        // binary fractions are exact after scaling by power of two
+        BaseNumber a = parseNumber("M2x2[0.5;2;3;4]");
+        MatrixNumber identity = (MatrixNumber) duplicate(a).div(duplicate(a));
+        assertArrayEquals(new double[] {1, 0, 0, 1}, identity.realParts(), 0);
+        put(identity);
+
+        MatrixNumber inverse = (MatrixNumber) a.matrixPow(parseNumber("-1"));
+        assertArrayEquals(new double[] {-1, 0.5, 0.75, -0.125}, inverse.realParts(), 0);
+        put(inverse);
+
+        MatrixNumber adjugate = (MatrixNumber) parseNumber("M5x5[1.5;1;0;2;1;0;0.5;1;0;2;1;0;2.5;1;0;0;1;1;3;1;2;0;0;1;0.25]").adjugate();
+        double[] expected = {4.8125, -0.375, 2, -4.625, 2.25, 29.75, -4.8125, 7.375, -13.625, -26, 1.125, 0.625, 5.8125,
+                -1.4375, -3.75, -7.625, -1.1875, -2.8125, 8.21875, 7.125, -8, 7.75, -4.75, 4.125, 8.375};
+        assertArrayEquals(expected, adjugate.realParts(), 0);
+        put(adjugate);
+
+        // other fractions are inverted by LU decomposition with rounding error
+        a = parseNumber("M2x2[0.1;2;3;4]");
+        identity = (MatrixNumber) duplicate(a).div(a);
+        assertArrayEquals(new double[] {1, 0, 0, 1}, identity.realParts(), 1e-15);
+        put(identity);
+    }
+
+    @Test
+    public void solve() throws Exception {
+        ArrayList<BaseNumber> inputValues =     parseValues("{ M2x2[1;2;3;4],     M2x2[0.5;0;0;0.25],  M2x2[1i;0;0;2],   M2x2[1;2;2;4],     M2x2[1;2;3;4], M2x1[1;2], M1x2[1;2], 2 }");
+        ArrayList<BaseNumber> paramValues =     parseValues("{     M2x1[5;6],      M2x2[1;2;3;4],      M2x1[1;1],       M2x1[1;1], M3x1[1;2;3], M2x1[1;2],   M1x1[1], 6 }");
+        ArrayList<BaseNumber> expectedValues =  parseValues("{ M2x1[-4;4.5], M2x2[2;4;12;16], M2x1[-1i;0.5], M2x1[NaN;NaN],           NaN,         1,       NaN, 3 }");
+        for (int i = 0; i < expectedValues.size(); i++) {
+            compareResultAndPut(expectedValues.get(i), inputValues.get(i).solve(paramValues.get(i)));
+        }
+
+        // 127x127 with 2 on diagonal and 1 elsewhere, right side is sum of rows
+        double[] items = new double[127 * 127];
+        double[] rhs = new double[127];
+        double[] solution = new double[127];
+
+        for (int i = 0; i < items.length; i++) {
+            items[i] = (i % 128 == 0) ? 2 : 1;
+        }
+
+        Arrays.fill(rhs, 128);
+        Arrays.fill(solution, 1);
+
+        BaseNumber expected = MatrixNumber.get(1, 127, solution);
+        BaseNumber result = MatrixNumber.get(127, 127, items).solve(MatrixNumber.get(1, 127, rhs));
+        assertEquals(expected, result);
+        put(expected);
+        put(result);
+    }
+
+    @Test
+    public void matrixPow() throws Exception {
+        ArrayList<BaseNumber> inputValues =     parseValues("{   M2x2[1;1;1;0], M2x2[2;0;0;4],        M2x2[2;0;0;4],  M2x2[1i;0;0;1i], M2x2[PI;0;0;1], M2x2[5;6;7;8], M1x2[1;2], M2x2[1;1;1;0], M1x1[2], 3 }");
+        ArrayList<BaseNumber> paramValues =     parseValues("{              10,             0,                   -2,                3,               1,           0.5,         2,        2.5,      -1, 2 }");
+        ArrayList<BaseNumber> expectedValues =  parseValues("{ M2x2[89;55;55;34], M2x2[1;0;0;1], M2x2[0.25;0;0;0.0625], M2x2[-1i;0;0;-1i], M2x2[PI;0;0;1],           NaN,       NaN,        NaN,     0.5, 9 }");
+        for (int i = 0; i < expectedValues.size(); i++) {
+            compareResultAndPut(expectedValues.get(i), inputValues.get(i).matrixPow(paramValues.get(i)));
+        }
+
+        BaseNumber sparse = BaseNumber.toSparse(parseNumber("M2x2[1;1;1;0]")).matrixPow(parseNumber("10"));
+        assertTrue(sparse.isSparse());
+        compareResultAndPut(parseNumber("M2x2[89;55;55;34]"), sparse);
+
+        BaseNumber symbolic = parseNumber("M2x2[PI;1;0;1]");
+        compareResultAndPut(duplicate(symbolic).mul(duplicate(symbolic)).mul(duplicate(symbolic)), symbolic.matrixPow(parseNumber("3")));
+
+        // paths of length 7 in graph, integer counts are exact for any order of products
+        int n = 50;
+        double[] items = new double[n * n];
+
+        for (int i = 0; i < items.length; i++) {
+            items[i] = (i % 3 == 0) ? 1 : 0;
+        }
+
+        BaseNumber expected = MatrixNumber.get(n, n, items.clone());
+
+        for (int i = 1; i < 7; i++) {
+            expected = expected.mul(MatrixNumber.get(n, n, items.clone()));
+        }
+
+        BaseNumber result = MatrixNumber.get(n, n, items).matrixPow(parseNumber("7"));
+        assertEquals(expected, result);
+        put(expected);
+        put(result);
+
+        // Fibonacci numbers above 2^53 are exact, F(93) overflows long and continues with boxed items
+        expected = parseNumber("M2x2[37889062373143906;23416728348467685;23416728348467685;14472334024676221]");
+        result = MatrixNumber.get(2, 2, new double[] {1, 1, 1, 0}).matrixPow(parseNumber("80"));
+        assertEquals(expected, result);
+        put(expected);
+        put(result);
+
+        result = parseNumber("M2x2[1;1;1;0]").matrixPow(parseNumber("91"));
+        assertEquals(7540113804746346429L, ((IntegerNumber) result.getMatrixItems()[0]).value);
+        put(result);
+
+        result = parseNumber("M2x2[1;1;1;0]").matrixPow(parseNumber("92"));
+        assertEquals(NumberType.REAL, result.getMatrixItems()[0].getType());
+        assertEquals(12200160415121876738.0, result.getMatrixItems()[0].getReal(), 1e4);
+        put(result);
+    }
+
+    @Test
+    public void qr() throws Exception {
+        // rank is 2 within rounding errors
+        compareResultAndPut(parseNumber("2"), parseNumber("M3x3[0.1;0.2;0.3;0.4;0.5;0.6;0.7;0.8;0.9]").rank());
+        compareResultAndPut(parseNumber("1"), parseNumber("M2x3[0.5;1;1.5;1;2;3]").rank());
+        assertNull(BaseNumber.factorizeQR(parseNumber("2")));
+
+        // least squares line through (1, 1), (2, 2), (3, 2) is 2/3 + x/2
+        BaseNumber fit = parseNumber("M3x2[1;1;1;2;1;3]").solve(parseNumber("M3x1[1;2;2]"));
+        BaseNumber[] items = fit.getMatrixItems();
+        assertEquals(2.0 / 3.0, items[0].getReal(), 1e-15);
+        assertEquals(0.5, items[1].getReal(), 1e-15);
+        put(fit);
+
+        // AP = QR and Q has orthonormal columns
+        String[] matrices = {"M3x3[1;2;0;2;4.5;1;0;1;3.5]", "M4x2[1;2;3;4;5;6;7;8]", "M2x2[1+1i;2;1i;3-2i]"};
+
+        for (String matrix : matrices) {
+            BaseNumber a = parseNumber(matrix);
+            QRFactorization qr = BaseNumber.factorizeQR(duplicate(a));
+            int[] permutation = qr.getPermutation();
+            BaseNumber q = qr.getQ();
+            BaseNumber r = qr.getR();
+            assertEquals(Math.min(a.getRows(), a.getCols()), qr.getRank());
+            assertEquals(0, qr.getRank(Double.POSITIVE_INFINITY));
+
+            BaseNumber[] qItems = q.getMatrixItems();
+            BaseNumber[] rItems = r.getMatrixItems();
+            BaseNumber[] aItems = a.getMatrixItems();
+            int steps = q.getCols();
+
+            for (int i = 0; i < a.getRows(); i++) {
+                for (int j = 0; j < a.getCols(); j++) {
+                    double sumRe = 0;
+                    double sumIm = 0;
+
+                    for (int k = 0; k < steps; k++) {
+                        BaseNumber x = qItems[i * steps + k];
+                        BaseNumber y = rItems[k * a.getCols() + j];
+                        sumRe += x.getReal() * y.getReal() - x.getImag() * y.getImag();
+                        sumIm += x.getReal() * y.getImag() + x.getImag() * y.getReal();
+                    }
+
+                    BaseNumber item = aItems[i * a.getCols() + permutation[j]];
+                    assertEquals(item.getReal(), sumRe, 1e-14);
+                    assertEquals(item.getImag(), sumIm, 1e-14);
+                }
+            }
+
+            for (int j = 0; j < steps; j++) {
+                for (int l = 0; l < steps; l++) {
+                    double sumRe = 0;
+                    double sumIm = 0;
+
+                    for (int i = 0; i < a.getRows(); i++) {
+                        BaseNumber x = qItems[i * steps + j];
+                        BaseNumber y = qItems[i * steps + l];
+                        sumRe += x.getReal() * y.getReal() + x.getImag() * y.getImag();
+                        sumIm += x.getReal() * y.getImag() - x.getImag() * y.getReal();
+                    }
+
+                    assertEquals((j == l) ? 1 : 0, sumRe, 1e-14);
+                    assertEquals(0, sumIm, 1e-14);
+                }
+            }
+
+            put(a);
+            put(q);
+            put(r);
+        }
+    }
+
+    @Test
+    public void factorize() throws Exception {
+        MatrixFactorization a = BaseNumber.factorize(parseNumber("M3x3[2;0;1;1;3;2;1;1;2]"));
+        assertEquals(3, a.getSize());
+        assertFalse(a.isSingular());
+        compareResultAndPut(parseNumber("6"), a.det());
+        compareResultAndPut(parseNumber("M3x1[1;2;3]"), a.solve(parseNumber("M3x1[5;13;9]")));
+        compareResultAndPut(parseNumber("M3x2[1;0.5;0;0.5;0;0]"), a.solve(parseNumber("M3x2[2;1;1;2;1;1]")));
+
+        MatrixFactorization b = BaseNumber.factorize(parseNumber("M2x2[0.5;1;1i;0]"));
+        assertFalse(b.isSingular());
+        compareResultAndPut(parseNumber("M2x1[-1i;2+0.5i]"), b.solve(parseNumber("M2x1[2;1]")));
+        compareResultAndPut(parseNumber("NaN"), b.solve(parseNumber("M3x1[1;2;3]")));
+
+        assertTrue(BaseNumber.factorize(parseNumber("M3x3[1;2;3;4;5;6;7;8;9]")).isSingular());
+        assertNull(BaseNumber.factorize(parseNumber("M2x1[1;2]")));
+        assertNull(BaseNumber.factorize(parseNumber("5")));
+    }
+
+    @Test
+    public void cholesky() throws Exception {
+        MatrixFactorization a = BaseNumber.factorize(parseNumber("M3x3[4;2;0.5;2;5;1;0.5;1;3]"));
+        assertTrue(a.isPositiveDefinite());
+        BaseNumber det = a.det();
+        assertEquals(44.75, det.getReal(), 1e-12);
+        put(det);
+        BaseNumber x = a.solve(parseNumber("M3x1[9.5;15;11.5]"));
+        BaseNumber[] items = x.getMatrixItems();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, items[i].getReal(), 1e-14);
+        }
+
+        put(x);
+
+        BaseNumber inverse = a.inv();
+        BaseNumber identity = parseNumber("M3x3[4;2;0.5;2;5;1;0.5;1;3]").mul(inverse);
+        items = identity.getMatrixItems();
+
+        for (int i = 0; i < items.length; i++) {
+            assertEquals((i % 4 == 0) ? 1 : 0, items[i].getReal(), 1e-15);
+        }
+
+        put(identity);
+
+        MatrixFactorization b = BaseNumber.factorize(parseNumber("M2x2[2;1i;-1i;2]"));
+        assertTrue(b.isPositiveDefinite());
+        compareResultAndPut(parseNumber("3"), b.det());
+        compareResultAndPut(parseNumber("M2x1[1;1]"), b.solve(parseNumber("M2x1[2+1i;2-1i]")));
+
+        // symmetric, but not positive definite
+        MatrixFactorization c = BaseNumber.factorize(parseNumber("M2x2[1;2;2;1]"));
+        assertFalse(c.isPositiveDefinite());
+        compareResultAndPut(parseNumber("-3"), c.det());
+
+        compareResultAndPut(parseNumber("M2x2[0.5;0;0;0.25]"), BaseNumber.factorize(parseNumber("M2x2[2;0;0;4]")).inv());
+        compareResultAndPut(parseNumber("M2x2[NaN;NaN;NaN;NaN]"), BaseNumber.factorize(parseNumber("M2x2[1;2;2;4]")).inv());
+
+        int n = 100;
+        double[] matrix = new double[n * n];
+        double[] rhs = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                matrix[i * n + j] = 1.0 / (1 + Math.abs(i - j)) + ((i == j) ? n : 0);
+                rhs[i] += matrix[i * n + j];
+            }
+        }
+
+        MatrixNumber solution = (MatrixNumber) MatrixNumber.get(n, n, matrix).solve(MatrixNumber.get(1, n, rhs));
+        double[] ones = new double[n];
+        Arrays.fill(ones, 1);
+        assertArrayEquals(ones, solution.re, 1e-14);
+        put(solution);
+    }
+
+    @Test
+    public void eigen() throws Exception {
+        BaseNumber values = parseNumber("M2x2[2;1;1;2]").eigenvalues();
+        BaseNumber[] items = values.getMatrixItems();
+        assertEquals(1, items[0].getReal(), 1e-15);
+        assertEquals(3, items[1].getReal(), 1e-15);
+        put(values);
+
+        // rotation has complex eigenvalues, triangular matrix has its diagonal
+        values = parseNumber("M2x2[0;-1;1;0]").eigenvalues();
+        items = values.getMatrixItems();
+        assertEquals(0, items[0].getReal() * items[1].getReal(), 1e-15);
+        assertEquals(-1, items[0].getImag() * items[1].getImag(), 1e-15);
+        put(values);
+        compareResultAndPut(parseNumber("M3x1[1;4;6]"), parseNumber("M3x3[1;2;3;0;4;5;0;0;6]").eigenvalues());
+        compareResultAndPut(parseNumber("5"), parseNumber("M1x1[5]").eigenvalues());
+        compareResultAndPut(parseNumber("NaN"), parseNumber("M2x1[1;2]").eigenvalues());
+        assertNull(BaseNumber.factorizeEigen(parseNumber("5")));
+
+        // AV = V diag(values)
+        String[] matrices = {"M3x3[4;1;-2;1;2;0;-2;0;3]", "M3x3[2;1-1i;0;1+1i;3;2i;0;-2i;1]", "M4x4[1;2;3;4;0;1;5;2;3;1;0;1;2;2;1;7]", "M3x3[1+1i;2;0;1i;3;1;4;0;2-1i]"};
+
+        for (String matrix : matrices) {
+            BaseNumber a = parseNumber(matrix);
+            EigenFactorization eigen = BaseNumber.factorizeEigen(duplicate(a));
+            int n = eigen.getSize();
+            BaseNumber[] aItems = a.getMatrixItems();
+            values = eigen.getValues();
+            BaseNumber vectors = eigen.getVectors();
+            items = values.getMatrixItems();
+            BaseNumber[] vItems = vectors.getMatrixItems();
+
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    double sumRe = 0;
+                    double sumIm = 0;
+
+                    for (int k = 0; k < n; k++) {
+                        BaseNumber x = aItems[i * n + k];
+                        BaseNumber y = vItems[k * n + j];
+                        sumRe += x.getReal() * y.getReal() - x.getImag() * y.getImag();
+                        sumIm += x.getReal() * y.getImag() + x.getImag() * y.getReal();
+                    }
+
+                    BaseNumber v = vItems[i * n + j];
+                    BaseNumber lambda = items[j];
+                    assertEquals(lambda.getReal() * v.getReal() - lambda.getImag() * v.getImag(), sumRe, 1e-13);
+                    assertEquals(lambda.getReal() * v.getImag() + lambda.getImag() * v.getReal(), sumIm, 1e-13);
+                }
+            }
+
+            if (eigen.isHermitian()) {
+                for (int i = 1; i < n; i++) {
+                    assertEquals(0, items[i].getImag(), 0);
+                    assertTrue(items[i - 1].getReal() <= items[i].getReal());
+                }
+            }
+
+            put(a);
+            put(values);
+            put(vectors);
+        }
+    }
+
+    @Test
+    public void svd() throws Exception {
+        compareResultAndPut(parseNumber("4"), parseNumber("M2x2[3;0;0;-4]").norm2());
+        BaseNumber cond = parseNumber("M2x2[3;0;0;-4]").cond();
+        assertEquals(4.0 / 3.0, cond.getReal(), 1e-15);
+        put(cond);
+        cond = parseNumber("M2x2[1;2;2;4]").cond();
+        assertEquals(Double.POSITIVE_INFINITY, cond.getReal(), 0);
+        put(cond);
+        compareResultAndPut(parseNumber("0"), parseNumber("0").pinv());
+        compareResultAndPut(parseNumber("3"), parseNumber("-3").norm2());
+        assertNull(BaseNumber.factorizeSVD(parseNumber("5")));
+
+        // pseudo-inverse of singular and non-square matrices, A^T / 25 and A^T / 5
+        String[] matrices = {"M2x2[1;2;2;4]", "M1x2[1;2]", "M3x2[1;1;1;2;1;3]"};
+        String[] inverses = {"M2x2[0.04;0.08;0.08;0.16]", "M2x1[0.2;0.4]", "M2x3[1.3333333333333333;0.3333333333333333;-0.6666666666666666;-0.5;0;0.5]"};
+
+        for (int n = 0; n < matrices.length; n++) {
+            BaseNumber pinv = parseNumber(matrices[n]).pinv();
+            BaseNumber expected = parseNumber(inverses[n]);
+            BaseNumber[] items = pinv.getMatrixItems();
+            BaseNumber[] expectedItems = expected.getMatrixItems();
+            assertEquals(expectedItems.length, items.length);
+
+            for (int i = 0; i < items.length; i++) {
+                assertEquals(expectedItems[i].getReal(), items[i].getReal(), 1e-14);
+            }
+
+            put(pinv);
+            put(expected);
+        }
+
+        // A = U diag(values) V^H
+        BaseNumber a = parseNumber("M2x3[1+1i;2;0;-1i;3;1-2i]");
+        SVDFactorization svd = BaseNumber.factorizeSVD(duplicate(a));
+        assertEquals(2, svd.getRank());
+        BaseNumber u = svd.getU();
+        BaseNumber values = svd.getValues();
+        BaseNumber v = svd.getV();
+        BaseNumber[] uItems = u.getMatrixItems();
+        BaseNumber[] sItems = values.getMatrixItems();
+        BaseNumber[] vItems = v.getMatrixItems();
+        BaseNumber[] aItems = a.getMatrixItems();
+        assertEquals(svd.getNorm2(), sItems[0].getReal(), 0);
+        assertTrue(sItems[0].getReal() >= sItems[1].getReal());
+
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 3; j++) {
+                double sumRe = 0;
+                double sumIm = 0;
+
+                for (int k = 0; k < 2; k++) {
+                    BaseNumber x = uItems[i * 2 + k];
+                    BaseNumber y = vItems[j * 2 + k];
+                    double s = sItems[k].getReal();
+                    sumRe += s * (x.getReal() * y.getReal() + x.getImag() * y.getImag());
+                    sumIm += s * (x.getImag() * y.getReal() - x.getReal() * y.getImag());
+                }
+
+                assertEquals(aItems[i * 3 + j].getReal(), sumRe, 1e-14);
+                assertEquals(aItems[i * 3 + j].getImag(), sumIm, 1e-14);
+            }
+        }
+
+        put(a);
+        put(u);
+        put(values);
+        put(v);
+    }
+
+    @Test
+    public void views() throws Exception {
+        // views share primitive storage
+        MatrixNumber a = (MatrixNumber) parseNumber("M3x3[1.5;2;3;4;5;6;7;8;9.5]");
+        a.primitive();
+        BaseNumber t = duplicate(a).transpose();
+        assertTrue(((MatrixNumber) t).view != null);
+        compareResultAndPut(parseNumber("M3x3[1.5;4;7;2;5;8;3;6;9.5]"), duplicate(t));
+        compareResultAndPut(parseNumber("M2x2[5;8;6;9.5]"), BaseNumber.submatrix(duplicate(t), 1, 1, 2, 2));
+        compareResultAndPut(parseNumber("M2x3[7;8;9.5;1.5;2;3]"), BaseNumber.select(duplicate(a), new int[]{2, 0}, new int[]{0, 1, 2}));
+        compareResultAndPut(parseNumber("M2x2[1.5;3;7;9.5]"), BaseNumber.minor(duplicate(a), 1, 1));
+        compareResultAndPut(parseNumber("-6.75"), BaseNumber.minor(duplicate(t), 1, 1).det());
+        compareResultAndPut(parseNumber("8"), BaseNumber.select(duplicate(a), new int[]{2}, new int[]{1}));
+
+        // duplicate of view is independent
+        compareResultAndPut(parseNumber("M3x3[2.5;5;8;3;6;9;4;7;10.5]"), duplicate(t).add(parseNumber("1")));
+        compareResultAndPut(parseNumber("M3x3[1.5;4;7;2;5;8;3;6;9.5]"), duplicate(t));
+
+        // transposed view is right operand of product without copy
+        compareResultAndPut(parseNumber("M3x3[1.5;2;3;4;5;6;7;8;9.5]").mul(parseNumber("M3x3[1.5;4;7;2;5;8;3;6;9.5]")), a.mul(t));
+        compareResultAndPut(parseNumber("M2x2[1;2i;0;2]"), parseNumber("M2x2[1;1i;0;2]").mul(parseNumber("M2x2[1;0;1i;1]").transpose()));
+
+        int n = 40;
+        double[] items = new double[n * n];
+
+        for (int i = 0; i < items.length; i++) {
+            items[i] = (i % 7) - 0.25 * (i % 5);
+        }
+
+        MatrixNumber expected = (MatrixNumber) MatrixNumber.get(n, n, items.clone()).mul(MatrixNumber.get(n, n, MatrixMultiplication.transpose(items, n, n)));
+        MatrixNumber product = (MatrixNumber) MatrixNumber.get(n, n, items.clone()).mul(MatrixNumber.get(n, n, items.clone()).transpose());
+        assertArrayEquals(expected.re, product.re, 0);
+        put(expected);
+        put(product);
+
+        // cofactor expansion of symbolic items uses minor views
+        BaseNumber det = parseNumber("M4x4[PI;0;0;1;0;1;0;0;0;0;2;0;0;0;0;1]").det();
+        assertEquals(2 * Math.PI, det.getReal(), 1e-15);
+        put(det);
+        compareResultAndPut(parseNumber("M2x2[PI;0;-1;1]"), BaseNumber.minor(parseNumber("M3x3[1;PI;0;0;-1;1;0;0;1]"), 2, 0));
+
+        BaseNumber b = parseNumber("M2x2[1;2;3;4]");
+
+        try {
+            BaseNumber.minor(b, 2, 0);
+            fail("Minor outside of matrix not detected");
+        } catch (IndexOutOfBoundsException e) {
+            // outside of matrix
+        }
+
+        put(b);
+    }
+
     @Test
     public void gauss() throws Exception {
         ArrayList<BaseNumber> inputValues =     parseValues("{ M1x1[1], M2x2[1;2;3;4], M3x3[0;1;2;3;4;5;6;7;9], M4x4[1;5;2;3;5;5;6;9;9;9;10;15;13;15;14;19], M1x2[1;2], M2x1[1;2], M3x4[1;3;1;9;1;1;-1;1;3;11;5;35], M1x1[0], M2x1[M1x1[0];1] }");
@@ -0,0 +1,132 @@
+package com.opencmath;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static com.opencmath.BaseNumber.put;
+import static com.opencmath.TestHelper.compareResultAndPut;
+import static com.opencmath.TestHelper.parseNumber;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+
+public class NumberArenaTest {
+
+    @Rule
+    public TestRule watcher = new TestPoolWatcher();
+
+    @Test
+    public void close() throws Exception {
+        assumeFalse(Boolean.getBoolean("opencmath.pool.disabled"));
+
+        try (NumberArena arena = BaseNumber.openArena()) {
+            BaseNumber a = parseNumber("2.5");
+            BaseNumber b = parseNumber("2+3i");
+            BaseNumber c = parseNumber("M2x2[0;1;2;3]");
+
+            a.add(b);
+            c.mul(parseNumber("5"));
+            parseNumber("PI");
+            BaseNumber.getNaN();
+
+            // items of real matrix are moved into primitive storage by mul
+            assertEquals(4, arena.size());
+        }
+    }
+
+    @Test
+    public void escape() throws Exception {
+        BaseNumber result;
+
+        try (NumberArena arena = BaseNumber.openArena()) {
+            BaseNumber a = parseNumber("M2x2[0;1;2;3]");
+            BaseNumber b = parseNumber("M2x2[0;1;2;3]");
+
+            parseNumber("M2x2[5;6;7;8]");
+            result = arena.escape(a.mul(b).add(parseNumber("1")));
+        }
+
+        compareResultAndPut(parseNumber("M2x2[3;4;7;12]"), result);
+    }
+
+    @Test
+    public void outside() throws Exception {
+        BaseNumber a = parseNumber("M2x2[0;1;2;3]");
+        BaseNumber b = parseNumber("5");
+        BaseNumber result;
+
+        try (NumberArena arena = BaseNumber.openArena()) {
+            result = arena.escape(a.add(parseNumber("1")));
+            assertEquals(0, arena.size());
+        }
+
+        compareResultAndPut(parseNumber("M2x2[1;2;3;4]"), result);
+        put(b);
+    }
+
+    @Test
+    public void readOutside() throws Exception {
+        MatrixNumber a = MatrixNumber.get(2, 1, new double[] {1.5, 2});
+        MatrixNumber b = MatrixNumber.get(2, 1, new double[] {1.5, 2}, new double[] {0, 1});
+        BaseNumber c = BaseNumber.toSparse(parseNumber("M1x2[0;3]"));
+
+        try (NumberArena arena = BaseNumber.openArena()) {
+            assertEquals("Matrix[2x1][1.5, 2]", a.toString());
+            assertFalse(a.equals(b));
+            assertFalse(c.equals(a));
+            assertEquals(0, arena.size());
+        }
+
+        // storage is not changed by reading
+        assertNotNull(a.re);
+        assertNotNull(b.im);
+        assertTrue(c.isSparse());
+
+        // boxed items belong to matrix, not to arena
+        try (NumberArena arena = BaseNumber.openArena()) {
+            assertEquals(2, b.getMatrixItems().length);
+            assertEquals(0, arena.size());
+        }
+
+        put(a);
+        put(b);
+        put(c);
+    }
+
+    @Test
+    public void nested() throws Exception {
+        BaseNumber result;
+
+        try (NumberArena outer = BaseNumber.openArena()) {
+            BaseNumber a = parseNumber("2");
+            BaseNumber b;
+
+            try (NumberArena inner = BaseNumber.openArena()) {
+                parseNumber("3");
+                b = inner.escape(a.mul(parseNumber("4")));
+            }
+
+            result = outer.escape(b.add(parseNumber("1")));
+        }
+
+        compareResultAndPut(parseNumber("9"), result);
+    }
+
+    @Test
+    public void closeOrder() throws Exception {
+        NumberArena outer = BaseNumber.openArena();
+        NumberArena inner = BaseNumber.openArena();
+
+        try {
+            outer.close();
+            fail("Outer arena closed before inner");
+        } catch (IllegalStateException e) {
+            inner.close();
+            outer.close();
+        }
+    }
+}
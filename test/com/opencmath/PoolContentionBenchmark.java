@@ -0,0 +1,153 @@
+package com.opencmath;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Contention benchmark of pool storages. Each thread takes objects from pool and hands them over to
+ * neighbour thread, which puts them back, so objects are produced and released on different threads.
+ * Run as plain java application with test classpath, optional argument is operation count per thread
+ */
+public class PoolContentionBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int HANDOFF_SIZE = 64;
+    private static final int ROUNDS = 5;
+
+    private static final PoolFactory<Object> FACTORY = new PoolFactory<Object>() {
+        @Override
+        public Object create() {
+            return new Object();
+        }
+    };
+
+    private interface Pool {
+        Object get();
+
+        void put(Object object);
+    }
+
+    private interface PoolCreator {
+        Pool create();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int operations = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+
+        System.out.printf("%8s %16s %16s %16s %16s%n", "threads", "locked", "lockfree", "locked+cache", "lockfree+cache");
+
+        for (int threads : THREADS) {
+            double locked = measure(threads, operations, storagePool(false));
+            double lockFree = measure(threads, operations, storagePool(true));
+            double lockedCache = measure(threads, operations, templatePool(false));
+            double lockFreeCache = measure(threads, operations, templatePool(true));
+
+            System.out.printf("%8d %13.2f M/s %13.2f M/s %13.2f M/s %13.2f M/s%n", threads, locked, lockFree, lockedCache, lockFreeCache);
+        }
+    }
+
+    // storage accessed by single objects, same as pool without thread caches
+    private static PoolCreator storagePool(final boolean lockFree) {
+        return new PoolCreator() {
+            @Override
+            public Pool create() {
+                final PoolStorage<Object> storage = lockFree ? new LockFreePoolStorage<>() : new LockedPoolStorage<>();
+
+                return new Pool() {
+                    @Override
+                    public Object get() {
+                        Object[] items = new Object[1];
+
+                        if (storage.pop(items, 0, 1) == 0) {
+                            return FACTORY.create();
+                        }
+
+                        return items[0];
+                    }
+
+                    @Override
+                    public void put(Object object) {
+                        storage.push(new Object[]{object}, 0, 1);
+                    }
+                };
+            }
+        };
+    }
+
+    private static PoolCreator templatePool(final boolean lockFree) {
+        return new PoolCreator() {
+            @Override
+            public Pool create() {
+                PoolStorage<Object> storage = lockFree ? new LockFreePoolStorage<>() : new LockedPoolStorage<>();
+                final PoolTemplate<Object> pool = new PoolTemplate<>(100, Integer.MAX_VALUE / 2, FACTORY, storage);
+
+                return new Pool() {
+                    @Override
+                    public Object get() {
+                        return pool.get();
+                    }
+
+                    @Override
+                    public void put(Object object) {
+                        pool.put(object);
+                    }
+                };
+            }
+        };
+    }
+
+    // returns best throughput of all rounds in millions of get/put pairs per second
+    private static double measure(final int threads, final int operations, PoolCreator creator) throws Exception {
+        double best = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final Pool pool = creator.create();
+            final AtomicReferenceArray<Object[]> slots = new AtomicReferenceArray<>(threads);
+            final CountDownLatch start = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+
+            for (int i = 0; i < threads; i++) {
+                final int id = i;
+
+                workers[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+
+                        for (int n = 0; n < operations; n += HANDOFF_SIZE) {
+                            Object[] items = new Object[HANDOFF_SIZE];
+
+                            for (int j = 0; j < HANDOFF_SIZE; j++) {
+                                items[j] = pool.get();
+                            }
+
+                            Object[] other = slots.getAndSet((id + 1) % threads, items);
+
+                            if (other != null) {
+                                for (Object item : other) {
+                                    pool.put(item);
+                                }
+                            }
+                        }
+                    }
+                });
+                workers[i].start();
+            }
+
+            long time = System.nanoTime();
+            start.countDown();
+
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            time = System.nanoTime() - time;
+            best = Math.max(best, (double) threads * operations / time * 1000.0);
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,95 @@
+package com.opencmath;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.opencmath.BaseNumber.put;
+
+/**
+ * Compares throughput of complex arithmetic with pooled and unpooled ("opencmath.pool.disabled") numbers.
+ * Pool mode is read once at class initialization, so each mode is measured in separate forked JVM.
+ * Run as plain java application with test classpath, optional argument is operation count per iteration
+ */
+public class PoolModeBenchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) throws Exception {
+        if ((args.length > 0) && args[0].equals("run")) {
+            run(Integer.parseInt(args[1]));
+            return;
+        }
+
+        String operations = (args.length > 0) ? args[0] : "1000000";
+
+        System.out.printf("%10s %16s%n", "mode", "throughput");
+        System.out.printf("%10s %12.2f M/s%n", "pooled", fork(false, operations));
+        System.out.printf("%10s %12.2f M/s%n", "unpooled", fork(true, operations));
+    }
+
+    private static double fork(boolean disabled, String operations) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Dopencmath.pool.disabled=" + disabled);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PoolModeBenchmark.class.getName());
+        command.add("run");
+        command.add(operations);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result = null;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                result = line;
+            }
+        }
+
+        if ((process.waitFor() != 0) || (result == null)) {
+            throw new IllegalStateException("Benchmark failed: " + result);
+        }
+
+        return Double.parseDouble(result);
+    }
+
+    // prints best throughput in millions of operations per second as last line
+    private static void run(int operations) {
+        double best = 0;
+        double blackhole = 0;
+
+        for (int i = 0; i < WARMUP_ITERATIONS + ITERATIONS; i++) {
+            long time = System.nanoTime();
+
+            for (int j = 0; j < operations; j++) {
+                blackhole += workload(j);
+            }
+
+            time = System.nanoTime() - time;
+
+            if (i >= WARMUP_ITERATIONS) {
+                best = Math.max(best, (double) operations / time * 1000.0);
+            }
+        }
+
+        System.out.println("# " + blackhole);
+        System.out.println(best);
+    }
+
+    // same kind of operations as in ComplexNumberTest
+    private static double workload(int i) {
+        BaseNumber a = ComplexNumber.get(i, 1.5);
+        BaseNumber b = ComplexNumber.get(2.5, -i);
+        BaseNumber c = RealNumber.get(0.5);
+
+        BaseNumber result = a.add(b).mul(c).sub(ComplexNumber.get(1, 1)).div(ComplexNumber.get(3, 4)).sqrt();
+        double value = result.getReal() + result.getImag();
+        put(result);
+        return value;
+    }
+}
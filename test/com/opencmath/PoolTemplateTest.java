@@ -0,0 +1,429 @@
+package com.opencmath;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+
+public class PoolTemplateTest {
+
+    private static final PoolFactory<Object> FACTORY = new PoolFactory<Object>() {
+        @Override
+        public Object create() {
+            return new Object();
+        }
+    };
+
+    private static PoolTemplate<Object> createPool(int initialSize, int maximumSize) {
+        return new PoolTemplate<>(initialSize, maximumSize, FACTORY);
+    }
+
+    @Before
+    public void poolEnabled() {
+        assumeFalse(Boolean.getBoolean("opencmath.pool.disabled"));
+    }
+
+    @Test
+    public void getPut() throws Exception {
+        PoolTemplate<Object> pool = createPool(10, 100);
+        assertEquals(10, pool.size());
+
+        Object a = pool.get();
+        Object b = pool.get();
+        assertNotSame(a, b);
+        assertEquals(8, pool.size());
+
+        pool.put(b);
+        assertSame(b, pool.get());
+
+        pool.put(a);
+        pool.put(b);
+        assertEquals(10, pool.size());
+        assertTrue(pool.checkConsistency());
+    }
+
+    @Test
+    public void consistency() throws Exception {
+        PoolTemplate<Object> pool = createPool(100000, 200000);
+        assertTrue(pool.checkConsistency());
+
+        Object a = pool.get();
+        pool.put(a);
+        pool.put(a);
+        assertFalse(pool.checkConsistency());
+    }
+
+    @Test
+    public void grow() throws Exception {
+        PoolTemplate<Object> pool = createPool(10, 25);
+        ArrayList<Object> items = new ArrayList<>();
+
+        for (int i = 0; i < 25; i++) {
+            items.add(pool.get());
+        }
+
+        assertEquals(0, pool.size());
+
+        try {
+            pool.get();
+        } catch (PoolExhaustedException e) {
+            assertEquals(25, e.getMaximumSize());
+
+            for (Object item : items) {
+                pool.put(item);
+            }
+
+            assertEquals(25, pool.size());
+            assertTrue(pool.checkConsistency());
+            return;
+        }
+
+        throw new AssertionError("Pool maximum size not respected");
+    }
+
+    @Test
+    public void exhaustionBlock() throws Exception {
+        final PoolTemplate<Object> pool = createPool(10, 25);
+        pool.setExhaustionPolicy(PoolExhaustionPolicy.BLOCK, 10000);
+        final ArrayList<Object> items = new ArrayList<>();
+
+        for (int i = 0; i < 25; i++) {
+            items.add(pool.get());
+        }
+
+        // objects are returned by usual put() from thread which stays alive until blocked retrieval is served
+        final CountDownLatch served = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+
+                    for (Object item : items.subList(0, 5)) {
+                        pool.put(item);
+                    }
+
+                    served.await();
+                } catch (InterruptedException e) {
+                    // test failed
+                }
+            }
+        });
+        thread.start();
+
+        Object a = pool.get();
+        served.countDown();
+        thread.join();
+        assertTrue(items.subList(0, 5).contains(a));
+        pool.put(a);
+
+        for (Object item : items.subList(5, 25)) {
+            pool.put(item);
+        }
+
+        assertEquals(25, pool.size());
+        assertTrue(pool.checkConsistency());
+
+        // timeout
+        pool.setExhaustionPolicy(PoolExhaustionPolicy.BLOCK, 20);
+        items.clear();
+
+        for (int i = 0; i < 25; i++) {
+            items.add(pool.get());
+        }
+
+        try {
+            pool.get();
+            fail("Block timeout not respected");
+        } catch (PoolExhaustedException e) {
+            // expected
+        }
+
+        for (Object item : items) {
+            pool.put(item);
+        }
+
+        assertTrue(pool.checkConsistency());
+    }
+
+    @Test
+    public void exhaustionAllocate() throws Exception {
+        PoolTemplate<Object> pool = createPool(10, 25);
+        pool.setExhaustionPolicy(PoolExhaustionPolicy.ALLOCATE, 0);
+        ArrayList<Object> items = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            items.add(pool.get());
+        }
+
+        PoolStatistics statistics = pool.getStatistics(NumberType.REAL);
+        assertEquals(75, statistics.getExhaustions());
+        assertEquals(100, statistics.getGets());
+        assertEquals(statistics.getGets(), statistics.getHits() + statistics.getMisses());
+        assertEquals(76, statistics.getMisses());
+        assertEquals(100, statistics.getOutstanding());
+        assertEquals(100, statistics.getPeakOutstanding());
+
+        for (Object item : items) {
+            pool.put(item);
+        }
+
+        // objects over maximum size are released when thread cache is full
+        assertTrue(pool.getStatistics(NumberType.REAL).getCapacity() < 100);
+        assertTrue(pool.checkConsistency());
+    }
+
+    @Test
+    public void prewarm() throws Exception {
+        PoolTemplate<Object> pool = createPool(10, 100);
+        assertEquals(40, pool.prewarm(50));
+        assertEquals(0, pool.prewarm(50));
+        assertEquals(50, pool.size());
+        assertEquals(50, pool.prewarm(200));
+        assertEquals(100, pool.size());
+
+        pool.setMaximumSize(60);
+        assertEquals(60, pool.size());
+        assertEquals(60, pool.getStatistics(NumberType.REAL).getCapacity());
+        assertTrue(pool.checkConsistency());
+    }
+
+    @Test
+    public void trim() throws Exception {
+        PoolTemplate<Object> pool = createPool(10, 1000);
+        pool.setTrimPolicy(10, 100, -1);
+        ArrayList<Object> items = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            items.add(pool.get());
+        }
+
+        for (Object item : items) {
+            pool.put(item);
+        }
+
+        // high watermark plus thread cache
+        assertTrue(pool.size() <= 100 + 2 * PoolTemplate.BATCH_SIZE);
+
+        int size = pool.size();
+        int released = pool.trim();
+        assertEquals(size - released, pool.size());
+        assertTrue(pool.size() <= 10 + 2 * PoolTemplate.BATCH_SIZE);
+        assertTrue(pool.checkConsistency());
+
+        // released objects can be created again
+        items.clear();
+
+        for (int i = 0; i < 1000; i++) {
+            items.add(pool.get());
+        }
+
+        for (Object item : items) {
+            pool.put(item);
+        }
+
+        assertTrue(pool.checkConsistency());
+    }
+
+    @Test
+    public void trimDelay() throws Exception {
+        PoolTemplate<Object> pool = createPool(10, 1000);
+        pool.setTrimPolicy(0, 1000, 0);
+        ArrayList<Object> items = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            items.add(pool.get());
+        }
+
+        Thread.sleep(5);
+
+        for (Object item : items) {
+            pool.put(item);
+        }
+
+        // burst is over, only thread cache is kept
+        assertTrue(pool.size() <= 2 * PoolTemplate.BATCH_SIZE);
+    }
+
+    @Test
+    public void statistics() throws Exception {
+        PoolTemplate<Object> pool = createPool(10, 25);
+        ArrayList<Object> items = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            items.add(pool.get());
+        }
+
+        PoolStatistics statistics = pool.getStatistics(NumberType.REAL);
+        assertEquals(20, statistics.getGets());
+        assertEquals(0, statistics.getPuts());
+        assertEquals(25, statistics.getCreated());
+        assertEquals(1, statistics.getGrowths());
+        assertEquals(20, statistics.getOutstanding());
+        assertEquals(20, statistics.getPeakOutstanding());
+        assertEquals(5, statistics.getFree());
+        assertEquals(25, statistics.getCapacity());
+
+        for (int i = 0; i < 5; i++) {
+            items.add(pool.get());
+        }
+
+        try {
+            pool.get();
+            fail("Pool maximum size not respected");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        for (Object item : items) {
+            pool.put(item);
+        }
+
+        statistics = pool.getStatistics(NumberType.REAL);
+        assertEquals(26, statistics.getGets());
+        assertEquals(25, statistics.getPuts());
+        assertEquals(1, statistics.getExhaustions());
+        assertEquals(24, statistics.getHits());
+        assertEquals(2, statistics.getMisses());
+        assertEquals(0, statistics.getOutstanding());
+        assertEquals(25, statistics.getPeakOutstanding());
+        assertEquals(25, statistics.getFree());
+    }
+
+    @Test
+    public void tracker() throws Exception {
+        PoolTemplate<Object> pool = new PoolTemplate<>(10, 100, FACTORY, new LockedPoolStorage<>(), new PoolTracker<>(true));
+        Object a = pool.get();
+        Object b = pool.get();
+
+        pool.put(a);
+
+        try {
+            pool.put(a);
+            fail("Double put not detected");
+        } catch (IllegalStateException e) {
+            assertNotNull(e.getCause());
+        }
+
+        try {
+            pool.put(new Object());
+            fail("Foreign object not detected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        List<PoolAllocation> outstanding = pool.getOutstanding();
+        assertEquals(1, outstanding.size());
+        assertEquals(2, outstanding.get(0).getGeneration());
+        assertNotNull(outstanding.get(0).getStackTrace());
+
+        pool.put(b);
+        assertEquals(0, pool.getOutstanding().size());
+        assertEquals(10, pool.size());
+        assertTrue(pool.checkConsistency());
+    }
+
+    @Test
+    public void storage() throws Exception {
+        ArrayList<PoolStorage<Object>> storages = new ArrayList<>();
+        storages.add(new LockedPoolStorage<>());
+        storages.add(new LockFreePoolStorage<>());
+
+        for (PoolStorage<Object> storage : storages) {
+            Object[] items = new Object[100];
+
+            for (int i = 0; i < items.length; i++) {
+                items[i] = new Object();
+            }
+
+            storage.push(items, 0, items.length);
+            assertEquals(100, storage.size());
+
+            Object[] batch = new Object[10];
+            assertEquals(10, storage.pop(batch, 0, 10));
+            assertEquals(90, storage.size());
+
+            storage.push(batch, 0, 10);
+            ArrayList<Object> collected = new ArrayList<>();
+            storage.collect(collected);
+            assertEquals(100, collected.size());
+
+            int count = 0;
+            int n;
+            while ((n = storage.pop(batch, 0, 7)) > 0) {
+                count += n;
+            }
+
+            assertEquals(100, count);
+            assertEquals(0, storage.size());
+        }
+    }
+
+    @Test
+    public void threads() throws Exception {
+        threads(new PoolTemplate<>(100, 100000, FACTORY, new LockedPoolStorage<>()));
+        threads(new PoolTemplate<>(100, 100000, FACTORY, new LockFreePoolStorage<>()));
+    }
+
+    private static void threads(final PoolTemplate<Object> pool) throws Exception {
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    ArrayList<Object> items = new ArrayList<>();
+
+                    for (int j = 0; j < 10000; j++) {
+                        items.add(pool.get());
+
+                        if (items.size() > 500) {
+                            for (Object item : items) {
+                                pool.put(item);
+                            }
+
+                            items.clear();
+                        }
+                    }
+
+                    for (Object item : items) {
+                        pool.put(item);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int size = pool.size();
+        assertTrue(pool.checkConsistency());
+
+        // caches of finished threads are handed back to global pool
+        ArrayList<Object> items = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            items.add(pool.get());
+        }
+
+        for (Object item : items) {
+            pool.put(item);
+        }
+
+        assertEquals(size, pool.size());
+        assertTrue(pool.checkConsistency());
+    }
+}
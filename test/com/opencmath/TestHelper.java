@@ -52,7 +52,7 @@ class TestHelper {
                 return ((ConstantNumber) number).value.value;
             case MATRIX: {
                 MatrixNumber matrixNumber = (MatrixNumber) number;
-                BaseNumber[] values = matrixNumber.value;
+                BaseNumber[] values = matrixNumber.items();
                 BaseNumber sum = IntegerNumber.get(0);
 
                 for (BaseNumber item : values) {
@@ -80,8 +80,8 @@ class TestHelper {
             ArrayList<BaseNumber> list = new ArrayList<>();
             String[] tokens = number.substring(number.indexOf("[") + 1, number.lastIndexOf("]")).replace(" ", "").split(";");
             String[] dimen = number.substring(0, number.indexOf("[")).replace("M", "").split("x");
-            byte rows = Byte.parseByte(dimen[0]);
-            byte cols = Byte.parseByte(dimen[1]);
+            int rows = Integer.parseInt(dimen[0]);
+            int cols = Integer.parseInt(dimen[1]);
 
             for (String token : tokens) {
                 if (token.isEmpty()) {